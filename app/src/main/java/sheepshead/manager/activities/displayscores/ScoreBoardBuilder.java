@@ -28,6 +28,7 @@ import android.util.TypedValue;
 import android.view.View;
 import android.widget.TextView;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -36,6 +37,7 @@ import sheepshead.manager.R;
 import sheepshead.manager.game.Player;
 import sheepshead.manager.game.PlayerRole;
 import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.serialization.SessionDataCorruptedException;
 import sheepshead.manager.session.Session;
 import sheepshead.manager.uicontrolutils.table.BgDrawables;
 import sheepshead.manager.uicontrolutils.table.DynamicSizeTableBuilder;
@@ -127,15 +129,24 @@ class ScoreBoardBuilder {
     }
 
     /**
-     * Sets the body for this score board
+     * Sets the body for this score board. If older games of a paged session cannot be loaded,
+     * only the latest games (see {@link Session#RECENT_GAMES}) are shown
      *
      * @param session The current session to get game results from
      * @param players The players of the session
      */
     void addBody(@NonNull Session session, Collection<Player> players) {
         int number = session.getGameAmount();
+        int oldest = 0;
+        try {
+            session.loadGames(0, number);
+        } catch (IOException | SessionDataCorruptedException e) {
+            System.out.println("Could not load older games: " + e.getMessage());
+            //the latest games are always in memory
+            oldest = Math.max(0, number - Session.RECENT_GAMES);
+        }
         Iterator<SingleGameResult> revIt = session.getLatestFirstIterator();
-        while (revIt.hasNext()) {
+        while (revIt.hasNext() && number > oldest) {
             SingleGameResult result = revIt.next();
             addGame(number, result, players);
             number--;
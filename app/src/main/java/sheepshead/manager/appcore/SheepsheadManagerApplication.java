@@ -21,16 +21,35 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import sheepshead.manager.export.FileExport;
+import sheepshead.manager.serialization.BinarySessionReader;
+import sheepshead.manager.serialization.BinarySessionWriter;
 import sheepshead.manager.serialization.CSVFormat;
+import sheepshead.manager.serialization.ISessionReader;
+import sheepshead.manager.serialization.ISessionWriter;
+import sheepshead.manager.serialization.IndexedSessionFile;
+import sheepshead.manager.serialization.LoadReport;
 import sheepshead.manager.serialization.SerializationActions;
+import sheepshead.manager.serialization.SessionCSVReader;
+import sheepshead.manager.serialization.SessionCSVWriter;
 import sheepshead.manager.serialization.SessionDataCorruptedException;
 import sheepshead.manager.session.InternalSessionReader;
+import sheepshead.manager.session.ISessionListener;
 import sheepshead.manager.session.InternalSessionWriter;
 import sheepshead.manager.session.Session;
+import sheepshead.manager.session.SessionJournal;
+import sheepshead.manager.statistics.BalanceTimeSeries;
+import sheepshead.manager.statistics.FormStatistics;
+import sheepshead.manager.statistics.IStatisticsFactory;
+import sheepshead.manager.statistics.LeagueAggregator;
+import sheepshead.manager.statistics.LeagueTable;
+import sheepshead.manager.statistics.PartnershipMatrix;
+import sheepshead.manager.statistics.SessionStatistics;
 import sheepshead.manager.utils.CollectionUtils;
 
 /**
@@ -44,9 +63,21 @@ public final class SheepsheadManagerApplication extends Application {
      */
     public static final CSVFormat INTERNAL_LOAD_SAVE_FORMAT = new CSVFormat(';', '"', "utf8", false, new InternalSessionWriter(), new InternalSessionReader());
     /**
-     * The name of the save file containing the latest session
+     * The format of the save file containing the latest session
      */
-    private static final String sessionSavePath = "latest_session.csv";
+    private static final SaveFileFormat saveFileFormat = SaveFileFormat.BINARY;
+    /**
+     * The name of the journal file containing all changes since the latest session save file was written
+     */
+    private static final String sessionJournalPath = "latest_session.journal";
+    /**
+     * The amount of save file generations tried when loading the latest session
+     */
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+    /**
+     * The name of the file listing the problems of the latest session save file that was loaded in salvage mode
+     */
+    private static final String loadReportPath = "latest_session.report";
 
     /**
      * singleton instance
@@ -55,6 +86,25 @@ public final class SheepsheadManagerApplication extends Application {
     private
     @Nullable
     Session currentSession;
+    /**
+     * The journal recording all changes of the current session, or null if there is no current session
+     */
+    private
+    @Nullable
+    SessionJournal journal;
+    /**
+     * The statistics of the current session by their type, each created on first use and then kept up to date
+     * as listener of the session
+     */
+    private final Map<Class<? extends ISessionListener>, ISessionListener> statistics = new HashMap<>();
+    /**
+     * Single background thread writing the save file and the journal, so the ui thread never waits for IO
+     */
+    private final ExecutorService saveExecutor = Executors.newSingleThreadExecutor();
+    /**
+     * Aggregates the saved sessions, keeps the tables of already read files between aggregations
+     */
+    private final LeagueAggregator leagueAggregator = new LeagueAggregator(INTERNAL_LOAD_SAVE_FORMAT);
 
     /**
      * Returns the singleton instance.
@@ -75,6 +125,15 @@ public final class SheepsheadManagerApplication extends Application {
         startup();
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (currentSession != null) {
+            //older games of a paged session are loaded again when needed
+            currentSession.trimMemory();
+        }
+    }
+
     @Override
     public void onTerminate() {
         //this is called at the end of the lifetime of this application
@@ -101,45 +160,152 @@ public final class SheepsheadManagerApplication extends Application {
     /**
      * Called by {@link AbstractBaseActivity} when the application is terminating
      * <p>
-     * The current session is persistently saved to the files directory.
+     * The current session is persistently saved to the files directory. As every change of the session
+     * is already recorded in the journal, the full session save file is only rewritten when the journal
+     * needs a compaction. The save file is written in the background from a snapshot of the session
+     * (see {@link Session#snapshot()}).
      *
      * @see Application#getFilesDir()
+     * @see SessionJournal
      */
     public void saveApplicationState() {
-        if (currentSession != null) {
-            File dir = getFilesDir();
-            File saveTo = new File(dir, sessionSavePath);
-            FileExport.ExportParams params = new FileExport.ExportParams(saveTo, currentSession, INTERNAL_LOAD_SAVE_FORMAT);
-            new FileExport(null).startActionChain(params, null);//a null activity is ok as it is not needed for the action
+        if (currentSession != null && (journal == null || journal.needsCompaction())) {
+            startJournal(currentSession);
         }
     }
 
+    /**
+     * Schedules writing the given session to the save file and starts a new journal that records all further
+     * changes of the session. If writing fails, the journal stays out of sync, so the next save attempt
+     * writes the session again
+     *
+     * @param session The session to save
+     */
+    private void startJournal(@NonNull Session session) {
+        File dir = getFilesDir();
+        if (journal == null) {
+            journal = new SessionJournal(new File(dir, sessionJournalPath), INTERNAL_LOAD_SAVE_FORMAT, saveFileFormat.createWriter(), saveExecutor);
+            session.addListener(journal);
+        }
+        journal.compactLater(session, new File(dir, saveFileFormat.getFileName()));
+    }
+
+    /**
+     * Closes the given session on the save thread, after the journal records and the save file of the session
+     * that are already scheduled have been written (a paged session loads its games from the open save file)
+     *
+     * @param session The session that is not used any more
+     */
+    private void closeLater(@NonNull final Session session) {
+        saveExecutor.execute(() -> {
+            try {
+                session.close();
+            } catch (IOException e) {
+                System.out.println("Could not close the session: " + e.getMessage());
+            }
+        });
+    }
+
     /**
      * Attempts to load the latest session save file. If this fails, no error is thrown.
      * The save file is expected to be in the files directory of this application
      * If the save file cannot be read because of data corruption the file is renamed and kept for debug
-     * purposes.
+     * purposes. All changes recorded in the journal are replayed on the loaded session.
+     * If there is no save file in the selected format, a save file in another format is loaded and
+     * immediately converted.
+     * <p>
+     * Save files that were not written completely are detected by their footer without parsing them
+     * (see {@link SerializationActions#findLatestSnapshot(File)}), then the previous generation is loaded.
+     * A save file that cannot be parsed is renamed, so the next attempt loads the previous generation as well.
+     * Damaged games of a save file are skipped (salvage mode, see {@link LoadReport}) and listed in a report file,
+     * the remaining games are saved again. A journal that cannot be replayed on the remaining games is kept
+     * (see {@link SessionJournal#DROPPED_SUFFIX}) and listed in the report as well.
      *
      * @see Application#getFilesDir()
      */
     private void tryLoadSession() {
+        if (currentSession != null) {
+            return;
+        }
         File dir = getFilesDir();
-        File loadFrom = new File(dir, sessionSavePath);
-        if (loadFrom.exists() && currentSession == null) {
+        for (int attempt = 0; attempt < MAX_LOAD_ATTEMPTS; attempt++) {
+            SaveFileFormat loadFormat = saveFileFormat;
+            File loadFrom = SerializationActions.findLatestSnapshot(new File(dir, loadFormat.getFileName()));
+            for (SaveFileFormat format : SaveFileFormat.values()) {
+                if (loadFrom == null) {
+                    loadFormat = format;
+                    loadFrom = SerializationActions.findLatestSnapshot(new File(dir, format.getFileName()));
+                }
+            }
+            if (loadFrom == null) {
+                System.out.println("No last session found");
+                return;
+            }
             try {
-                currentSession = SerializationActions.loadSession(loadFrom, INTERNAL_LOAD_SAVE_FORMAT);
-            } catch (FileNotFoundException e) {
-                //should never be called (loadFrom.exists() -> true)
-                throw new RuntimeException(e);
-            } catch (IOException | SessionDataCorruptedException ignore) {
-                // could not load last session -> ignore
-                currentSession = null;
+                LoadReport report = new LoadReport();
+                Session loaded = loadSession(loadFrom, loadFormat, report);
+                SessionJournal loadedJournal = new SessionJournal(new File(dir, sessionJournalPath), INTERNAL_LOAD_SAVE_FORMAT, saveFileFormat.createWriter(), saveExecutor);
+                int replayed;
+                try {
+                    //a journal that does not match the salvaged games is kept and listed in the report
+                    replayed = loadedJournal.replay(loaded, loadFrom, report);
+                } catch (IOException e) {
+                    loaded.close();
+                    throw e;
+                }
+                System.out.println("Replayed " + replayed + " journal records");
+                boolean salvaged = !report.isClean();
+                if (salvaged) {
+                    System.out.println("Salvaged " + loadFrom.getName() + ": " + report);
+                    report.writeTo(new File(dir, loadReportPath));
+                }
+                loaded.addListener(loadedJournal);
+                currentSession = loaded;
+                journal = loadedJournal;
+                if (salvaged || loadFormat != saveFileFormat || !loadFrom.getName().equals(saveFileFormat.getFileName())) {
+                    //convert the file, replace a damaged file or restore the save file from an older generation
+                    loadedJournal.compactLater(loaded, new File(dir, saveFileFormat.getFileName()));
+                }
+                return;
+            } catch (IOException | SessionDataCorruptedException e) {
+                System.out.println("Could not load " + loadFrom.getName() + ": " + e.getMessage());
             }
-        } else {
-            System.out.println("No last session found");
         }
     }
 
+    /**
+     * Loads the given save file. Binary save files are loaded as paged session, so only the latest games
+     * are parsed at startup (see {@link IndexedSessionFile#createPagedSession()}). The checksum of the file is
+     * verified first, a file that does not match is loaded like any other format instead, which salvages
+     * its games or renames it so the next attempt loads the previous generation
+     *
+     * @param file   The save file
+     * @param format The format of the save file
+     * @param report Receives the problems of a full load, damaged games are skipped
+     * @return The loaded session
+     * @throws IOException                   When reading the file produced IO errors
+     * @throws SessionDataCorruptedException When the file cannot be parsed
+     */
+    private Session loadSession(File file, SaveFileFormat format, LoadReport report) throws IOException, SessionDataCorruptedException {
+        if (format == SaveFileFormat.BINARY) {
+            IndexedSessionFile pages = null;
+            try {
+                pages = new IndexedSessionFile(file);
+                //older games are only read when they are accessed, so damaged data must be detected now
+                pages.verify();
+                //the file stays open as long as the session loads games from it
+                return pages.createPagedSession();
+            } catch (IOException | SessionDataCorruptedException e) {
+                System.out.println("Could not load paged session: " + e.getMessage());
+                if (pages != null) {
+                    pages.close();
+                }
+            }
+        }
+        //a full load renames a corrupted file
+        return SerializationActions.loadSession(file, format.createReader(report), report);
+    }
+
     /**
      * Called by {@link sheepshead.manager.main.LoadingScreen} when the application is starting
      * <p>
@@ -169,6 +335,44 @@ public final class SheepsheadManagerApplication extends Application {
         return currentSession;
     }
 
+    /**
+     * Returns statistics of the current session, e.g. {@link SessionStatistics}, {@link FormStatistics},
+     * {@link BalanceTimeSeries} or {@link PartnershipMatrix}. They are computed on the first call for their type
+     * and then kept up to date with every change of the session, so further calls return immediately
+     *
+     * @param type    The type of the statistics
+     * @param factory Computes the statistics if there are none of this type yet
+     * @param <T>     The type of the statistics
+     * @return The statistics of the current session or null if there is no current session available
+     */
+    public
+    @Nullable
+    <T extends ISessionListener> T getStatistics(@NonNull Class<T> type, @NonNull IStatisticsFactory<T> factory) {
+        if (currentSession == null) {
+            return null;
+        }
+        ISessionListener sessionStatistics = statistics.get(type);
+        if (sessionStatistics == null) {
+            sessionStatistics = factory.create(currentSession);
+            currentSession.addListener(sessionStatistics);
+            statistics.put(type, sessionStatistics);
+        }
+        return type.cast(sessionStatistics);
+    }
+
+    /**
+     * Aggregates the totals of all sessions saved in {@link SerializationActions#sessionSaveDirectory}.
+     * Only sessions that were saved or changed since the last call are read, but this may still take long,
+     * so it should not be called on the ui thread
+     *
+     * @return The all-time totals of the players of the saved sessions
+     */
+    public
+    @NonNull
+    LeagueTable aggregateSavedSessions() {
+        return leagueAggregator.aggregate(new File(getFilesDir(), SerializationActions.sessionSaveDirectory));
+    }
+
     /**
      * Sets the current session to the given session
      *
@@ -176,6 +380,69 @@ public final class SheepsheadManagerApplication extends Application {
      * @throws NullPointerException If session is null
      */
     public void setCurrentSession(@NonNull Session session) {
+        if (currentSession != null && journal != null) {
+            currentSession.removeListener(journal);
+        }
+        if (currentSession != null) {
+            for (ISessionListener sessionStatistics : statistics.values()) {
+                currentSession.removeListener(sessionStatistics);
+            }
+        }
+        if (currentSession != null && currentSession != session) {
+            closeLater(currentSession);
+        }
+        journal = null;
+        statistics.clear();
         currentSession = CollectionUtils.nonNull(session);
+        startJournal(currentSession);
+    }
+
+    /**
+     * The formats the save file of the latest session can be written in
+     */
+    private enum SaveFileFormat {
+        /**
+         * Human readable csv, see {@link #INTERNAL_LOAD_SAVE_FORMAT}
+         */
+        CSV("latest_session.csv"),
+        /**
+         * Compact binary format, see {@link BinarySessionWriter}
+         */
+        BINARY("latest_session.bin");
+
+        private final String fileName;
+
+        SaveFileFormat(String fileName) {
+            this.fileName = fileName;
+        }
+
+        /**
+         * @return The name of the save file in the files directory
+         */
+        String getFileName() {
+            return fileName;
+        }
+
+        ISessionWriter createWriter() {
+            switch (this) {
+                case BINARY:
+                    return new BinarySessionWriter();
+                default:
+                    return new SessionCSVWriter(INTERNAL_LOAD_SAVE_FORMAT);
+            }
+        }
+
+        /**
+         * @param report Receives the problems in salvage mode, or null to read strictly
+         * @return a reader for the save file
+         */
+        ISessionReader createReader(@Nullable LoadReport report) {
+            switch (this) {
+                case BINARY:
+                    return new BinarySessionReader(report);
+                default:
+                    return new SessionCSVReader(INTERNAL_LOAD_SAVE_FORMAT, report);
+            }
+        }
     }
 }
@@ -55,6 +55,7 @@ public class CSVRuleDialog extends ChainableAction<FileExport.ExportParams, File
 
     //dialog attributes
     private Switch quoteAllSwitch;
+    private Switch compressSwitch;
     private EditText separatorInput;
     private EditText escapeInput;
     private Spinner encodingSpinner;
@@ -86,6 +87,7 @@ public class CSVRuleDialog extends ChainableAction<FileExport.ExportParams, File
         //show dialog
         View dialogView = activity.getLayoutInflater().inflate(R.layout.dialog_select_csv_rules, null);
         quoteAllSwitch = (Switch) dialogView.findViewById(R.id.DialogSelectCSVRule_switch_quote_cells);
+        compressSwitch = (Switch) dialogView.findViewById(R.id.DialogSelectCSVRule_switch_compress);
         separatorInput = (EditText) dialogView.findViewById(R.id.DialogSelectCSVRule_edit_text_separator);
         escapeInput = (EditText) dialogView.findViewById(R.id.DialogSelectCSVRule_edit_text_escape);
         encodingSpinner = (Spinner) dialogView.findViewById(R.id.DialogSelectCSVRule_spinner_encoding);
@@ -120,6 +122,7 @@ public class CSVRuleDialog extends ChainableAction<FileExport.ExportParams, File
 
     private void apply(CSVFormat rule) {
         quoteAllSwitch.setChecked(rule.quoteEveryCell());
+        compressSwitch.setChecked(rule.getCompression() != CSVFormat.Compression.NONE);
         separatorInput.setText(Character.toString(rule.getSeparator()));
         escapeInput.setText(Character.toString(rule.getEscape()));
         //get the encoding name (not a alias)
@@ -145,7 +148,8 @@ public class CSVRuleDialog extends ChainableAction<FileExport.ExportParams, File
     public void onClick(View v) {
         CSVFormat selectedRule = new CSVFormat(getChar(separatorInput), getChar(escapeInput),
                 available_encodings[encodingSpinner.getSelectedItemPosition()],
-                quoteAllSwitch.isChecked(), new ExportCSVWriter(activity), null);//<-- no reader supplied
+                quoteAllSwitch.isChecked(), new ExportCSVWriter(activity), null,//<-- no reader supplied
+                compressSwitch.isChecked() ? CSVFormat.Compression.GZIP : CSVFormat.Compression.NONE);
         params.setCSVRules(selectedRule);
         dialog.dismiss();
         nextAction(params, activity);
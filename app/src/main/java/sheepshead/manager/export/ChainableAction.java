@@ -32,7 +32,8 @@ import android.support.annotation.Nullable;
  * Example:
  * The email export is implemented by chaining
  * <li>a dialog for configuring the export format {@link CSVRuleDialog} </li>
- * <li>a file export for saving the session to a location from where it can be accessed by mail clients {@link FileExport}</li>
+ * <li>a file export for saving the session to a location from where it can be accessed by mail clients, together
+ * with an archive copy {@link MultiFileExport}</li>
  * <li>the select email client action {@link EmailExport}</li>
  * <br>
  * Note that the last two chain elements are computed asynchronously as the dialog needs user input.
@@ -23,10 +23,15 @@ import android.net.Uri;
 import android.support.v4.content.FileProvider;
 
 import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
 
 import sheepshead.manager.R;
 import sheepshead.manager.appcore.ActivityDescriptor;
 import sheepshead.manager.appcore.SheepsheadManagerApplication;
+import sheepshead.manager.serialization.CSVFormat;
+import sheepshead.manager.serialization.SerializationActions;
 import sheepshead.manager.session.Session;
 import sheepshead.manager.uicontrolutils.DialogUtils;
 
@@ -53,7 +58,9 @@ public class EmailExport extends ChainableAction<File, Void> {
                     //The only valid email attachment path is defined in xml/provider_paths.xml
                     File attachmentPath = new File(activity.getFilesDir(), "mailed/session.csv");
                     FileExport.ExportParams params = new FileExport.ExportParams(attachmentPath, session, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
-                    new CSVRuleDialog(new FileExport(new EmailExport())).startActionChain(params, activity);
+                    //the mailed session is archived in the same pass, so it can be loaded again later
+                    new CSVRuleDialog(new MultiFileExport(new EmailExport(), createArchiveParams(activity, session)))
+                            .startActionChain(params, activity);
                 } else {
                     DialogUtils.showInfoDialog(activity, activity.getString(R.string.Menu_no_session_available), activity.getString(android.R.string.ok), null);
                 }
@@ -61,6 +68,20 @@ public class EmailExport extends ChainableAction<File, Void> {
         };
     }
 
+    /**
+     * @param activity The current activity
+     * @param session  The mailed session
+     * @return The parameters of the archive copy of a mailed session in the directory of the saved sessions
+     */
+    private static FileExport.ExportParams createArchiveParams(Activity activity, Session session) {
+        File saveDir = new File(activity.getFilesDir(), SerializationActions.sessionSaveDirectory);
+        String name = "mailed_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US)
+                .format(Calendar.getInstance().getTime()) + ".csv";
+        //archived sessions are only read by this app, so they are compressed
+        CSVFormat archiveFormat = SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT.withCompression(CSVFormat.Compression.GZIP);
+        return new FileExport.ExportParams(new File(saveDir, name), session, archiveFormat);
+    }
+
     @Override
     protected void performAction(File file, Activity activity) {
         Intent intent = new Intent(Intent.ACTION_SEND);
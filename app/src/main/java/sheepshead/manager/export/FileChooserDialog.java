@@ -20,6 +20,8 @@ package sheepshead.manager.export;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.Dialog;
+import android.content.DialogInterface;
+import android.os.AsyncTask;
 import android.support.annotation.Nullable;
 import android.view.View;
 import android.widget.AdapterView;
@@ -29,15 +31,22 @@ import android.widget.Spinner;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import sheepshead.manager.R;
+import sheepshead.manager.serialization.CSVFormat;
+import sheepshead.manager.serialization.SessionDataCorruptedException;
+import sheepshead.manager.serialization.SessionSummary;
 
 public class FileChooserDialog extends ChainableAction<File, File> implements AdapterView.OnItemSelectedListener, View.OnClickListener {
 
     private static final FilenameFilter FILTER = new FilenameFilter() {
         @Override
         public boolean accept(File file, String s) {
-            return s.toLowerCase().endsWith(".csv");
+            return getBaseNameLength(s.toLowerCase()) != -1;
         }
     };
 
@@ -45,9 +54,30 @@ public class FileChooserDialog extends ChainableAction<File, File> implements Ad
     private File[] selectableFiles;
     private int selectedItem;
     private Dialog dialog;
+    /**
+     * Reads the summaries of the listed files, it is cancelled when the dialog is dismissed
+     */
+    @Nullable
+    private SummaryTask summaryTask;
+    /**
+     * The format to read the summaries of the listed files with, or null to list only the file names
+     */
+    @Nullable
+    private final CSVFormat summaryFormat;
 
     public FileChooserDialog(@Nullable ChainableAction<File, ?> next) {
+        this(next, null);
+    }
+
+    /**
+     * Creates a file chooser that shows the amount of players and games of every listed file
+     *
+     * @param next          The next action
+     * @param summaryFormat The format of the listed files, see {@link SessionSummary}
+     */
+    public FileChooserDialog(@Nullable ChainableAction<File, ?> next, @Nullable CSVFormat summaryFormat) {
         super(next);
+        this.summaryFormat = summaryFormat;
     }
 
     @Override
@@ -59,14 +89,30 @@ public class FileChooserDialog extends ChainableAction<File, File> implements Ad
         builder.setView(dialogView);
         selectableFiles = getSelectableFiles(input);
         Spinner spinner = (Spinner) dialogView.findViewById(R.id.DialogFileChooser_spinner);
+        String[] names = getFilenames(selectableFiles);
+        List<String> labels = new ArrayList<>(Arrays.asList(names));
         ArrayAdapter<String> adapter = new ArrayAdapter<String>(activity,
-                android.R.layout.simple_spinner_dropdown_item, getFilenames(selectableFiles));
+                android.R.layout.simple_spinner_dropdown_item, labels);
         spinner.setAdapter(adapter);
+        if (summaryFormat != null) {
+            summaryTask = new SummaryTask(selectableFiles, names, summaryFormat, labels, adapter);
+            summaryTask.execute();
+        }
         spinner.setOnItemSelectedListener(this);
 
         Button confirmButton = (Button) dialogView.findViewById(R.id.DialogFileChooser_btn_confirm);
         confirmButton.setOnClickListener(this);
         confirmButton.setEnabled(selectableFiles.length > 0);
+        builder.setOnDismissListener(new DialogInterface.OnDismissListener() {
+            @Override
+            public void onDismiss(DialogInterface dialogInterface) {
+                if (summaryTask != null) {
+                    //the summaries of the remaining files are not read any more
+                    summaryTask.cancel(false);
+                    summaryTask = null;
+                }
+            }
+        });
         dialog = builder.show();
     }
 
@@ -94,12 +140,86 @@ public class FileChooserDialog extends ChainableAction<File, File> implements Ad
         }
     }
 
+    /**
+     * @param fileName The lower case name of a file
+     * @return The length of the name without the .csv extension and the extension of its compression,
+     * or -1 if it is not a csv file
+     */
+    private static int getBaseNameLength(String fileName) {
+        for (CSVFormat.Compression compression : CSVFormat.Compression.values()) {
+            String extension = ".csv" + compression.getFileExtension();
+            if (fileName.endsWith(extension)) {
+                return fileName.length() - extension.length();
+            }
+        }
+        return -1;
+    }
+
+    private String getLabel(File file, String name, CSVFormat format) {
+        try {
+            SessionSummary summary = SessionSummary.readFrom(file, format);
+            return String.format(activity.getString(R.string.DialogFileChooser_summary_text), name,
+                    summary.getPlayerNames().size(), summary.getGameAmount());
+        } catch (IOException | SessionDataCorruptedException e) {
+            return String.format(activity.getString(R.string.DialogFileChooser_summary_unreadable), name);
+        }
+    }
+
     private String[] getFilenames(File[] files) {
         String[] names = new String[files.length];
         for (int i = 0; i < names.length; ++i) {
             String fn = files[i].getName();
-            names[i] = fn.substring(0, fn.length() - ".csv".length());//set name without .csv extension
+            names[i] = fn.substring(0, getBaseNameLength(fn.toLowerCase()));//set name without .csv extension
         }
         return names;
     }
+
+    /**
+     * Reads the summaries of the given files in the background (see {@link AsyncTask#execute}, which runs
+     * the tasks of all dialogs one after another on a shared thread). The label of every file is replaced on
+     * the ui thread as soon as its summary is read, so the dialog is shown without waiting for the files
+     */
+    private final class SummaryTask extends AsyncTask<Void, String, Void> {
+        private final File[] files;
+        private final String[] names;
+        private final CSVFormat format;
+        private final List<String> labels;
+        private final ArrayAdapter<String> adapter;
+        /**
+         * The position of the file whose label is published next
+         */
+        private int next;
+
+        /**
+         * @param files   The listed files
+         * @param names   The names of the files, without extension
+         * @param format  The format of the files
+         * @param labels  The labels shown by the adapter
+         * @param adapter The adapter showing the labels of the files
+         */
+        SummaryTask(File[] files, String[] names, CSVFormat format, List<String> labels, ArrayAdapter<String> adapter) {
+            this.files = files;
+            this.names = names;
+            this.format = format;
+            this.labels = labels;
+            this.adapter = adapter;
+        }
+
+        @Override
+        protected Void doInBackground(Void... voids) {
+            for (int i = 0; i < files.length && !isCancelled(); i++) {
+                publishProgress(getLabel(files[i], names[i], format));
+            }
+            return null;
+        }
+
+        @Override
+        protected void onProgressUpdate(String... readLabels) {
+            for (String label : readLabels) {
+                labels.set(next, label);
+                next++;
+            }
+            adapter.notifyDataSetChanged();
+        }
+    }
 }
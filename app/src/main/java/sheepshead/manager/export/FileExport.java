@@ -22,14 +22,13 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Collections;
 
 import sheepshead.manager.R;
 import sheepshead.manager.appcore.ActivityDescriptor;
 import sheepshead.manager.appcore.SheepsheadManagerApplication;
 import sheepshead.manager.serialization.CSVFormat;
-import sheepshead.manager.serialization.SessionCSVWriter;
 import sheepshead.manager.serialization.SessionDataCorruptedException;
 import sheepshead.manager.session.Session;
 import sheepshead.manager.uicontrolutils.DialogUtils;
@@ -37,7 +36,8 @@ import sheepshead.manager.uicontrolutils.DialogUtils;
 
 /**
  * A chainable export action that exports a session with a certain csv format to a certain file path.
- * The exported file is passed to the next chain element
+ * The exported file is passed to the next chain element. See {@link MultiFileExport} for exporting into
+ * several files at once
  */
 public class FileExport extends ChainableAction<FileExport.ExportParams, File> {
 
@@ -48,20 +48,6 @@ public class FileExport extends ChainableAction<FileExport.ExportParams, File> {
         super(next);
     }
 
-    private static void saveSessionTo(@NonNull Session session, @NonNull File file, @NonNull CSVFormat format) {
-        SessionCSVWriter writer = new SessionCSVWriter(format);
-        try {
-            FileOutputStream fos = new FileOutputStream(file);
-            writer.writeOut(session, fos);
-            fos.close();
-        } catch (IOException e) {
-            int bytes = writer.getBytesWritten();
-            throw new RuntimeException("Couldn't save session (I/O Error). Wrote " + bytes + "Bytes", e);
-        } catch (SessionDataCorruptedException e) {
-            throw new RuntimeException("Cannot save session due to ", e);
-        }
-    }
-
     /**
      * Creates and returns a menu action that saves the current session.
      * This first opens a dialog where the user can name the file, it is then exported to <code>saveDirName/filename_by_user</code>
@@ -76,8 +62,10 @@ public class FileExport extends ChainableAction<FileExport.ExportParams, File> {
                 File saveDir = new File(activity.getFilesDir(), saveDirName);
                 Session session = SheepsheadManagerApplication.getInstance().getCurrentSession();
                 if (session != null) {
+                    //archived sessions are only read by this app, so they are compressed
+                    CSVFormat archiveFormat = SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT.withCompression(CSVFormat.Compression.GZIP);
                     new FileNameDialog("csv", new FileExport(null))
-                            .startActionChain(new ExportParams(saveDir, session, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT), activity);
+                            .startActionChain(new ExportParams(saveDir, session, archiveFormat), activity);
                 } else {
                     DialogUtils.showInfoDialog(activity, activity.getString(R.string.Menu_no_session_available), activity.getString(android.R.string.ok), null);
                 }
@@ -88,12 +76,11 @@ public class FileExport extends ChainableAction<FileExport.ExportParams, File> {
 
     @Override
     public void performAction(ExportParams params, Activity activity) {
-        params.exportDestination.delete();
-        params.exportDestination.getParentFile().mkdirs();
         try {
-            saveSessionTo(params.exportSession, params.exportDestination, params.exportRules);
+            //written to a temporary file first, so an existing file is only replaced by a complete export
+            MultiFileExport.export(Collections.singletonList(params));
             nextAction(params.exportDestination, activity);
-        } catch (RuntimeException e) {
+        } catch (IOException | SessionDataCorruptedException e) {
             DialogUtils.showErrorDialog(activity, e, null);
         }
     }
@@ -120,6 +107,21 @@ public class FileExport extends ChainableAction<FileExport.ExportParams, File> {
             exportDestination = newDestination;
         }
 
+        Session getExportSession() {
+            return exportSession;
+        }
+
+        /**
+         * Appends the extension of the compression of the format to the destination, if it is missing.
+         * Compressed files are named e.g. session.csv.gz
+         */
+        void applyCompressionExtension() {
+            String extension = exportRules.getCompression().getFileExtension();
+            if (!exportDestination.getName().endsWith(extension)) {
+                exportDestination = new File(exportDestination.getPath() + extension);
+            }
+        }
+
         public CSVFormat getCSVRules() {
             return exportRules;
         }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.export;
+
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import sheepshead.manager.serialization.CSVFormat;
+import sheepshead.manager.serialization.SerializationActions;
+import sheepshead.manager.serialization.SessionDataCorruptedException;
+import sheepshead.manager.serialization.SessionFanOut;
+import sheepshead.manager.session.Session;
+import sheepshead.manager.uicontrolutils.DialogUtils;
+
+/**
+ * A chainable export action that exports a session into its destination and, in the same pass, into further
+ * files with their own formats (e.g. an archive copy next to an email attachment). The session is iterated
+ * only once (see {@link SessionFanOut}). Like {@link FileExport}, every file is written to a temporary file
+ * first and only replaces an existing file when all files were written.
+ * The file of the received parameters is passed to the next chain element
+ */
+public class MultiFileExport extends ChainableAction<FileExport.ExportParams, File> {
+
+    /**
+     * The further exports of the session
+     */
+    private final List<FileExport.ExportParams> alongside;
+
+    /**
+     * @param next      The next chain element, or null if this is supposed to be the last element
+     * @param alongside Further exports of the same session that are written with the received one
+     */
+    public MultiFileExport(@Nullable ChainableAction<File, ?> next, @NonNull FileExport.ExportParams... alongside) {
+        super(next);
+        this.alongside = Arrays.asList(alongside);
+    }
+
+    /**
+     * Exports the session of the given parameters into all destinations
+     *
+     * @param targets The destinations and formats, all for the same session
+     * @throws IOException                   When writing a file produced IO errors
+     * @throws SessionDataCorruptedException When the session cannot be serialized
+     * @throws IllegalArgumentException      If the targets export different sessions
+     */
+    static void export(@NonNull List<FileExport.ExportParams> targets) throws IOException, SessionDataCorruptedException {
+        if (targets.isEmpty()) {
+            return;
+        }
+        Session session = targets.get(0).getExportSession();
+        List<File> files = new ArrayList<>(targets.size());
+        List<CSVFormat> formats = new ArrayList<>(targets.size());
+        for (FileExport.ExportParams target : targets) {
+            if (target.getExportSession() != session) {
+                throw new IllegalArgumentException("All exports must be of the same session");
+            }
+            target.applyCompressionExtension();
+            File file = target.getExportDestination();
+            file.getParentFile().mkdirs();
+            files.add(file);
+            formats.add(target.getCSVRules());
+        }
+        SerializationActions.saveSession(files, session, formats);
+    }
+
+    @Override
+    protected void performAction(FileExport.ExportParams input, Activity activity) {
+        List<FileExport.ExportParams> targets = new ArrayList<>(alongside.size() + 1);
+        targets.add(input);
+        targets.addAll(alongside);
+        try {
+            export(targets);
+        } catch (IOException | SessionDataCorruptedException | IllegalArgumentException e) {
+            DialogUtils.showErrorDialog(activity, e, null);
+            return;
+        }
+        nextAction(input.getExportDestination(), activity);
+    }
+}
@@ -30,15 +30,21 @@ import java.util.Iterator;
 import sheepshead.manager.R;
 import sheepshead.manager.appcore.ActivityDescriptor;
 import sheepshead.manager.appcore.SheepsheadManagerApplication;
-import sheepshead.manager.game.Player;
+import sheepshead.manager.serialization.CSVFormat;
+import sheepshead.manager.serialization.ISessionReader;
+import sheepshead.manager.serialization.MappedSessionCSVReader;
+import sheepshead.manager.serialization.ParallelSessionCSVReader;
 import sheepshead.manager.serialization.SerializationActions;
 import sheepshead.manager.serialization.SessionDataCorruptedException;
+import sheepshead.manager.serialization.SessionSummary;
+import sheepshead.manager.session.InternalSessionReader;
 import sheepshead.manager.session.Session;
 import sheepshead.manager.uicontrolutils.DialogUtils;
 
 public class SessionImport extends ChainableAction<File, Void> implements DialogInterface.OnClickListener {
 
-    private Session loadedSession;
+    private File selectedFile;
+    private SessionSummary summary;
     private Dialog dialog;
     private Activity activity;
 
@@ -51,7 +57,7 @@ public class SessionImport extends ChainableAction<File, Void> implements Dialog
             @Override
             public void onAction(Activity activity) {
                 File dir = new File(activity.getFilesDir(), saveDir);
-                new FileChooserDialog(new SessionImport()).startActionChain(dir, activity);
+                new FileChooserDialog(new SessionImport(), SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT).startActionChain(dir, activity);
             }
         };
     }
@@ -59,18 +65,44 @@ public class SessionImport extends ChainableAction<File, Void> implements Dialog
     @Override
     protected void performAction(File input, Activity activity) {
         this.activity = activity;
+        selectedFile = input;
         try {
-            loadedSession = SerializationActions.loadSession(input, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+            //only the header is read for the dialog, the session is loaded when the user confirms
+            summary = SessionSummary.readFrom(input, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
             showSessionInfo(activity);
         } catch (IOException e) {
-            String message = String.format(activity.getString(R.string.SessionImport_text_io_exception), input.getName(), e.getMessage());
-            DialogUtils.showInfoDialog(activity, message, activity.getString(android.R.string.ok), null);
+            showIOError(input, e);
         } catch (SessionDataCorruptedException e) {
-            String message = String.format(activity.getString(R.string.SessionImport_text_session_corrupted), e.getMessage());
-            DialogUtils.showInfoDialog(activity, message, activity.getString(android.R.string.ok), null);
+            showCorruptedError(e);
         }
     }
 
+    private void showIOError(File file, IOException e) {
+        String message = String.format(activity.getString(R.string.SessionImport_text_io_exception), file.getName(), e.getMessage());
+        DialogUtils.showInfoDialog(activity, message, activity.getString(android.R.string.ok), null);
+    }
+
+    private void showCorruptedError(SessionDataCorruptedException e) {
+        String message = String.format(activity.getString(R.string.SessionImport_text_session_corrupted), e.getMessage());
+        DialogUtils.showInfoDialog(activity, message, activity.getString(android.R.string.ok), null);
+    }
+
+    /**
+     * Decodes the games of large imports on all processors, on single core devices the mapped reader
+     * avoids the overhead of the chunks.
+     * The import runs on its own thread, so it gets its own {@link InternalSessionReader} instead of sharing the
+     * stateful reader of {@link SheepsheadManagerApplication#INTERNAL_LOAD_SAVE_FORMAT}
+     *
+     * @return the reader for the imported file
+     */
+    private static ISessionReader createImportReader() {
+        CSVFormat format = SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT.withReader(new InternalSessionReader());
+        if (Runtime.getRuntime().availableProcessors() > 1) {
+            return new ParallelSessionCSVReader(format);
+        }
+        return new MappedSessionCSVReader(format);
+    }
+
     private void showSessionInfo(Activity activity) {
         AlertDialog.Builder builder = new AlertDialog.Builder(activity);
         builder.setTitle(R.string.SessionImport_dialog_title);
@@ -78,9 +110,9 @@ public class SessionImport extends ChainableAction<File, Void> implements Dialog
         if (SheepsheadManagerApplication.getInstance().getCurrentSession() != null) {
             progressWarning = activity.getString(R.string.SessionImport_dialog_unsaved_progress_warning);
         }
-        int anzPlayer = loadedSession.getPlayers().size();
-        int anzGames = loadedSession.getGameAmount();
-        String playerNames = getPlayerNames(loadedSession.getPlayers());
+        int anzPlayer = summary.getPlayerNames().size();
+        int anzGames = summary.getGameAmount();
+        String playerNames = getPlayerNames(summary.getPlayerNames());
         String message = String.format(activity.getString(R.string.SessionImport_dialog_messsage), anzPlayer, playerNames, anzGames, progressWarning);
         builder.setMessage(message);
         builder.setPositiveButton(R.string.SessionImport_dialog_confirm, this);
@@ -90,23 +122,58 @@ public class SessionImport extends ChainableAction<File, Void> implements Dialog
 
     @Override
     public void onClick(DialogInterface dialogInterface, int which) {
+        dialog.dismiss();
         if (which == DialogInterface.BUTTON_POSITIVE) {
-            //set loaded session
-            SheepsheadManagerApplication.getInstance().setCurrentSession(loadedSession);
+            //large imports take a while, so the file is read in a separate worker thread
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    importSelectedFile();
+                }
+            }).start();
+        }
+    }
+
+    /**
+     * Loads the selected file and makes it the current session on the ui thread. Errors are shown on the ui
+     * thread as well
+     */
+    private void importSelectedFile() {
+        try {
+            final Session loadedSession = SerializationActions.loadSession(selectedFile, createImportReader());
+            activity.runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    SheepsheadManagerApplication.getInstance().setCurrentSession(loadedSession);
+                }
+            });
+        } catch (final IOException e) {
+            activity.runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    showIOError(selectedFile, e);
+                }
+            });
+        } catch (final SessionDataCorruptedException e) {
+            activity.runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    showCorruptedError(e);
+                }
+            });
         }
-        dialog.dismiss();
     }
 
-    private String getPlayerNames(Collection<Player> players) {
+    private String getPlayerNames(Collection<String> players) {
         StringBuilder b = new StringBuilder();
-        Iterator<Player> it = players.iterator();
+        Iterator<String> it = players.iterator();
         if (it.hasNext()) {
-            b.append(it.next().getName());
+            b.append(it.next());
         }
         while (it.hasNext()) {
             b.append(',');
             b.append(' ');
-            b.append(it.next().getName());
+            b.append(it.next());
         }
         return b.toString();
     }
@@ -23,6 +23,7 @@ import java.io.Serializable;
 
 import sheepshead.manager.R;
 import sheepshead.manager.serialization.CSVCellContent;
+import sheepshead.manager.serialization.CSVLayout;
 import sheepshead.manager.session.ICSVSerializable;
 
 /**
@@ -37,6 +38,13 @@ public enum GameType implements Serializable, ICSVSerializable {
     SOLO(3, 3, 8, 1, R.string.GameType_SOLO),
     LEER(1, -1, -1, -1, R.string.GameType_LEER);
 
+    private static final CSVLayout.Builder CSV_FIELDS = CSVLayout.builder("GameType");
+    private static final CSVLayout.Field ORDINAL = CSV_FIELDS.integer("ordinal");
+    /**
+     * The entries of the csv representation
+     */
+    public static final CSVLayout CSV_LAYOUT = CSV_FIELDS.build();
+
     private int teamMultiplier;
 
     /**
@@ -74,7 +82,8 @@ public enum GameType implements Serializable, ICSVSerializable {
      * @return the game type encoded in the given csv data cell
      */
     public static GameType getGameType(CSVCellContent.Reader data) {
-        int index = data.getInteger();
+        int index = data.begin(CSV_LAYOUT).getInteger(ORDINAL);
+        data.end();
         return GameType.values()[index];
     }
 
@@ -105,7 +114,9 @@ public enum GameType implements Serializable, ICSVSerializable {
 
     @Override
     public void toCSVSerializableString(CSVCellContent content) {
-        content.put(ordinal());
+        content.begin(CSV_LAYOUT);
+        content.put(ORDINAL, ordinal());
+        content.end();
     }
 
     /**
@@ -23,6 +23,11 @@ package sheepshead.manager.game;
  */
 public class Player {
 
+    /**
+     * The id of players that do not belong to a session
+     */
+    public static final int NO_ID = -1;
+
     /**
      * Name of the player which is unique in the session
      */
@@ -34,13 +39,30 @@ public class Player {
     private int sessionMoney;
 
     /**
-     * Creates a new player with the given name.
+     * Dense, session local id of this player (0, 1, 2, ... in the order of the players in the session)
+     */
+    private final int id;
+
+    /**
+     * Creates a new player with the given name that does not belong to a session.
      * Note that the name must be unique in the session
      *
      * @param name The name of this player
      */
     public Player(String name) {
+        this(name, NO_ID);
+    }
+
+    /**
+     * Creates a new player with the given name and session local id.
+     * Note that the name must be unique in the session
+     *
+     * @param name The name of this player
+     * @param id   The id assigned by the session
+     */
+    public Player(String name, int id) {
         this.name = name;
+        this.id = id;
         sessionMoney = 0;
     }
 
@@ -51,6 +73,13 @@ public class Player {
         return name;
     }
 
+    /**
+     * @return The session local id of this player, or {@link #NO_ID}
+     */
+    public int getId() {
+        return id;
+    }
+
     /**
      * @return The current balance of the player
      */
@@ -20,6 +20,7 @@ package sheepshead.manager.game;
 import android.support.annotation.NonNull;
 
 import sheepshead.manager.serialization.CSVCellContent;
+import sheepshead.manager.serialization.CSVLayout;
 import sheepshead.manager.session.ICSVSerializable;
 
 /**
@@ -29,6 +30,16 @@ import sheepshead.manager.session.ICSVSerializable;
  */
 public class PlayerRole implements ICSVSerializable {
 
+    private static final CSVLayout.Builder CSV_FIELDS = CSVLayout.builder("PlayerRole");
+    private static final CSVLayout.Field CALLER = CSV_FIELDS.bool("caller");
+    private static final CSVLayout.Field WINNER = CSV_FIELDS.bool("winner");
+    private static final CSVLayout.Field MONEY = CSV_FIELDS.integer("money");
+    private static final CSVLayout.Field BALANCE = CSV_FIELDS.integer("balance");
+    /**
+     * The entries of the csv representation
+     */
+    public static final CSVLayout CSV_LAYOUT = CSV_FIELDS.build();
+
     /**
      * The connected session persistent player
      */
@@ -74,18 +85,20 @@ public class PlayerRole implements ICSVSerializable {
      * @param data             A readonly csv data cell encoding a player role
      */
     public PlayerRole(@NonNull Player associatedPlayer, CSVCellContent.Reader data) {
-        this(associatedPlayer, data.getBoolean(), data.getBoolean());
-        setMoney(data.getInteger());
-        setPlayerBalance(data.getInteger());
+        this(associatedPlayer, data.begin(CSV_LAYOUT).getBoolean(CALLER), data.getBoolean(WINNER));
+        setMoney(data.getInteger(MONEY));
+        setPlayerBalance(data.getInteger(BALANCE));
+        data.end();
     }
 
     @Override
     public void toCSVSerializableString(CSVCellContent content) {
-        //watch out! the order is important!
-        content.put(isCaller);
-        content.put(isWinner);
-        content.put(moneyWon);
-        content.put(balance);
+        content.begin(CSV_LAYOUT);
+        content.put(CALLER, isCaller());
+        content.put(WINNER, isWinner());
+        content.put(MONEY, getMoney());
+        content.put(BALANCE, getPlayerBalance());
+        content.end();
     }
 
     /**
@@ -139,6 +152,6 @@ public class PlayerRole implements ICSVSerializable {
 
     @Override
     public String toString() {
-        return player + " isCaller=" + isCaller + ", isWinner=" + isWinner;
+        return getPlayer() + " isCaller=" + isCaller() + ", isWinner=" + isWinner();
     }
 }
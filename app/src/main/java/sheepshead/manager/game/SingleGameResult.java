@@ -39,6 +39,18 @@ public class SingleGameResult {
 
     private StakeModifier stakeModifier;
 
+    /**
+     * The participating roles indexed by the id of their player (see {@link Player#getId()}),
+     * or null if a participating player has no id
+     */
+    private
+    @Nullable
+    PlayerRole[] seatTable;
+
+    /**
+     * Bit i is set if the player with id i participates
+     */
+    private long participantMask;
 
     /**
      * Bei neuem Spiel: Wer spielt mit, welcher GameType, wer mit wem, wie ging das Spiel aus, welcher Spieler kriegt/verliert wieviel
@@ -49,6 +61,7 @@ public class SingleGameResult {
             throw new IllegalArgumentException("The amount of players must exactly be the amount of players per game");
         }
         participants = playerList;
+        createSeatTable();
 
         this.gameType = gameType;
 
@@ -56,6 +69,26 @@ public class SingleGameResult {
 
     }
 
+    private void createSeatTable() {
+        int maxId = Player.NO_ID;
+        for (PlayerRole role : participants) {
+            int id = role.getPlayer().getId();
+            if (id == Player.NO_ID) {
+                //players without session -> look up roles by scanning the participants
+                return;
+            }
+            maxId = Math.max(maxId, id);
+        }
+        seatTable = new PlayerRole[maxId + 1];
+        for (PlayerRole role : participants) {
+            int id = role.getPlayer().getId();
+            seatTable[id] = role;
+            if (id < Long.SIZE) {
+                participantMask |= 1L << id;
+            }
+        }
+    }
+
     public void calculate(Stake stake) {
         int winLoseMultiplier;
 
@@ -111,9 +144,18 @@ public class SingleGameResult {
         return participants;
     }
 
+    /**
+     * @param p a player
+     * @return The role of the given player in this game, or null if the player did not participate
+     */
     public
     @Nullable
     PlayerRole findRole(Player p) {
+        int id = p.getId();
+        if (seatTable != null && id != Player.NO_ID) {
+            PlayerRole role = id < seatTable.length ? seatTable[id] : null;
+            return role != null && role.getPlayer() == p ? role : null;
+        }
         for (PlayerRole role : participants) {
             if (role.getPlayer() == p) {
                 return role;
@@ -122,6 +164,16 @@ public class SingleGameResult {
         return null;
     }
 
+    /**
+     * Returns the participating players as bitmask: Bit i is set if the player with id i participates.
+     * Only players with ids below 64 are contained
+     *
+     * @return the participating players
+     */
+    public long getParticipantMask() {
+        return participantMask;
+    }
+
     public GameType getGameType() {
         return gameType;
     }
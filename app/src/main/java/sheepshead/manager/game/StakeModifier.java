@@ -17,6 +17,7 @@
 package sheepshead.manager.game;
 
 import sheepshead.manager.serialization.CSVCellContent;
+import sheepshead.manager.serialization.CSVLayout;
 import sheepshead.manager.session.ICSVSerializable;
 
 /**
@@ -25,6 +26,33 @@ import sheepshead.manager.session.ICSVSerializable;
  */
 public class StakeModifier implements ICSVSerializable {
 
+    /**
+     * Bit flags of the packed word representation (see {@link #getPackedWord()})
+     */
+    public static final int FLAG_KONTRA = 1;
+    public static final int FLAG_RE = 1 << 1;
+    public static final int FLAG_TOUT = 1 << 2;
+    public static final int FLAG_SIE = 1 << 3;
+    public static final int FLAG_SCHNEIDER = 1 << 4;
+    public static final int FLAG_SCHWARZ = 1 << 5;
+    /**
+     * The number of "Laufende" is stored in the bits above this shift
+     */
+    public static final int LAUFENDE_SHIFT = 8;
+
+    private static final CSVLayout.Builder CSV_FIELDS = CSVLayout.builder("StakeModifier");
+    private static final CSVLayout.Field KONTRA = CSV_FIELDS.bool("kontra");
+    private static final CSVLayout.Field RE = CSV_FIELDS.bool("re");
+    private static final CSVLayout.Field TOUT = CSV_FIELDS.bool("tout");
+    private static final CSVLayout.Field SIE = CSV_FIELDS.bool("sie");
+    private static final CSVLayout.Field SCHNEIDER = CSV_FIELDS.bool("schneider");
+    private static final CSVLayout.Field SCHWARZ = CSV_FIELDS.bool("schwarz");
+    private static final CSVLayout.Field LAUFENDE = CSV_FIELDS.integer("laufende");
+    /**
+     * The entries of the csv representation
+     */
+    public static final CSVLayout CSV_LAYOUT = CSV_FIELDS.build();
+
     private boolean isKontra;
 
     private boolean isRe;
@@ -60,25 +88,72 @@ public class StakeModifier implements ICSVSerializable {
 
     public StakeModifier(CSVCellContent.Reader data) {
         this();
-        setKontra(data.getBoolean());
-        setRe(data.getBoolean());
-        setTout(data.getBoolean());
-        setSie(data.getBoolean());
-        setSchneider(data.getBoolean());
-        setSchwarz(data.getBoolean());
-        setNumberOfLaufende(data.getInteger());
+        data.begin(CSV_LAYOUT);
+        setKontra(data.getBoolean(KONTRA));
+        setRe(data.getBoolean(RE));
+        setTout(data.getBoolean(TOUT));
+        setSie(data.getBoolean(SIE));
+        setSchneider(data.getBoolean(SCHNEIDER));
+        setSchwarz(data.getBoolean(SCHWARZ));
+        setNumberOfLaufende(data.getInteger(LAUFENDE));
+        data.end();
     }
 
     @Override
     public void toCSVSerializableString(CSVCellContent content) {
-        // The order is important!
-        content.put(isKontra);
-        content.put(isRe);
-        content.put(isTout);
-        content.put(isSie);
-        content.put(isSchneider);
-        content.put(isSchwarz);
-        content.put(numberOfLaufende);
+        content.begin(CSV_LAYOUT);
+        content.put(KONTRA, isKontra);
+        content.put(RE, isRe);
+        content.put(TOUT, isTout);
+        content.put(SIE, isSie);
+        content.put(SCHNEIDER, isSchneider);
+        content.put(SCHWARZ, isSchwarz);
+        content.put(LAUFENDE, numberOfLaufende);
+        content.end();
+    }
+
+    /**
+     * Packs all modifiers into one int. The flags are stored in the lower bits (see FLAG_*),
+     * the number of "Laufende" above {@link #LAUFENDE_SHIFT}
+     *
+     * @return The packed word
+     */
+    public int getPackedWord() {
+        int word = numberOfLaufende << LAUFENDE_SHIFT;
+        if (isKontra) {
+            word |= FLAG_KONTRA;
+        }
+        if (isRe) {
+            word |= FLAG_RE;
+        }
+        if (isTout) {
+            word |= FLAG_TOUT;
+        }
+        if (isSie) {
+            word |= FLAG_SIE;
+        }
+        if (isSchneider) {
+            word |= FLAG_SCHNEIDER;
+        }
+        if (isSchwarz) {
+            word |= FLAG_SCHWARZ;
+        }
+        return word;
+    }
+
+    /**
+     * Sets all modifiers from the given packed word
+     *
+     * @param word A word created by {@link #getPackedWord()}
+     */
+    public void setPackedWord(int word) {
+        isKontra = (word & FLAG_KONTRA) != 0;
+        isRe = (word & FLAG_RE) != 0;
+        isTout = (word & FLAG_TOUT) != 0;
+        isSie = (word & FLAG_SIE) != 0;
+        isSchneider = (word & FLAG_SCHNEIDER) != 0;
+        isSchwarz = (word & FLAG_SCHWARZ) != 0;
+        numberOfLaufende = word >>> LAUFENDE_SHIFT;
     }
 
     public boolean isRe() {
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import sheepshead.manager.game.GameType;
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.PlayerRole;
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.game.StakeModifier;
+import sheepshead.manager.session.Session;
+import sheepshead.manager.session.Stake;
+
+/**
+ * Reads a session written by {@link BinarySessionWriter}.
+ * The money stored for each game is compared with the recalculated money, a mismatch is treated as corrupted data
+ */
+public class BinarySessionReader implements ISessionReader {
+
+    private static final GameType[] GAME_TYPES = GameType.values();
+    /**
+     * Upper bound for the encoded length of a player name, longer names are treated as corrupted data
+     */
+    private static final int MAX_NAME_LENGTH = 4096;
+
+    /**
+     * The report for salvage mode, or null if the first damaged game ends reading
+     */
+    @Nullable
+    private final LoadReport report;
+
+    /**
+     * Creates a reader that treats any damaged game as corrupted data
+     */
+    public BinarySessionReader() {
+        this(null);
+    }
+
+    /**
+     * Creates a reader in salvage mode: a game whose stored money does not match is kept with the recalculated
+     * money, a game that cannot be added is skipped. As the games have no fixed length, a game that cannot be
+     * decoded ends reading and the games before it are kept. All problems are recorded in the given report.
+     * A damaged header still ends reading
+     *
+     * @param report Receives the problems, or null to read strictly
+     */
+    public BinarySessionReader(@Nullable LoadReport report) {
+        this.report = report;
+    }
+
+    @Override
+    public Session readFrom(InputStream inputStream) throws IOException, SessionDataCorruptedException {
+        InputStream in = new BufferedInputStream(inputStream);
+        Header header = readHeader(in);
+        Session session;
+        try {
+            session = new Session(header.names, header.stake);
+        } catch (IllegalArgumentException e) {
+            throw new SessionDataCorruptedException("When reading the header: ", e);
+        }
+        Player[] players = session.getPlayers().toArray(new Player[header.names.size()]);
+        int[] money = new int[SingleGameResult.PLAYERS_PER_GAME];
+        //only the announced amount of games is read, so trailing data (like an index) is ignored
+        for (int game = 0; game < header.gameCount; game++) {
+            SingleGameResult result;
+            try {
+                result = readGame(in, game, players, money);
+            } catch (EOFException | SessionDataCorruptedException e) {
+                if (report == null) {
+                    throw e;
+                }
+                report.addSkippedGame(game, "Stopped reading, " + (header.gameCount - game) + " games lost: " + e.getMessage());
+                break;
+            }
+            try {
+                session.addGame(result);
+            } catch (RuntimeException e) {
+                SessionDataCorruptedException corrupted = new SessionDataCorruptedException("When reading game " + game + ": ", e);
+                if (report == null) {
+                    throw corrupted;
+                }
+                report.addSkippedGame(game, corrupted.getMessage());
+                continue;
+            }
+            int seat = 0;
+            for (PlayerRole role : result.getParticipants()) {
+                if (role.getMoney() != money[seat]) {
+                    String message = "Stored money does not match the calculated money in game " + game;
+                    if (report == null) {
+                        throw new SessionDataCorruptedException(message);
+                    }
+                    report.addProblem(game, message);
+                    break;
+                }
+                seat++;
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Reads the header of a binary session file
+     *
+     * @param in The stream positioned at the start of the file
+     * @return the parsed header
+     * @throws IOException                   When reading produced IO errors
+     * @throws SessionDataCorruptedException When the data is not a valid header
+     */
+    static Header readHeader(InputStream in) throws IOException, SessionDataCorruptedException {
+        byte[] magic = new byte[BinarySessionWriter.MAGIC.length];
+        readFully(in, magic);
+        if (!Arrays.equals(magic, BinarySessionWriter.MAGIC)) {
+            throw new SessionDataCorruptedException("Not a binary session file");
+        }
+        int version = readVarint(in);
+        if (version != BinarySessionWriter.VERSION) {
+            throw new SessionDataCorruptedException("Unsupported binary session version " + version);
+        }
+        int playerCount = readVarint(in);
+        if (playerCount < SingleGameResult.PLAYERS_PER_GAME || playerCount > Byte.MAX_VALUE) {
+            throw new SessionDataCorruptedException("Invalid amount of players " + playerCount);
+        }
+        List<String> names = new ArrayList<>(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            int length = readVarint(in);
+            if (length < 0 || length > MAX_NAME_LENGTH) {
+                throw new SessionDataCorruptedException("Invalid name length " + length);
+            }
+            byte[] name = new byte[length];
+            readFully(in, name);
+            names.add(new String(name, BinarySessionWriter.NAME_CHARSET));
+        }
+        Stake stake;
+        try {
+            stake = new Stake(readVarint(in), readVarint(in), readVarint(in));
+        } catch (IllegalArgumentException e) {
+            throw new SessionDataCorruptedException("When reading the header: ", e);
+        }
+        int gameCount = readVarint(in);
+        if (gameCount < 0) {
+            throw new SessionDataCorruptedException("Invalid amount of games " + gameCount);
+        }
+        return new Header(names, stake, gameCount);
+    }
+
+    /**
+     * Reads one game. The returned game is not calculated, the stored money of each seat is returned separately
+     *
+     * @param in      The stream positioned at the start of a game
+     * @param game    The position of the game, used for error messages
+     * @param players The players of the session, indexed by the player dictionary of the header
+     * @param money   Receives the stored money of each seat
+     * @return The game result
+     * @throws IOException                   When reading produced IO errors
+     * @throws SessionDataCorruptedException When the data is not a valid game
+     */
+    static SingleGameResult readGame(InputStream in, int game, Player[] players, int[] money) throws IOException, SessionDataCorruptedException {
+        Player[] seats = new Player[SingleGameResult.PLAYERS_PER_GAME];
+        for (int seat = 0; seat < seats.length; seat++) {
+            int index = readVarint(in);
+            if (index < 0 || index >= players.length) {
+                throw new SessionDataCorruptedException("Invalid player index " + index + " in game " + game);
+            }
+            seats[seat] = players[index];
+        }
+        int roles = readByte(in);
+        int type = readVarint(in);
+        if (type < 0 || type >= GAME_TYPES.length) {
+            throw new SessionDataCorruptedException("Invalid game type " + type + " in game " + game);
+        }
+        StakeModifier modifier = new StakeModifier();
+        int flags = readByte(in);
+        modifier.setPackedWord(flags | (readVarint(in) << StakeModifier.LAUFENDE_SHIFT));
+        for (int seat = 0; seat < money.length; seat++) {
+            money[seat] = readSignedVarint(in);
+        }
+        List<PlayerRole> participants = new ArrayList<>(SingleGameResult.PLAYERS_PER_GAME);
+        for (int seat = 0; seat < seats.length; seat++) {
+            participants.add(new PlayerRole(seats[seat], (roles & (1 << seat)) != 0,
+                    (roles & (1 << (SingleGameResult.PLAYERS_PER_GAME + seat))) != 0));
+        }
+        try {
+            return new SingleGameResult(participants, GAME_TYPES[type], modifier);
+        } catch (IllegalArgumentException e) {
+            throw new SessionDataCorruptedException("When reading game " + game + ": ", e);
+        }
+    }
+
+    static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException("Unexpected end of binary session data");
+        }
+        return b;
+    }
+
+    static void readFully(InputStream in, byte[] buffer) throws IOException {
+        int offset = 0;
+        while (offset < buffer.length) {
+            int read = in.read(buffer, offset, buffer.length - offset);
+            if (read == -1) {
+                throw new EOFException("Unexpected end of binary session data");
+            }
+            offset += read;
+        }
+    }
+
+    static int readVarint(InputStream in) throws IOException, SessionDataCorruptedException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = readByte(in);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SessionDataCorruptedException("Malformed varint");
+    }
+
+    /**
+     * Reads a varint of up to 64 bits, e.g. a file offset
+     */
+    static long readVarLong(InputStream in) throws IOException, SessionDataCorruptedException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SessionDataCorruptedException("Malformed varint");
+    }
+
+    static int readSignedVarint(InputStream in) throws IOException, SessionDataCorruptedException {
+        int zigzag = readVarint(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    /**
+     * The header of a binary session file
+     */
+    static final class Header {
+        final List<String> names;
+        final Stake stake;
+        final int gameCount;
+
+        Header(List<String> names, Stake stake, int gameCount) {
+            this.names = names;
+            this.stake = stake;
+            this.gameCount = gameCount;
+        }
+    }
+}
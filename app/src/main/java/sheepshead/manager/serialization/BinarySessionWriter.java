@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.PlayerRole;
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.game.StakeModifier;
+import sheepshead.manager.session.Session;
+import sheepshead.manager.session.Stake;
+
+/**
+ * Writes a session in a compact binary format, read by {@link BinarySessionReader}.
+ * <br>
+ * All numbers are unsigned LEB128 varints, signed numbers are zigzag encoded before.
+ * <li>Header: the magic bytes {@link #MAGIC}, the {@link #VERSION}, the amount of players followed by
+ * the (utf8, length prefixed) name of each player. This is the player dictionary, games refer to players
+ * by their position in it. Then the 3 values of the {@link Stake} and the amount of games</li>
+ * <li>Each game: for each of the 4 seats the player index, one byte with the caller (bits 0-3) and winner
+ * (bits 4-7) flags of the seats, the game type ordinal, one byte with the modifier flags
+ * (see {@link StakeModifier#getPackedWord()}), the number of "Laufende" and the money of each seat</li>
+ * <li>Optional index: the magic bytes {@link #INDEX_MAGIC}, the index interval K, the amount of entries
+ * and for each K-th game its byte offset (a 64 bit varint) and the balance of every player before that game.
+ * The file ends with the 8 byte offset of the index and the magic bytes {@link #TRAILER_MAGIC}.
+ * Readers that do not know the index stop after the announced amount of games, so they accept files
+ * with an index. See {@link IndexedSessionFile}</li>
+ */
+public class BinarySessionWriter implements ISessionWriter {
+
+    /**
+     * The first bytes of every binary session file
+     */
+    static final byte[] MAGIC = {'S', 'H', 'S', 'B'};
+    /**
+     * The version of the format
+     */
+    static final int VERSION = 1;
+    /**
+     * The first bytes of the index block
+     */
+    static final byte[] INDEX_MAGIC = {'S', 'H', 'S', 'I'};
+    /**
+     * The last bytes of a file with index
+     */
+    static final byte[] TRAILER_MAGIC = {'S', 'H', 'S', 'X'};
+    /**
+     * The size of the trailer (offset of the index + {@link #TRAILER_MAGIC})
+     */
+    static final int TRAILER_SIZE = 8 + 4;
+    /**
+     * The default amount of games between two index entries
+     */
+    public static final int DEFAULT_INDEX_INTERVAL = 64;
+    static final Charset NAME_CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * The amount of games between two index entries, 0 if no index is written
+     */
+    private final int indexInterval;
+
+    /**
+     * Creates a writer that appends an index with an entry for every {@link #DEFAULT_INDEX_INTERVAL}th game
+     */
+    public BinarySessionWriter() {
+        this(DEFAULT_INDEX_INTERVAL);
+    }
+
+    /**
+     * Creates a writer
+     *
+     * @param indexInterval The amount of games between two index entries, 0 to write no index
+     * @throws IllegalArgumentException If the interval is negative
+     */
+    public BinarySessionWriter(int indexInterval) {
+        if (indexInterval < 0) {
+            throw new IllegalArgumentException("The index interval must not be negative");
+        }
+        this.indexInterval = indexInterval;
+    }
+
+    @Override
+    public void writeOut(Session session, OutputStream stream) throws IOException, SessionDataCorruptedException {
+        CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(stream));
+        out.write(MAGIC);
+        writeVarint(out, VERSION);
+        writeVarint(out, session.getPlayers().size());
+        for (Player player : session.getPlayers()) {
+            byte[] name = player.getName().getBytes(NAME_CHARSET);
+            writeVarint(out, name.length);
+            out.write(name);
+        }
+        Stake stake = session.getSessionStake();
+        writeVarint(out, stake.getGrundTarif());
+        writeVarint(out, stake.getSoloTarif());
+        writeVarint(out, stake.getLaufendeTarif());
+        int gameCount = session.getGameAmount();
+        writeVarint(out, gameCount);
+
+        Player[] players = session.getPlayers().toArray(new Player[session.getPlayers().size()]);
+        int entries = indexInterval > 0 ? (gameCount + indexInterval - 1) / indexInterval : 0;
+        long[] offsets = new long[entries];
+        int[] checkpoints = new int[entries * players.length];
+        int[] money = new int[SingleGameResult.PLAYERS_PER_GAME];
+        int gameIndex = 0;
+        Iterator<SingleGameResult> it = session.iterator();
+        while (it.hasNext()) {
+            SingleGameResult game = it.next();
+            if (indexInterval > 0 && gameIndex % indexInterval == 0) {
+                int entry = gameIndex / indexInterval;
+                offsets[entry] = out.getCount();
+                for (int p = 0; p < players.length; p++) {
+                    checkpoints[entry * players.length + p] = session.balanceAt(players[p], gameIndex - 1);
+                }
+            }
+            int roles = 0;
+            int seat = 0;
+            for (PlayerRole role : game.getParticipants()) {
+                int id = role.getPlayer().getId();
+                if (id == Player.NO_ID) {
+                    throw new SessionDataCorruptedException(role.getPlayer() + " is not part of the session");
+                }
+                writeVarint(out, id);
+                if (role.isCaller()) {
+                    roles |= 1 << seat;
+                }
+                if (role.isWinner()) {
+                    roles |= 1 << (SingleGameResult.PLAYERS_PER_GAME + seat);
+                }
+                money[seat] = role.getMoney();
+                seat++;
+            }
+            out.write(roles);
+            writeVarint(out, game.getGameType().ordinal());
+            int modifier = game.getStakeModifier().getPackedWord();
+            out.write(modifier & ((1 << StakeModifier.LAUFENDE_SHIFT) - 1));
+            writeVarint(out, modifier >>> StakeModifier.LAUFENDE_SHIFT);
+            for (int m : money) {
+                writeSignedVarint(out, m);
+            }
+            gameIndex++;
+        }
+        if (indexInterval > 0) {
+            writeIndex(out, offsets, checkpoints, players.length);
+        }
+        out.flush();
+    }
+
+    private void writeIndex(CountingOutputStream out, long[] offsets, int[] checkpoints, int playerCount) throws IOException {
+        long indexOffset = out.getCount();
+        out.write(INDEX_MAGIC);
+        writeVarint(out, indexInterval);
+        writeVarint(out, offsets.length);
+        for (int entry = 0; entry < offsets.length; entry++) {
+            writeVarLong(out, offsets[entry]);
+            for (int p = 0; p < playerCount; p++) {
+                writeSignedVarint(out, checkpoints[entry * playerCount + p]);
+            }
+        }
+        DataOutputStream trailer = new DataOutputStream(out);
+        trailer.writeLong(indexOffset);
+        trailer.write(TRAILER_MAGIC);
+        trailer.flush();
+    }
+
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Writes a varint of up to 64 bits. Values below 2^31 are written like {@link #writeVarint(OutputStream, int)}
+     */
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeSignedVarint(OutputStream out, int value) throws IOException {
+        writeVarint(out, (value << 1) ^ (value >> 31));
+    }
+}
@@ -17,22 +17,22 @@
 package sheepshead.manager.serialization;
 
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
-import java.util.regex.Pattern;
-
 /**
  * A CSVCellContent represents the content of one cell in the csv format.
  * Each cell may contain zero, one or more entries. These entries are separated using a given separator.
  * <br>Use Case: Fill CSVCell<br>
  * Use {@link #put(boolean)},{@link #put(int)} and {@link #put(String)} to fill the cell,<br>
  * Use {@link #consume()} to get a String containing all entries and necessary separators
+ * <br>Use Case: Fill many cells<br>
+ * Use {@link #getContent()} to get the entries without creating a string and {@link #reset()} to fill the
+ * next cell with the same object
  * <br>Use Case: Get CSVCell entries<br>
  * Use {@link #CSVCellContent(String, char)} to parse the content of the given string,<br>
  * Use {@link #getReader()} and {@link Reader#getBoolean()}, {@link Reader#getInteger()}, {@link Reader#getString()}
  * to retrieve the data
+ * <br>Use Case: Read many cells<br>
+ * Use {@link #createReader(char)} once and {@link Reader#reset(CharSequence)} for every cell. The reader parses
+ * the entries directly from the given characters without creating substrings
  */
 public class CSVCellContent {
 
@@ -40,7 +40,27 @@ public class CSVCellContent {
      * The secondary separator, separating each cell entry inside of one cell
      */
     private final char separator;
-    private List<String> contents;
+    /**
+     * The pushed entries joined by the separator, or null after consumption
+     */
+    private StringBuilder contents;
+    /**
+     * The amount of pushed entries
+     */
+    private int entries;
+    /**
+     * The parsed string, or null if this content was created empty
+     */
+    private String data;
+    /**
+     * The layout the current entries are checked against, or null (always null if the layouts are not
+     * {@linkplain CSVLayout#CHECKED checked})
+     */
+    private CSVLayout layout;
+    /**
+     * The amount of entries pushed since {@link #begin(CSVLayout)}
+     */
+    private int layoutPosition;
 
     /**
      * Creates an empty CSVCellContent with the given separator
@@ -49,7 +69,7 @@ public class CSVCellContent {
      */
     public CSVCellContent(char separator) {
         this.separator = separator;
-        contents = new ArrayList<>();
+        contents = new StringBuilder();
     }
 
     /**
@@ -60,8 +80,18 @@ public class CSVCellContent {
      */
     public CSVCellContent(String data, char separator) {
         this(separator);
-        String[] parsed = data.split(Pattern.quote(Character.toString(this.separator)));
-        Collections.addAll(contents, parsed);
+        this.data = data;
+    }
+
+    /**
+     * Creates a reader that is not bound to a cell content, use {@link Reader#reset(CharSequence)} to
+     * let it read the entries of a cell
+     *
+     * @param separator a separation character
+     * @return a reusable reader
+     */
+    public static Reader createReader(char separator) {
+        return new Reader(separator);
     }
 
     private void checkForConsumed() {
@@ -82,9 +112,10 @@ public class CSVCellContent {
      * @param s string to be pushed
      */
     public void put(String s) {
-        checkForConsumed();
+        checkForPut();
         checkForSeparator(s);
-        contents.add(s);
+        startEntry();
+        contents.append(s);
     }
 
     /**
@@ -93,7 +124,9 @@ public class CSVCellContent {
      * @param bool boolean to be pushed
      */
     public void put(boolean bool) {
-        put(Boolean.toString(bool));
+        checkForPut();
+        startEntry();
+        contents.append(bool);
     }
 
     /**
@@ -102,7 +135,114 @@ public class CSVCellContent {
      * @param i integer to be pushed
      */
     public void put(int i) {
-        put(Integer.toString(i));
+        checkForPut();
+        startEntry();
+        contents.append(i);
+    }
+
+    /**
+     * Starts pushing the entries of the given layout. Until {@link #end()}, entries are pushed with
+     * {@link #put(CSVLayout.Field, boolean)} and {@link #put(CSVLayout.Field, int)} in the order of the layout.
+     * The order is only checked if {@link CSVLayout#CHECKED}
+     *
+     * @param layout the layout of the following entries
+     * @throws IllegalStateException If the entries of another layout have not been ended
+     */
+    public void begin(CSVLayout layout) {
+        checkForPut();
+        if (!CSVLayout.CHECKED) {
+            return;
+        }
+        if (this.layout != null) {
+            throw new IllegalStateException("Layout " + this.layout.getName() + " has not been ended");
+        }
+        this.layout = layout;
+        layoutPosition = 0;
+    }
+
+    /**
+     * Pushes the boolean entry of the given field
+     *
+     * @param field the field of the layout given to {@link #begin(CSVLayout)}
+     * @param bool  boolean to be pushed
+     * @throws IllegalStateException If the field is not the next field of the layout
+     */
+    public void put(CSVLayout.Field field, boolean bool) {
+        checkLayout(field, CSVLayout.BOOLEAN);
+        put(bool);
+    }
+
+    /**
+     * Pushes the integer entry of the given field
+     *
+     * @param field the field of the layout given to {@link #begin(CSVLayout)}
+     * @param i     integer to be pushed
+     * @throws IllegalStateException If the field is not the next field of the layout
+     */
+    public void put(CSVLayout.Field field, int i) {
+        checkLayout(field, CSVLayout.INTEGER);
+        put(i);
+    }
+
+    /**
+     * Ends the entries of the layout given to {@link #begin(CSVLayout)}
+     *
+     * @throws IllegalStateException If not all fields of the layout have been pushed
+     */
+    public void end() {
+        if (!CSVLayout.CHECKED) {
+            return;
+        }
+        if (layout == null) {
+            throw new IllegalStateException("No layout has been begun");
+        }
+        layout.checkComplete(layoutPosition);
+        layout = null;
+    }
+
+    private void checkLayout(CSVLayout.Field field, char type) {
+        if (!CSVLayout.CHECKED) {
+            return;
+        }
+        if (layout == null) {
+            throw new IllegalStateException("No layout has been begun");
+        }
+        layout.check(layoutPosition++, field, type);
+    }
+
+    private void checkForPut() {
+        checkForConsumed();
+        if (data != null) {
+            throw new IllegalStateException("This " + CSVCellContent.class.getSimpleName() + " was created from data");
+        }
+    }
+
+    private void startEntry() {
+        if (entries > 0) {
+            contents.append(separator);
+        }
+        entries++;
+    }
+
+    /**
+     * Removes all pushed entries, so that this object can be filled again
+     */
+    public void reset() {
+        checkForPut();
+        contents.setLength(0);
+        entries = 0;
+        layout = null;
+    }
+
+    /**
+     * Returns the pushed entries and necessary separators without consuming this object.
+     * The returned sequence changes when entries are pushed or this object is {@linkplain #reset() reset}
+     *
+     * @return the content of this cell
+     */
+    public CharSequence getContent() {
+        checkForConsumed();
+        return data != null ? data : contents;
     }
 
     /**
@@ -112,40 +252,163 @@ public class CSVCellContent {
      * @return a string containing all pushed entries
      */
     public String consume() {
-        StringBuilder builder = new StringBuilder();
-        Iterator<String> it = contents.iterator();
-        if (it.hasNext()) {
-            builder.append(it.next());
-            while (it.hasNext()) {
-                builder.append(separator);
-                builder.append(it.next());
-            }
+        checkForConsumed();
+        if (data != null) {
+            contents = null;
+            return data;
         }
+        String result = contents.toString();
         contents = null;
-        return builder.toString();
+        return result;
     }
 
     /**
      * @return A reader for this cell content
      */
     public Reader getReader() {
-        return new Reader();
+        checkForConsumed();
+        Reader reader = new Reader(separator);
+        reader.reset(data != null ? data : contents.toString());
+        return reader;
     }
 
     /**
      * Class to access the contents of a {@link CSVCellContent}-Object.
+     * The reader is a cursor over the characters of the cell, each entry is parsed directly between
+     * two separators. Like {@link String#split(String)}, empty entries at the end are ignored.
      */
-    public class Reader {
-        private Iterator<String> it;
+    public static class Reader {
+        private final char separator;
+        private CharSequence data;
+        /**
+         * The start of the next entry
+         */
+        private int position;
+        /**
+         * The end of the last entry
+         */
+        private int end;
+        private boolean exhausted;
+        private CSVLayout layout;
+        private int layoutPosition;
+
+        private Reader(char separator) {
+            this.separator = separator;
+            exhausted = true;
+        }
+
+        /**
+         * Lets this reader read the entries of the given cell from the beginning
+         *
+         * @param cell the content of a cell, entries separated by the separator of this reader
+         * @return this reader
+         */
+        public Reader reset(CharSequence cell) {
+            data = cell;
+            position = 0;
+            end = cell.length();
+            while (end > 0 && cell.charAt(end - 1) == separator) {
+                end--;
+            }
+            //like String#split: an empty cell has one empty entry, a cell of separators has none
+            exhausted = end == 0 && cell.length() > 0;
+            layout = null;
+            return this;
+        }
+
+        /**
+         * Starts reading the entries of the given layout. Until {@link #end()}, entries are read with
+         * {@link #getBoolean(CSVLayout.Field)} and {@link #getInteger(CSVLayout.Field)} in the order of the layout.
+         * The order is only checked if {@link CSVLayout#CHECKED}
+         *
+         * @param layout the layout of the following entries
+         * @return this reader
+         * @throws IllegalStateException If the entries of another layout have not been ended
+         */
+        public Reader begin(CSVLayout layout) {
+            if (!CSVLayout.CHECKED) {
+                return this;
+            }
+            if (this.layout != null) {
+                throw new IllegalStateException("Layout " + this.layout.getName() + " has not been ended");
+            }
+            this.layout = layout;
+            layoutPosition = 0;
+            return this;
+        }
+
+        /**
+         * Reads the boolean entry of the given field, see {@link #getBoolean()}
+         *
+         * @param field the field of the layout given to {@link #begin(CSVLayout)}
+         * @return the entry as a boolean value
+         * @throws IllegalStateException If the field is not the next field of the layout or there is no next entry
+         */
+        public boolean getBoolean(CSVLayout.Field field) {
+            checkLayout(field, CSVLayout.BOOLEAN);
+            return getBoolean();
+        }
 
-        private Reader() {
-            it = contents.iterator();
+        /**
+         * Reads the integer entry of the given field, see {@link #getInteger()}
+         *
+         * @param field the field of the layout given to {@link #begin(CSVLayout)}
+         * @return the entry as an integer value
+         * @throws IllegalStateException If the field is not the next field of the layout or there is no next entry
+         * @throws NumberFormatException If the entry cannot be converted to integer
+         */
+        public int getInteger(CSVLayout.Field field) {
+            checkLayout(field, CSVLayout.INTEGER);
+            return getInteger();
         }
 
-        private void hasNext() {
-            if (!it.hasNext()) {
+        /**
+         * Ends the entries of the layout given to {@link #begin(CSVLayout)}. Additional entries of the cell are
+         * not checked, they may have been written by a newer layout
+         *
+         * @throws IllegalStateException If not all fields of the layout have been read
+         */
+        public void end() {
+            if (!CSVLayout.CHECKED) {
+                return;
+            }
+            if (layout == null) {
+                throw new IllegalStateException("No layout has been begun");
+            }
+            layout.checkComplete(layoutPosition);
+            layout = null;
+        }
+
+        private void checkLayout(CSVLayout.Field field, char type) {
+            if (!CSVLayout.CHECKED) {
+                return;
+            }
+            if (layout == null) {
+                throw new IllegalStateException("No layout has been begun");
+            }
+            layout.check(layoutPosition++, field, type);
+        }
+
+        /**
+         * @return the end of the next entry, the current position if it is empty
+         */
+        private int nextEntryEnd() {
+            if (exhausted) {
                 throw new IllegalStateException("No next content is available");
             }
+            int entryEnd = position;
+            while (entryEnd < end && data.charAt(entryEnd) != separator) {
+                entryEnd++;
+            }
+            return entryEnd;
+        }
+
+        private void advance(int entryEnd) {
+            if (entryEnd >= end) {
+                exhausted = true;
+            } else {
+                position = entryEnd + 1;
+            }
         }
 
         /**
@@ -153,27 +416,65 @@ public class CSVCellContent {
          * @throws IllegalStateException If there is no next entry
          */
         public String getString() {
-            hasNext();
-            return it.next();
+            int entryEnd = nextEntryEnd();
+            String entry = data.subSequence(position, entryEnd).toString();
+            advance(entryEnd);
+            return entry;
         }
 
         /**
-         * The next entry is parsed using {@link Boolean#parseBoolean(String)}
+         * The next entry is parsed like {@link Boolean#parseBoolean(String)}
          *
          * @return the next entry on the stack as a boolean value
          * @throws IllegalStateException If there is no next entry
          */
         public boolean getBoolean() {
-            return Boolean.parseBoolean(getString());
+            int entryEnd = nextEntryEnd();
+            boolean value = entryEnd - position == 4
+                    && Character.toLowerCase(data.charAt(position)) == 't'
+                    && Character.toLowerCase(data.charAt(position + 1)) == 'r'
+                    && Character.toLowerCase(data.charAt(position + 2)) == 'u'
+                    && Character.toLowerCase(data.charAt(position + 3)) == 'e';
+            advance(entryEnd);
+            return value;
         }
 
         /**
+         * The next entry is parsed like {@link Integer#parseInt(String)}
+         *
          * @return the next entry on the stack as an integer value
          * @throws IllegalStateException If there is no next entry
          * @throws NumberFormatException If the entry cannot be converted to integer
          */
         public int getInteger() {
-            return Integer.parseInt(getString());
+            int entryEnd = nextEntryEnd();
+            int i = position;
+            boolean negative = false;
+            if (i < entryEnd && (data.charAt(i) == '-' || data.charAt(i) == '+')) {
+                negative = data.charAt(i) == '-';
+                i++;
+            }
+            long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+            long value = 0;
+            if (i == entryEnd) {
+                throw invalidNumber(entryEnd);
+            }
+            for (; i < entryEnd; i++) {
+                int digit = data.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw invalidNumber(entryEnd);
+                }
+                value = value * 10 + digit;
+                if (value > limit) {
+                    throw invalidNumber(entryEnd);
+                }
+            }
+            advance(entryEnd);
+            return (int) (negative ? -value : value);
+        }
+
+        private NumberFormatException invalidNumber(int entryEnd) {
+            return new NumberFormatException("For input string: \"" + data.subSequence(position, entryEnd) + "\"");
         }
     }
 }
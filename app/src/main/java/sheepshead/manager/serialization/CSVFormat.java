@@ -17,12 +17,26 @@
 package sheepshead.manager.serialization;
 
 
+import android.support.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
 /**
  * Specifies the format for .csv files.
  * It contains:<br>
  * <li>A cell separation character</li>
  * <li>An escape character</li>
  * <li>An encoding</li>
+ * <li>A {@link Compression} of the written data, compressed data is detected automatically when reading</li>
  * <li>A Reader and Writer implementation for the use in the generic {@link SessionCSVReader}/{@link SessionCSVWriter}</li>
  */
 public class CSVFormat {
@@ -51,6 +65,10 @@ public class CSVFormat {
      * A reader implementation for the use in {@link SessionCSVReader}
      */
     private SessionCSVReader.Reader reader;
+    /**
+     * The compression of written data
+     */
+    private Compression compression;
 
     /**
      * Creates a csv format object with the given parameters
@@ -63,6 +81,23 @@ public class CSVFormat {
      * @param reader         A reader implementation for {@link SessionCSVReader}
      */
     public CSVFormat(char separator, char escapeChar, String encoding, boolean quoteEveryCell, SessionCSVWriter.Writer writer, SessionCSVReader.Reader reader) {
+        this(separator, escapeChar, encoding, quoteEveryCell, writer, reader, Compression.NONE);
+    }
+
+    /**
+     * Creates a csv format object with the given parameters
+     *
+     * @param separator      The separation character
+     * @param escapeChar     The escape character
+     * @param encoding       The encoding/charset to be used
+     * @param quoteEveryCell True if every cell should be escaped
+     * @param writer         A writer implementation for {@link SessionCSVWriter}
+     * @param reader         A reader implementation for {@link SessionCSVReader}
+     * @param compression    The compression of the written data
+     */
+    public CSVFormat(char separator, char escapeChar, String encoding, boolean quoteEveryCell, SessionCSVWriter.Writer writer,
+                     SessionCSVReader.Reader reader, @NonNull Compression compression) {
+        this.compression = compression;
         this.separator = separator;
         this.escapeChar = escapeChar;
         this.encoding = encoding;
@@ -112,4 +147,142 @@ public class CSVFormat {
     public SessionCSVReader.Reader getReader() {
         return reader;
     }
+
+    /**
+     * @return The compression of written data
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * @param compression The compression of the written data
+     * @return A copy of this format with the given compression
+     */
+    public CSVFormat withCompression(@NonNull Compression compression) {
+        return new CSVFormat(separator, escapeChar, encoding, quoteEveryCell, writer, reader, compression);
+    }
+
+    /**
+     * Readers keep the state of the session they are reading, so a format can only be read by one thread at
+     * a time. Threads reading in parallel use copies with their own reader
+     *
+     * @param reader A reader implementation for {@link SessionCSVReader}
+     * @return A copy of this format with the given reader
+     */
+    public CSVFormat withReader(@NonNull SessionCSVReader.Reader reader) {
+        return new CSVFormat(separator, escapeChar, encoding, quoteEveryCell, writer, reader, compression);
+    }
+
+    /**
+     * The compression of the data written with a format. The internal format repeats the same few
+     * cell contents in every row, so it shrinks several-fold with either compression
+     */
+    public enum Compression {
+        /**
+         * Plain text
+         */
+        NONE(""),
+        /**
+         * gzip (RFC 1952), can be opened by most archive programs
+         */
+        GZIP(".gz"),
+        /**
+         * zlib wrapped deflate (RFC 1950), slightly smaller than gzip
+         */
+        DEFLATE(".zz");
+
+        private final String fileExtension;
+
+        Compression(String fileExtension) {
+            this.fileExtension = fileExtension;
+        }
+
+        /**
+         * @return The extension appended to the name of a file with this compression, empty for {@link #NONE}
+         */
+        public String getFileExtension() {
+            return fileExtension;
+        }
+
+        /**
+         * Wraps the given stream, so that everything written is compressed. The returned stream must be
+         * finished with {@link #finish(OutputStream)}, closing it closes the given stream
+         *
+         * @param out The stream receiving the compressed data
+         * @return a stream compressing its data into the given stream
+         * @throws IOException When writing the header of the compression produced IO errors
+         */
+        OutputStream compress(OutputStream out) throws IOException {
+            switch (this) {
+                case GZIP:
+                    return new GZIPOutputStream(out, 8192);
+                case DEFLATE:
+                    return new DeflaterOutputStream(out, new Deflater(), 8192);
+                default:
+                    return out;
+            }
+        }
+
+        /**
+         * Writes the remaining compressed data without closing the underlying stream
+         *
+         * @param compressed a stream returned by {@link #compress(OutputStream)}
+         * @throws IOException When writing produced IO errors
+         */
+        void finish(OutputStream compressed) throws IOException {
+            if (compressed instanceof DeflaterOutputStream) {
+                ((DeflaterOutputStream) compressed).finish();
+            }
+            compressed.flush();
+        }
+
+        /**
+         * Detects the compression of the given stream by its first bytes (the magic bytes of gzip or the
+         * header of zlib) and wraps the stream to decompress it. Plain text is returned unchanged, but
+         * may be wrapped to read its first bytes twice
+         *
+         * @param in The stream positioned at the start of the data
+         * @return a stream providing the uncompressed data
+         * @throws IOException When reading produced IO errors
+         */
+        public static InputStream decompress(@NonNull InputStream in) throws IOException {
+            if (!in.markSupported()) {
+                in = new BufferedInputStream(in);
+            }
+            in.mark(2);
+            int first = in.read();
+            int second = in.read();
+            in.reset();
+            return detect(first, second).wrapInput(in);
+        }
+
+        /**
+         * @param first  The first byte of the data or -1
+         * @param second The second byte of the data or -1
+         * @return The compression whose header starts with the given bytes
+         */
+        static Compression detect(int first, int second) {
+            if (first == 0x1f && second == 0x8b) {
+                return GZIP;
+            }
+            //zlib headers written by a Deflater (32K window, one per compression level group), other headers
+            //are not accepted, as more of them start with printable characters
+            if (first == 0x78 && (second == 0x01 || second == 0x5e || second == 0x9c || second == 0xda)) {
+                return DEFLATE;
+            }
+            return NONE;
+        }
+
+        private InputStream wrapInput(InputStream in) throws IOException {
+            switch (this) {
+                case GZIP:
+                    return new GZIPInputStream(in, 8192);
+                case DEFLATE:
+                    return new InflaterInputStream(in, new Inflater(), 8192);
+                default:
+                    return in;
+            }
+        }
+    }
 }
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The ordered list of entries a {@link sheepshead.manager.session.ICSVSerializable} puts into a
+ * {@link CSVCellContent}. Encoding and decoding name the same {@link Field} constants in the same order,
+ * and {@link CSVCellContent#begin(CSVLayout)} / {@link CSVCellContent.Reader#begin(CSVLayout)} check each
+ * put/get against the layout, so a codec that writes the entries in a different order than it reads them
+ * fails at the first mismatching entry instead of silently mixing up values. The checks only run when
+ * assertions are enabled (e.g. in the unit tests, see {@link #CHECKED}), so every codec is verified by
+ * its tests while large files are read and written without them.
+ * <br>
+ * The {@linkplain #getHash() hash} changes whenever an entry is added, removed, renamed or moved. It is
+ * stored next to data that is only readable with the exact same layouts (e.g. the journal).
+ */
+public final class CSVLayout {
+
+    /**
+     * Type of an entry holding a boolean
+     */
+    public static final char BOOLEAN = 'Z';
+    /**
+     * Type of an entry holding an integer
+     */
+    public static final char INTEGER = 'I';
+    /**
+     * True if the entries of a {@link CSVCellContent} are checked against their layout. The app runs
+     * without assertions, so the puts and gets of the cells are not slowed down by the checks
+     */
+    static final boolean CHECKED = CSVLayout.class.desiredAssertionStatus();
+
+    private final String name;
+    private final Field[] fields;
+    private final int hash;
+
+    private CSVLayout(String name, List<Field> fields) {
+        this.name = name;
+        this.fields = fields.toArray(new Field[fields.size()]);
+        CRC32 crc = new CRC32();
+        update(crc);
+        hash = (int) crc.getValue();
+    }
+
+    /**
+     * Creates a builder for a layout. The fields must be declared in the order they are put into the cell
+     *
+     * @param name The name of the layout, usually the name of the serialized class
+     * @return a new builder
+     */
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * Combines the hashes of several layouts into one, e.g. of all layouts used by one file format
+     *
+     * @param layouts The layouts in a fixed order
+     * @return the combined hash
+     */
+    public static int combinedHash(CSVLayout... layouts) {
+        CRC32 crc = new CRC32();
+        for (CSVLayout layout : layouts) {
+            layout.update(crc);
+        }
+        return (int) crc.getValue();
+    }
+
+    private void update(CRC32 crc) {
+        StringBuilder descriptor = new StringBuilder(name).append('(');
+        for (Field field : fields) {
+            descriptor.append(field.name).append(':').append(field.type).append(',');
+        }
+        descriptor.append(')');
+        crc.update(descriptor.toString().getBytes(Charset.forName("UTF-8")));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the amount of entries in this layout
+     */
+    public int size() {
+        return fields.length;
+    }
+
+    /**
+     * @param position position of the entry
+     * @return the field at the given position
+     */
+    public Field getField(int position) {
+        return fields[position];
+    }
+
+    /**
+     * @return a hash of the name, the field names and the field types in their order
+     */
+    public int getHash() {
+        return hash;
+    }
+
+    /**
+     * Checks that the given field is the entry at the given position
+     *
+     * @param position the position of the entry that is put or read
+     * @param field    the field that is put or read
+     * @param type     the type of the value that is put or read
+     * @throws IllegalStateException If the field is not expected at this position
+     */
+    void check(int position, Field field, char type) {
+        if (position >= fields.length || fields[position] != field || field.type != type) {
+            String expected = position < fields.length ? fields[position].toString() : "no more entries";
+            throw new IllegalStateException("Layout " + name + ": expected " + expected + " at entry " + position
+                    + " but got " + field + " as " + type);
+        }
+    }
+
+    /**
+     * Checks that all entries of this layout have been put or read
+     *
+     * @param count the amount of entries that have been put or read
+     * @throws IllegalStateException If entries are missing
+     */
+    void checkComplete(int count) {
+        if (count != fields.length) {
+            throw new IllegalStateException("Layout " + name + ": " + count + " of " + fields.length + " entries used");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + "#" + Integer.toHexString(hash);
+    }
+
+    /**
+     * One entry of a layout
+     */
+    public static final class Field {
+        private final String name;
+        private final char type;
+
+        private Field(String name, char type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return {@link #BOOLEAN} or {@link #INTEGER}
+         */
+        public char getType() {
+            return type;
+        }
+
+        @Override
+        public String toString() {
+            return name + ":" + type;
+        }
+    }
+
+    /**
+     * Declares the fields of a layout in order
+     */
+    public static final class Builder {
+        private final String name;
+        private final List<Field> fields = new ArrayList<>();
+        private boolean built;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param fieldName name of the entry
+         * @return the next field, holding a boolean
+         */
+        public Field bool(String fieldName) {
+            return add(new Field(fieldName, BOOLEAN));
+        }
+
+        /**
+         * @param fieldName name of the entry
+         * @return the next field, holding an integer
+         */
+        public Field integer(String fieldName) {
+            return add(new Field(fieldName, INTEGER));
+        }
+
+        private Field add(Field field) {
+            if (built) {
+                throw new IllegalStateException("Layout " + name + " has already been built");
+            }
+            fields.add(field);
+            return field;
+        }
+
+        /**
+         * @return the layout of all declared fields
+         */
+        public CSVLayout build() {
+            built = true;
+            return new CSVLayout(name, fields);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Splits csv-formatted text into cells in a single pass over the characters.
+ * A cell that starts with the escape character is escaped: it ends at the next escape character that is
+ * followed by the separator or the end of the line, so it may contain separators.
+ * Like {@link String#split(String)}, empty cells at the end of a row are dropped.
+ * <br>
+ * The tokenizer reads either rows from a {@link Reader} (see {@link #reset(Reader)} and {@link #readRow(List)}),
+ * rows from UTF-8 encoded bytes (see {@link #reset(ByteBuffer)}) or single lines (see {@link #tokenize(CharSequence, List)}). The cell contents are collected in one
+ * reusable buffer, so besides the cell strings nothing is allocated per row.
+ * An instance must not be used by multiple threads.
+ */
+public class CSVTokenizer {
+
+    private static final int CELL_START = 0;
+    private static final int UNESCAPED = 1;
+    private static final int ESCAPED = 2;
+    /**
+     * An escape character was read in an escaped cell, it either ends the cell or is part of the content
+     */
+    private static final int ESCAPE_SEEN = 3;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final char separator;
+    private final char escape;
+    /**
+     * The content of the current cell
+     */
+    private final StringBuilder cell;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private Reader reader;
+    private CharSequence line;
+    /**
+     * The UTF-8 encoded text, or null if the text is not read from bytes
+     */
+    private ByteBuffer bytes;
+
+    /**
+     * @param separator The separation character
+     * @param escape    The escape character
+     */
+    public CSVTokenizer(char separator, char escape) {
+        this.separator = separator;
+        this.escape = escape;
+        cell = new StringBuilder();
+        buffer = new char[8192];
+    }
+
+    /**
+     * Lets {@link #readRow(List)} read from the given reader
+     *
+     * @param reader The reader containing csv-formatted text
+     */
+    public void reset(@NonNull Reader reader) {
+        this.reader = reader;
+        line = null;
+        bytes = null;
+        position = 0;
+        limit = 0;
+    }
+
+    /**
+     * Lets {@link #readRow(List)} read the UTF-8 (or ASCII) encoded text between the position and the limit of the
+     * given buffer. The separator and the escape character must be ASCII characters. The bytes are split without
+     * decoding them, only cells containing other characters than ASCII are decoded
+     *
+     * @param utf8 The buffer containing csv-formatted text, e.g. a mapped file. Its position is not changed
+     */
+    public void reset(@NonNull ByteBuffer utf8) {
+        reader = null;
+        line = null;
+        bytes = utf8;
+        position = utf8.position();
+        limit = utf8.limit();
+    }
+
+    /**
+     * Reads the next row from the reader
+     *
+     * @param cells Receives the cells of the row, it is cleared first. Empty for an empty line
+     * @return false if the end of the text is reached and no row was read
+     * @throws IOException                   When reading produced IO errors
+     * @throws SessionDataCorruptedException If an escape sequence is not closed in the row
+     */
+    public boolean readRow(@NonNull List<String> cells) throws IOException, SessionDataCorruptedException {
+        return tokenize(cells);
+    }
+
+    /**
+     * Splits a single line into cells
+     *
+     * @param text  a single line without line separator
+     * @param cells Receives the cells of the line, it is cleared first
+     * @return false if the line has no content (no cells)
+     * @throws SessionDataCorruptedException If an escape sequence is not closed
+     */
+    public boolean tokenize(@NonNull CharSequence text, @NonNull List<String> cells) throws SessionDataCorruptedException {
+        reader = null;
+        line = text;
+        bytes = null;
+        position = 0;
+        limit = text.length();
+        try {
+            tokenize(cells);
+        } catch (IOException e) {
+            //no reader is involved
+            throw new IllegalStateException(e);
+        }
+        line = null;
+        return !cells.isEmpty();
+    }
+
+    private boolean tokenize(List<String> cells) throws IOException, SessionDataCorruptedException {
+        cells.clear();
+        cell.setLength(0);
+        int c = next();
+        if (c == -1) {
+            return false;
+        }
+        int state = CELL_START;
+        while (true) {
+            if (state == ESCAPED) {
+                if (c == -1 || c == '\n' || c == '\r') {
+                    //consume the whole line break, so the next row starts at the next line
+                    if (c == '\r' && peek() == '\n') {
+                        next();
+                    }
+                    throw new SessionDataCorruptedException("Escape sequence was not closed");
+                }
+                if (c == escape) {
+                    state = ESCAPE_SEEN;
+                } else {
+                    cell.append((char) c);
+                }
+            } else if (state == ESCAPE_SEEN && c != separator && c != -1 && c != '\n' && c != '\r') {
+                //the escape character did not end the cell
+                cell.append(escape);
+                if (c == escape) {
+                    state = ESCAPE_SEEN;
+                } else {
+                    cell.append((char) c);
+                    state = ESCAPED;
+                }
+            } else if (c == separator) {
+                cells.add(takeCell());
+                state = CELL_START;
+            } else if (c == -1 || c == '\n') {
+                break;
+            } else if (c == '\r') {
+                if (peek() == '\n') {
+                    next();
+                }
+                break;
+            } else if (state == CELL_START && c == escape) {
+                state = ESCAPED;
+            } else {
+                cell.append((char) c);
+                state = UNESCAPED;
+            }
+            c = next();
+        }
+        cells.add(takeCell());
+        //drop trailing empty cells, like String#split
+        while (!cells.isEmpty() && cells.get(cells.size() - 1).isEmpty()) {
+            cells.remove(cells.size() - 1);
+        }
+        return true;
+    }
+
+    /**
+     * @return the content of the current cell, which is cleared for the next cell
+     */
+    private String takeCell() {
+        String content = bytes != null && !isAscii(cell) ? decodeUtf8(cell) : cell.toString();
+        cell.setLength(0);
+        return content;
+    }
+
+    private static boolean isAscii(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param undecoded a cell read from bytes, one char per byte
+     * @return the decoded cell
+     */
+    private static String decodeUtf8(CharSequence undecoded) {
+        byte[] encoded = new byte[undecoded.length()];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = (byte) undecoded.charAt(i);
+        }
+        return new String(encoded, UTF8);
+    }
+
+    private int next() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        if (bytes != null) {
+            return bytes.get(position++) & 0xff;
+        }
+        return line != null ? line.charAt(position++) : buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        if (bytes != null) {
+            return bytes.get(position) & 0xff;
+        }
+        return line != null ? line.charAt(position) : buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        if (reader == null) {
+            return false;
+        }
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
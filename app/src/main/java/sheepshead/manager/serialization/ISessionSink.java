@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import java.io.IOException;
+
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.session.Session;
+
+/**
+ * Interface for a target that receives a session game by game, e.g. one output of a {@link SessionFanOut}.
+ * The session is iterated by the caller, so several sinks can be filled in one pass over the session
+ */
+public interface ISessionSink {
+
+    /**
+     * Called once before the games of the session
+     *
+     * @param session The session to write data from
+     * @throws IOException                   The implementation may choose to throw an
+     *                                       {@linkplain IOException} when encountering IO-Problems
+     * @throws SessionDataCorruptedException The implementation may choose to throw this exception when
+     *                                       encountering corrupted data or data that does not match the format the implementation expects
+     */
+    void writeHeader(Session session) throws IOException, SessionDataCorruptedException;
+
+    /**
+     * Called for every {@link SingleGameResult} of the session in order
+     *
+     * @param session The session
+     * @param result  The current {@linkplain SingleGameResult}
+     * @throws IOException                   The implementation may choose to throw an
+     *                                       {@linkplain IOException} when encountering IO-Problems
+     * @throws SessionDataCorruptedException The implementation may choose to throw this exception when
+     *                                       encountering corrupted data or data that does not match the format the implementation expects
+     */
+    void writeGame(Session session, SingleGameResult result) throws IOException, SessionDataCorruptedException;
+
+    /**
+     * Called after the last game, all buffered data must be written out
+     *
+     * @throws IOException The implementation may choose to throw an {@linkplain IOException} when encountering IO-Problems
+     */
+    void finish() throws IOException;
+}
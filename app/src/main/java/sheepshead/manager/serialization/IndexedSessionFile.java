@@ -0,0 +1,330 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.PlayerRole;
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.session.ISessionPageSource;
+import sheepshead.manager.session.Session;
+import sheepshead.manager.session.Stake;
+
+/**
+ * Random access to the games of a session file written by {@link BinarySessionWriter}.
+ * Only the header and the index of the file are read when opening it. A range of games is read by seeking
+ * to the nearest index entry before the range, so reading e.g. the latest games of a long session
+ * does not parse the whole file. Files without index can be read as well, then every range is read
+ * from the first game.
+ * <br>
+ * The returned games are already calculated, their money and balances are the stored values.
+ * They belong to the players returned by {@link #getPlayers()}, which are not part of any session.
+ * The file can also be the source of a paged session, see {@link #createPagedSession()}.
+ */
+public class IndexedSessionFile implements Closeable, ISessionPageSource {
+
+    private final RandomAccessFile file;
+    private final List<Player> players;
+    private final Player[] playerArray;
+    private final Stake stake;
+    private final int gameCount;
+    /**
+     * The amount of games between two index entries
+     */
+    private final int indexInterval;
+    /**
+     * The byte offset of every index entry
+     */
+    private final long[] offsets;
+    /**
+     * The balance of every player before the game of every index entry
+     */
+    private final int[] checkpoints;
+    private final boolean indexed;
+    /**
+     * The footer of a snapshot, or null if the file has none
+     */
+    @Nullable
+    private final SaveFileFooter footer;
+
+    /**
+     * Opens the given file and reads its header and index
+     *
+     * @param from A file written by {@link BinarySessionWriter}, with or without the footer of a snapshot
+     *             (see {@link SerializationActions#saveSnapshot}). The checksum of a snapshot is not verified,
+     *             as that reads the whole file, see {@link #verify()}
+     * @throws IOException                   When reading the file produced IO errors
+     * @throws SessionDataCorruptedException When the header or the index is corrupted
+     */
+    public IndexedSessionFile(@NonNull File from) throws IOException, SessionDataCorruptedException {
+        file = new RandomAccessFile(from, "r");
+        try {
+            CountingInputStream in = new CountingInputStream(new BufferedInputStream(Channels.newInputStream(file.getChannel())));
+            BinarySessionReader.Header header = BinarySessionReader.readHeader(in);
+            long firstGame = in.getCount();
+            playerArray = new Player[header.names.size()];
+            for (int i = 0; i < playerArray.length; i++) {
+                playerArray[i] = new Player(header.names.get(i), i);
+            }
+            players = Collections.unmodifiableList(Arrays.asList(playerArray));
+            stake = header.stake;
+            gameCount = header.gameCount;
+
+            footer = SaveFileFooter.readFrom(file);
+            long indexOffset = findIndex(firstGame);
+            if (indexOffset != -1) {
+                file.seek(indexOffset);
+                InputStream index = new BufferedInputStream(Channels.newInputStream(file.getChannel()));
+                byte[] magic = new byte[BinarySessionWriter.INDEX_MAGIC.length];
+                BinarySessionReader.readFully(index, magic);
+                if (!Arrays.equals(magic, BinarySessionWriter.INDEX_MAGIC)) {
+                    throw new SessionDataCorruptedException("Invalid session index");
+                }
+                indexInterval = BinarySessionReader.readVarint(index);
+                int entries = BinarySessionReader.readVarint(index);
+                if (indexInterval <= 0 || entries != (gameCount + indexInterval - 1) / indexInterval) {
+                    throw new SessionDataCorruptedException("Index does not match the amount of games");
+                }
+                offsets = new long[entries];
+                checkpoints = new int[entries * playerArray.length];
+                for (int entry = 0; entry < entries; entry++) {
+                    offsets[entry] = BinarySessionReader.readVarLong(index);
+                    if (offsets[entry] < firstGame || offsets[entry] >= indexOffset) {
+                        throw new SessionDataCorruptedException("Invalid index entry " + entry);
+                    }
+                    for (int p = 0; p < playerArray.length; p++) {
+                        checkpoints[entry * playerArray.length + p] = BinarySessionReader.readSignedVarint(index);
+                    }
+                }
+                indexed = true;
+            } else {
+                //only one entry: the first game with all balances at 0
+                indexInterval = Math.max(gameCount, 1);
+                offsets = new long[]{firstGame};
+                checkpoints = new int[playerArray.length];
+                indexed = false;
+            }
+        } catch (IOException | SessionDataCorruptedException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param firstGame The offset of the first game
+     * @return The offset of the index, or -1 if the file has no index
+     */
+    private long findIndex(long firstGame) throws IOException {
+        //the binary trailer is in front of the footer of a snapshot
+        long length = footer != null ? footer.dataLength : file.length();
+        if (length - BinarySessionWriter.TRAILER_SIZE < firstGame) {
+            return -1;
+        }
+        file.seek(length - BinarySessionWriter.TRAILER_SIZE);
+        long indexOffset = file.readLong();
+        byte[] magic = new byte[BinarySessionWriter.TRAILER_MAGIC.length];
+        file.readFully(magic);
+        if (!Arrays.equals(magic, BinarySessionWriter.TRAILER_MAGIC)
+                || indexOffset < firstGame || indexOffset > length - BinarySessionWriter.TRAILER_SIZE) {
+            return -1;
+        }
+        return indexOffset;
+    }
+
+    /**
+     * Compares the checksum and the amount of games in the footer of a snapshot with the file. This reads the
+     * whole file, but does not parse the games. Does nothing if the file has no footer
+     *
+     * @throws IOException                   When reading the file produced IO errors
+     * @throws SessionDataCorruptedException When the file does not match its footer
+     */
+    public synchronized void verify() throws IOException, SessionDataCorruptedException {
+        if (footer == null) {
+            return;
+        }
+        file.seek(0);
+        SaveFileFooter.CheckedDataStream data = footer.wrap(new BufferedInputStream(Channels.newInputStream(file.getChannel())));
+        data.verify(gameCount);
+    }
+
+    /**
+     * @return true if the file contains an index, otherwise every range is read from the first game
+     */
+    public boolean hasIndex() {
+        return indexed;
+    }
+
+    /**
+     * @return The players of the session, in the order of the session
+     */
+    public List<Player> getPlayers() {
+        return players;
+    }
+
+    public Stake getStake() {
+        return stake;
+    }
+
+    /**
+     * @return The amount of games in the file
+     */
+    public int getGameAmount() {
+        return gameCount;
+    }
+
+    /**
+     * Reads the given range of games
+     *
+     * @param from position of the first game (inclusive), 0 is the first (oldest) game
+     * @param to   position after the last game (exclusive)
+     * @return The games in the range, ordered from the oldest to the latest game
+     * @throws IOException                   When reading the file produced IO errors
+     * @throws SessionDataCorruptedException When a game in the file is corrupted
+     * @throws IndexOutOfBoundsException     If the range is not inside the stored games
+     */
+    public List<SingleGameResult> readGames(int from, int to) throws IOException, SessionDataCorruptedException {
+        return readGames(from, to, new int[playerArray.length]);
+    }
+
+    @Override
+    public synchronized List<SingleGameResult> readGames(int from, int to, int[] balancesBefore) throws IOException, SessionDataCorruptedException {
+        if (from < 0 || to > gameCount || from > to) {
+            throw new IndexOutOfBoundsException("Range " + from + "-" + to + ", size " + gameCount);
+        }
+        List<SingleGameResult> games = new ArrayList<>(to - from);
+        if (from == to) {
+            return games;
+        }
+        int entry = from / indexInterval;
+        int[] balances = Arrays.copyOfRange(checkpoints, entry * playerArray.length, (entry + 1) * playerArray.length);
+        file.seek(offsets[entry]);
+        InputStream in = new BufferedInputStream(Channels.newInputStream(file.getChannel()));
+        int[] money = new int[SingleGameResult.PLAYERS_PER_GAME];
+        for (int game = entry * indexInterval; game < to; game++) {
+            SingleGameResult result = BinarySessionReader.readGame(in, game, playerArray, money);
+            if (game == from) {
+                System.arraycopy(balances, 0, balancesBefore, 0, balances.length);
+            }
+            int seat = 0;
+            for (PlayerRole role : result.getParticipants()) {
+                int id = role.getPlayer().getId();
+                balances[id] += money[seat];
+                role.setMoney(money[seat]);
+                role.setPlayerBalance(balances[id]);
+                seat++;
+            }
+            if (game >= from) {
+                games.add(result);
+            }
+        }
+        return games;
+    }
+
+    /**
+     * Reads the latest games
+     *
+     * @param count The maximum amount of games to read
+     * @return The latest games, ordered from the oldest to the latest game
+     * @throws IOException                   When reading the file produced IO errors
+     * @throws SessionDataCorruptedException When a game in the file is corrupted
+     */
+    public List<SingleGameResult> readLatestGames(int count) throws IOException, SessionDataCorruptedException {
+        return readGames(Math.max(0, gameCount - count), gameCount);
+    }
+
+    /**
+     * Creates a paged session that loads its games from this file, see
+     * {@link Session#Session(List, Stake, int, ISessionPageSource)}. The file is closed with the session
+     * (see {@link Session#close()}).
+     *
+     * @return a session containing the games of this file
+     * @throws SessionDataCorruptedException When the latest games in the file are corrupted
+     * @see #verify()
+     */
+    public Session createPagedSession() throws SessionDataCorruptedException {
+        List<String> names = new ArrayList<>(playerArray.length);
+        for (Player player : playerArray) {
+            names.add(player.getName());
+        }
+        try {
+            return new Session(names, stake, gameCount, this);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new SessionDataCorruptedException("Could not load the latest games: ", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Counts the bytes read from the underlying stream
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
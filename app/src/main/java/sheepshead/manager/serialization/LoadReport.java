@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the problems found while loading a session in salvage mode.
+ * Readers given a report do not stop at a damaged game, but skip it (or keep it with recalculated values)
+ * and record where and why in this report, so that the remaining games can still be loaded.
+ *
+ * @see SessionCSVReader#SessionCSVReader(CSVFormat, LoadReport)
+ * @see BinarySessionReader#BinarySessionReader(LoadReport)
+ */
+public class LoadReport {
+
+    private final List<Problem> problems = new ArrayList<>();
+    private int skippedGames;
+
+    /**
+     * Records a problem that did not prevent the game from being loaded
+     *
+     * @param row    The row (csv: line number starting at 1) or game number (binary: starting at 0) of the problem,
+     *               problems of the whole file (e.g. a wrong checksum) are recorded at row 0
+     * @param reason A description of the problem
+     */
+    public void addProblem(int row, @NonNull String reason) {
+        problems.add(new Problem(row, reason, false));
+    }
+
+    /**
+     * Records a game that was not loaded
+     *
+     * @param row    The row (csv: line number starting at 1) or game number (binary: starting at 0) of the game
+     * @param reason A description of the problem
+     */
+    public void addSkippedGame(int row, @NonNull String reason) {
+        problems.add(new Problem(row, reason, true));
+        skippedGames++;
+    }
+
+    /**
+     * @return true if the session was loaded without any problem
+     */
+    public boolean isClean() {
+        return problems.isEmpty();
+    }
+
+    /**
+     * @return The amount of games that were not loaded
+     */
+    public int getSkippedGames() {
+        return skippedGames;
+    }
+
+    /**
+     * @return All recorded problems in the order they were found
+     */
+    public List<Problem> getProblems() {
+        return Collections.unmodifiableList(problems);
+    }
+
+    /**
+     * Writes one line per problem into the given file, an existing file is overwritten
+     *
+     * @param file The file for the report
+     * @throws IOException When writing produced IO errors
+     */
+    public void writeTo(@NonNull File file) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "utf8");
+        try {
+            for (Problem problem : problems) {
+                writer.write(problem.toString());
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return problems.size() + " problems, " + skippedGames + " games skipped";
+    }
+
+    /**
+     * A problem found in one row of the loaded data
+     */
+    public static final class Problem {
+        private final int row;
+        private final String reason;
+        private final boolean skipped;
+
+        private Problem(int row, String reason, boolean skipped) {
+            this.row = row;
+            this.reason = reason;
+            this.skipped = skipped;
+        }
+
+        /**
+         * @return The row or game number of the problem
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * @return A description of the problem
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * @return true if the game of the row was not loaded
+         */
+        public boolean isSkipped() {
+            return skipped;
+        }
+
+        @Override
+        public String toString() {
+            return "Row " + row + (skipped ? " (skipped): " : ": ") + reason;
+        }
+    }
+}
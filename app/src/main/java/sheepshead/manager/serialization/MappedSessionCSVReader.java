@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import sheepshead.manager.session.Session;
+
+/**
+ * A .csv reader for large files that maps the file into memory (see {@link FileChannel#map}) and splits
+ * the bytes directly into cells (see {@link CSVTokenizer#reset(ByteBuffer)}), instead of decoding the whole
+ * file through a {@link java.io.Reader}. The rows are handled by {@link SessionCSVReader}, so salvage mode
+ * works like there.
+ * <br>
+ * The mapping requires an ASCII compatible encoding (UTF-8 or ASCII) and ASCII separator and escape characters,
+ * for any other format, for compressed files or for streams that are not files this reader falls back to
+ * {@link SessionCSVReader}.
+ */
+public class MappedSessionCSVReader implements ISessionReader {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    /**
+     * The format for this instance
+     */
+    private final CSVFormat format;
+    /**
+     * The report for salvage mode, or null to read strictly
+     */
+    @Nullable
+    private final LoadReport report;
+    /**
+     * True if the format can be read byte by byte
+     */
+    private final boolean mappable;
+
+    /**
+     * Constructs a new reader able to parse the given format
+     *
+     * @param csvFormat The format to expect
+     */
+    public MappedSessionCSVReader(CSVFormat csvFormat) {
+        this(csvFormat, null);
+    }
+
+    /**
+     * Constructs a new reader able to parse the given format in salvage mode,
+     * see {@link SessionCSVReader#SessionCSVReader(CSVFormat, LoadReport)}
+     *
+     * @param csvFormat The format to expect
+     * @param report    Receives the problems, or null to read strictly
+     */
+    public MappedSessionCSVReader(CSVFormat csvFormat, @Nullable LoadReport report) {
+        format = csvFormat;
+        this.report = report;
+        Charset charset = Charset.forName(format.getEncoding());
+        mappable = (charset.equals(UTF8) || charset.equals(ASCII))
+                && format.getSeparator() < 0x80 && format.getEscape() < 0x80
+                && !isLineEnd(format.getSeparator()) && !isLineEnd(format.getEscape());
+    }
+
+    /**
+     * Reads the session from the given file
+     *
+     * @param file The file to read
+     * @return a session build from the data of the file
+     * @throws IOException                   When reading the file produced IO errors
+     * @throws SessionDataCorruptedException When the data is corrupted
+     */
+    public Session readFrom(@NonNull File file) throws IOException, SessionDataCorruptedException {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            return readFrom(fis);
+        } finally {
+            fis.close();
+        }
+    }
+
+    @Override
+    public Session readFrom(InputStream inputStream) throws IOException, SessionDataCorruptedException {
+        if (!mappable || !(inputStream instanceof FileInputStream)) {
+            return new SessionCSVReader(format, report).readFrom(inputStream);
+        }
+        FileChannel channel = ((FileInputStream) inputStream).getChannel();
+        long position = channel.position();
+        long size = channel.size() - position;
+        if (size > Integer.MAX_VALUE || isCompressed(channel, position)) {
+            return new SessionCSVReader(format, report).readFrom(inputStream);
+        }
+        return readFrom(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+    }
+
+    /**
+     * @param channel  The file
+     * @param position The start of the data
+     * @return true if the data is compressed, see {@link CSVFormat.Compression#decompress(InputStream)}
+     * @throws IOException When reading produced IO errors
+     */
+    private static boolean isCompressed(FileChannel channel, long position) throws IOException {
+        ByteBuffer start = ByteBuffer.allocate(2);
+        while (start.hasRemaining() && channel.read(start, position + start.position()) > 0) {
+            //read the first two bytes without moving the position of the channel
+        }
+        int first = start.position() > 0 ? start.get(0) & 0xff : -1;
+        int second = start.position() > 1 ? start.get(1) & 0xff : -1;
+        return CSVFormat.Compression.detect(first, second) != CSVFormat.Compression.NONE;
+    }
+
+    /**
+     * Reads the session from the given buffer, starting at its position
+     *
+     * @param buffer The buffer containing csv data
+     * @return a session build from the data of the buffer
+     * @throws SessionDataCorruptedException When the data is corrupted
+     */
+    public Session readFrom(@NonNull ByteBuffer buffer) throws SessionDataCorruptedException {
+        return new SessionCSVReader(format, report).readFrom(buffer);
+    }
+
+    private static boolean isLineEnd(char c) {
+        return c == '\n' || c == '\r';
+    }
+}
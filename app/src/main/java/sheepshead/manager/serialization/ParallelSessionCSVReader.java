@@ -0,0 +1,253 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import android.support.annotation.Nullable;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import sheepshead.manager.session.Session;
+
+/**
+ * A .csv reader for large imports that decodes the games on a {@link ForkJoinPool}.
+ * The body of the document is split into chunks of whole lines, every chunk is tokenized and decoded
+ * by a {@link SessionCSVReader.GameDecoder} independently. The chunks are ranges of the decoded characters,
+ * so the text is not copied for the chunks. Afterwards, the decoded games are added to the
+ * session sequentially in the order of the document, so balances are computed exactly like
+ * {@link SessionCSVReader} does.
+ * <br>
+ * Escaped cells can not contain line breaks, so every line break ends a row and the chunks can be split
+ * without tokenizing the text first. If the reader of the format is not a {@link SessionCSVReader.ParallelReader},
+ * this reader falls back to {@link SessionCSVReader}.
+ */
+public class ParallelSessionCSVReader implements ISessionReader {
+
+    /**
+     * The approximate amount of characters in one chunk
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * The format for this instance
+     */
+    private final CSVFormat format;
+    private final int chunkSize;
+    /**
+     * The pool to decode on, or null if every read uses its own pool
+     */
+    @Nullable
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new reader able to parse the given format, every read decodes on a new pool
+     * with one thread per available processor
+     *
+     * @param csvFormat The format to expect
+     */
+    public ParallelSessionCSVReader(CSVFormat csvFormat) {
+        this(csvFormat, null, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a new reader able to parse the given format
+     *
+     * @param csvFormat The format to expect
+     * @param pool      The pool to decode on, or null to create a new pool for every read
+     * @param chunkSize The approximate amount of characters decoded in one task
+     */
+    public ParallelSessionCSVReader(CSVFormat csvFormat, @Nullable ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        format = csvFormat;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public Session readFrom(InputStream inputStream) throws IOException, SessionDataCorruptedException {
+        if (!(format.getReader() instanceof SessionCSVReader.ParallelReader)) {
+            return new SessionCSVReader(format).readFrom(inputStream);
+        }
+        java.io.Reader reader = new InputStreamReader(CSVFormat.Compression.decompress(inputStream), format.getEncoding());
+        char[] text = new char[8192];
+        int length = 0;
+        try {
+            int read;
+            while ((read = reader.read(text, length, text.length - length)) != -1) {
+                length += read;
+                if (length == text.length) {
+                    text = Arrays.copyOf(text, text.length * 2);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return readFrom(text, length, (SessionCSVReader.ParallelReader<?>) format.getReader());
+    }
+
+    /**
+     * @param text       The decoded document, followed by unused characters
+     * @param length     The amount of characters of the document
+     * @param gameReader The reader of the format
+     * @return The read session
+     */
+    private <T> Session readFrom(char[] text, int length, SessionCSVReader.ParallelReader<T> gameReader) throws SessionDataCorruptedException {
+        if (length == 0) {
+            throw new SessionDataCorruptedException("The file is empty!");
+        }
+        int headerEnd = 0;
+        while (headerEnd < length && !isLineEnd(text[headerEnd])) {
+            headerEnd++;
+        }
+        List<String> cells = new ArrayList<>();
+        CSVTokenizer tokenizer = new CSVTokenizer(format.getSeparator(), format.getEscape());
+        if (!tokenizer.tokenize(new String(text, 0, headerEnd), cells)) {
+            throw new SessionDataCorruptedException("Empty header!");
+        }
+        gameReader.readHeader(cells);
+
+        List<Integer> bounds = splitBody(text, length, headerEnd);
+        int chunks = bounds.size() - 1;
+        //every task fills in the games of its own chunks
+        List<List<T>> games = new ArrayList<>(Collections.<List<T>>nCopies(chunks, null));
+        SessionDataCorruptedException[] errors = new SessionDataCorruptedException[chunks];
+        DecodeTask<T> task = new DecodeTask<>(text, bounds, 0, chunks, gameReader, games, errors);
+        if (chunks <= 1) {
+            task.compute();
+        } else if (pool != null) {
+            pool.invoke(task);
+        } else {
+            ForkJoinPool ownPool = new ForkJoinPool();
+            try {
+                ownPool.invoke(task);
+            } finally {
+                ownPool.shutdown();
+            }
+        }
+
+        //sequential fold in the order of the document
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            for (T game : games.get(chunk)) {
+                gameReader.addGame(game);
+            }
+            if (errors[chunk] != null) {
+                throw errors[chunk];
+            }
+        }
+        return gameReader.buildSession();
+    }
+
+    /**
+     * Splits the body into chunks ending after a line break
+     *
+     * @param text      The whole document
+     * @param length    The amount of characters of the document
+     * @param headerEnd The index of the line break after the header
+     * @return The start of every chunk followed by the end of the text
+     */
+    private List<Integer> splitBody(char[] text, int length, int headerEnd) {
+        List<Integer> bounds = new ArrayList<>();
+        int start = headerEnd;
+        while (start < length) {
+            bounds.add(start);
+            int end = start + chunkSize;
+            while (end < length && text[end - 1] != '\n') {
+                end++;
+            }
+            start = Math.min(end, length);
+        }
+        bounds.add(length);
+        return bounds;
+    }
+
+    private static boolean isLineEnd(char c) {
+        return c == '\n' || c == '\r';
+    }
+
+    /**
+     * Decodes a range of chunks, splitting it in halves until only one chunk is left
+     */
+    private final class DecodeTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final char[] text;
+        private final List<Integer> bounds;
+        private final int from;
+        private final int to;
+        private final SessionCSVReader.ParallelReader<T> gameReader;
+        private final List<List<T>> games;
+        private final SessionDataCorruptedException[] errors;
+
+        DecodeTask(char[] text, List<Integer> bounds, int from, int to, SessionCSVReader.ParallelReader<T> gameReader,
+                   List<List<T>> games, SessionDataCorruptedException[] errors) {
+            this.text = text;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.gameReader = gameReader;
+            this.games = games;
+            this.errors = errors;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new DecodeTask<>(text, bounds, from, middle, gameReader, games, errors),
+                        new DecodeTask<>(text, bounds, middle, to, gameReader, games, errors));
+                return;
+            }
+            for (int chunk = from; chunk < to; chunk++) {
+                decodeChunk(chunk);
+            }
+        }
+
+        private void decodeChunk(int chunk) {
+            //the games decoded before an error are kept, so the error is reported after adding them
+            List<T> decoded = new ArrayList<>();
+            games.set(chunk, decoded);
+            SessionCSVReader.GameDecoder<T> decoder = gameReader.createDecoder();
+            CSVTokenizer tokenizer = new CSVTokenizer(format.getSeparator(), format.getEscape());
+            int start = bounds.get(chunk);
+            tokenizer.reset(new CharArrayReader(text, start, bounds.get(chunk + 1) - start));
+            List<String> cells = new ArrayList<>();
+            try {
+                while (tokenizer.readRow(cells)) {
+                    //in the body, empty lines are ok
+                    if (!cells.isEmpty()) {
+                        decoded.add(decoder.decodeGame(cells));
+                    }
+                }
+            } catch (SessionDataCorruptedException e) {
+                errors[chunk] = e;
+            } catch (IOException e) {
+                //a CharArrayReader does not fail
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import android.support.annotation.Nullable;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * The footer appended to snapshots written by {@link SerializationActions#saveSnapshot}.
+ * It consists of the length of the session data (8 bytes), the amount of games (4 bytes), the CRC32 checksum
+ * of the session data (4 bytes) and the magic bytes {@link #MAGIC}.
+ * <br>
+ * A file whose write was interrupted has no footer or a footer whose length does not match the file, which
+ * is detected by reading only the footer. The checksum is verified when the whole file is read.
+ */
+final class SaveFileFooter {
+
+    static final byte[] MAGIC = {'S', 'H', 'S', 'F'};
+    /**
+     * The size of the footer in bytes
+     */
+    static final int SIZE = 8 + 4 + 4 + MAGIC.length;
+
+    /**
+     * The amount of bytes before the footer
+     */
+    final long dataLength;
+    final int gameAmount;
+    final int checksum;
+
+    SaveFileFooter(long dataLength, int gameAmount, int checksum) {
+        this.dataLength = dataLength;
+        this.gameAmount = gameAmount;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Writes this footer into the given stream
+     *
+     * @param out The stream positioned after the session data
+     * @throws IOException When writing produced IO errors
+     */
+    void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeLong(dataLength);
+        data.writeInt(gameAmount);
+        data.writeInt(checksum);
+        data.write(MAGIC);
+        data.flush();
+    }
+
+    /**
+     * Reads the footer of the given file without reading the session data
+     *
+     * @param file A snapshot file
+     * @return The footer, or null if the file does not exist or has no complete footer
+     * @throws IOException When reading produced IO errors
+     */
+    @Nullable
+    static SaveFileFooter readFrom(File file) throws IOException {
+        RandomAccessFile raf;
+        try {
+            raf = new RandomAccessFile(file, "r");
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        try {
+            return readFrom(raf);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Reads the footer at the end of the given file, the file position is changed
+     *
+     * @param file An open snapshot file
+     * @return The footer, or null if the file has no complete footer
+     * @throws IOException When reading produced IO errors
+     */
+    @Nullable
+    static SaveFileFooter readFrom(RandomAccessFile file) throws IOException {
+        long length = file.length();
+        if (length < SIZE) {
+            return null;
+        }
+        file.seek(length - SIZE);
+        long dataLength = file.readLong();
+        int gameAmount = file.readInt();
+        int checksum = file.readInt();
+        byte[] magic = new byte[MAGIC.length];
+        file.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC) || dataLength != length - SIZE || gameAmount < 0) {
+            return null;
+        }
+        return new SaveFileFooter(dataLength, gameAmount, checksum);
+    }
+
+    /**
+     * Wraps the stream of a file with this footer, so that readers only see the session data
+     * and the checksum of the data can be verified afterwards with {@link CheckedDataStream#verify(int)}
+     *
+     * @param in The stream positioned at the start of the file
+     * @return a stream ending before the footer
+     */
+    CheckedDataStream wrap(InputStream in) {
+        return new CheckedDataStream(in);
+    }
+
+    /**
+     * A stream that ends before the footer and calculates the checksum of everything read.
+     * Closing it does not close the file, as readers may close their stream before the checksum is verified
+     */
+    final class CheckedDataStream extends FilterInputStream {
+        private final CRC32 crc = new CRC32();
+        private long remaining = dataLength;
+        /**
+         * Receives the skipped bytes, created on the first skip
+         */
+        private byte[] skipBuffer;
+
+        private CheckedDataStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b != -1) {
+                crc.update(b);
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                crc.update(b, off, read);
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (skipBuffer == null) {
+                skipBuffer = new byte[8192];
+            }
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, n - skipped));
+                if (read == -1) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            //the file is closed by the caller
+        }
+
+        /**
+         * Reads the data the reader did not read (e.g. the index of a binary file) and compares the checksum
+         *
+         * @param gamesRead The amount of games the reader found in the data
+         * @throws IOException                   When reading produced IO errors
+         * @throws SessionDataCorruptedException When the data does not match the footer
+         */
+        void verify(int gamesRead) throws IOException, SessionDataCorruptedException {
+            skip(remaining);
+            if (remaining != 0) {
+                throw new SessionDataCorruptedException("The file ends before the footer");
+            }
+            if ((int) crc.getValue() != checksum) {
+                throw new SessionDataCorruptedException("The checksum of the file does not match");
+            }
+            if (gamesRead != gameAmount) {
+                throw new SessionDataCorruptedException("Read " + gamesRead + " games, but the file contains " + gameAmount);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the given file has a footer matching its length. This only reads the footer,
+     * so it does not detect damaged data but interrupted writes
+     *
+     * @param file A snapshot file
+     * @return true if the file was written completely
+     */
+    static boolean isComplete(File file) {
+        try {
+            return readFrom(file) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -18,14 +18,22 @@ package sheepshead.manager.serialization;
 
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
+import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
 import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 import sheepshead.manager.session.Session;
 
@@ -44,6 +52,212 @@ public final class SerializationActions {
     }
 
 
+    /**
+     * Saves the given session to the given file using the given format.
+     * An existing file is overwritten
+     *
+     * @param to      file to write the session data to
+     * @param session the session to save
+     * @param format  the format in which the data is saved
+     * @throws IOException                   When writing the file produced IO errors
+     * @throws SessionDataCorruptedException When the session cannot be serialized
+     * @see ISessionWriter#writeOut(Session, java.io.OutputStream)
+     */
+    public static void saveSession(@NonNull File to, @NonNull Session session, @NonNull CSVFormat format) throws IOException, SessionDataCorruptedException {
+        saveSession(to, session, new SessionCSVWriter(format));
+    }
+
+    /**
+     * Saves the given session to the given file using the given writer.
+     * The data is written to a temporary file first, which is synced to the disk and then replaces an existing
+     * file. So a crash while writing never damages the existing file, and readers that still have the old file
+     * open (e.g. the source of a paged session) keep reading the old data
+     *
+     * @param to      file to write the session data to
+     * @param session the session to save
+     * @param writer  the writer producing the data
+     * @throws IOException                   When writing the file produced IO errors
+     * @throws SessionDataCorruptedException When the session cannot be serialized
+     * @see ISessionWriter#writeOut(Session, java.io.OutputStream)
+     */
+    public static void saveSession(@NonNull File to, @NonNull Session session, @NonNull ISessionWriter writer) throws IOException, SessionDataCorruptedException {
+        File temp = getTempFile(to);
+        FileOutputStream fos = new FileOutputStream(temp);
+        try {
+            writer.writeOut(session, fos);
+            fos.getFD().sync();
+        } finally {
+            fos.close();
+        }
+        if (!temp.renameTo(to)) {
+            throw new IOException("Could not replace " + to.getName());
+        }
+    }
+
+    /**
+     * Saves the given session into several files, each with its own format, while iterating the session only once
+     * (see {@link SessionFanOut}). Like {@link #saveSession(File, Session, ISessionWriter)}, every file is written to
+     * a temporary file that is synced and then replaces an existing file. The existing files are only replaced
+     * when all files were written, otherwise the temporary files are deleted
+     *
+     * @param to      files to write the session data to
+     * @param session the session to save
+     * @param formats the format of each file, in the order of the files
+     * @throws IOException                   When writing a file produced IO errors
+     * @throws SessionDataCorruptedException When the session cannot be serialized
+     * @throws IllegalArgumentException      If the amount of files and formats differ
+     */
+    public static void saveSession(@NonNull List<File> to, @NonNull Session session, @NonNull List<CSVFormat> formats) throws IOException, SessionDataCorruptedException {
+        if (to.size() != formats.size()) {
+            throw new IllegalArgumentException(to.size() + " files, but " + formats.size() + " formats");
+        }
+        List<File> tempFiles = new ArrayList<>(to.size());
+        List<FileOutputStream> streams = new ArrayList<>(to.size());
+        try {
+            SessionFanOut fanOut = new SessionFanOut();
+            for (int i = 0; i < to.size(); i++) {
+                File temp = getTempFile(to.get(i));
+                tempFiles.add(temp);
+                FileOutputStream stream = new FileOutputStream(temp);
+                streams.add(stream);
+                fanOut.add(formats.get(i), stream);
+            }
+            fanOut.writeOut(session);
+            for (FileOutputStream stream : streams) {
+                stream.getFD().sync();
+            }
+        } catch (IOException | SessionDataCorruptedException | RuntimeException e) {
+            IOException closeFailure = closeAll(streams);
+            if (closeFailure != null) {
+                e.addSuppressed(closeFailure);
+            }
+            deleteAll(tempFiles);
+            throw e;
+        }
+        IOException closeFailure = closeAll(streams);
+        if (closeFailure != null) {
+            deleteAll(tempFiles);
+            throw closeFailure;
+        }
+        for (int i = 0; i < to.size(); i++) {
+            if (!tempFiles.get(i).renameTo(to.get(i))) {
+                deleteAll(tempFiles.subList(i, tempFiles.size()));
+                throw new IOException("Could not replace " + to.get(i).getName());
+            }
+        }
+    }
+
+    /**
+     * Closes every given stream, even if closing a stream fails
+     *
+     * @param streams The streams to close
+     * @return The failure of the first stream that could not be closed, or null if all streams were closed
+     */
+    private static
+    @Nullable
+    IOException closeAll(List<? extends Closeable> streams) {
+        IOException failure = null;
+        for (Closeable stream : streams) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        return failure;
+    }
+
+    private static void deleteAll(List<File> files) {
+        for (File file : files) {
+            if (file.exists() && !file.delete()) {
+                System.out.println("Could not delete " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * Saves the given session as crash-safe snapshot. Like {@link #saveSession(File, Session, ISessionWriter)},
+     * the data is written to a temporary file that is synced and renamed, but a footer with the checksum and the
+     * amount of games is appended to the data. The replaced file is kept as previous generation.
+     * <br>
+     * {@link #findLatestSnapshot(File)} checks the footers to find the latest completely written generation,
+     * {@link #loadSession(File, ISessionReader)} verifies the checksum
+     *
+     * @param to      file to write the session data to
+     * @param session the session to save
+     * @param writer  the writer producing the data
+     * @return the checksum of the written data, which identifies the snapshot (see {@link #readSnapshotChecksum(File)})
+     * @throws IOException                   When writing the file produced IO errors
+     * @throws SessionDataCorruptedException When the session cannot be serialized
+     */
+    public static int saveSnapshot(@NonNull File to, @NonNull Session session, @NonNull ISessionWriter writer) throws IOException, SessionDataCorruptedException {
+        File temp = getTempFile(to);
+        FileOutputStream fos = new FileOutputStream(temp);
+        SaveFileFooter footer;
+        try {
+            CheckedOutputStream checked = new CheckedOutputStream(fos, new CRC32());
+            writer.writeOut(session, checked);
+            checked.flush();
+            footer = new SaveFileFooter(fos.getChannel().position(), session.getGameAmount(), (int) checked.getChecksum().getValue());
+            footer.writeTo(fos);
+            fos.getFD().sync();
+        } finally {
+            fos.close();
+        }
+        File previous = getPreviousGeneration(to);
+        if (to.exists() && !to.renameTo(previous)) {
+            throw new IOException("Could not keep previous generation of " + to.getName());
+        }
+        if (!temp.renameTo(to)) {
+            throw new IOException("Could not replace " + to.getName());
+        }
+        return footer.checksum;
+    }
+
+    /**
+     * Reads the checksum in the footer of a snapshot written by {@link #saveSnapshot(File, Session, ISessionWriter)}.
+     * Only the footer is read, the checksum is not verified
+     *
+     * @param snapshot A snapshot file, e.g. found by {@link #findLatestSnapshot(File)}
+     * @return The checksum of the snapshot, or null if the file has no complete footer
+     * @throws IOException When reading the footer produced IO errors
+     */
+    @Nullable
+    public static Integer readSnapshotChecksum(@NonNull File snapshot) throws IOException {
+        SaveFileFooter footer = SaveFileFooter.readFrom(snapshot);
+        return footer == null ? null : footer.checksum;
+    }
+
+    /**
+     * Finds the latest generation of a snapshot written by {@link #saveSnapshot(File, Session, ISessionWriter)}
+     * that was written completely. Only the footers are read: the given file is preferred, then the temporary
+     * file of a save that was interrupted before it was renamed, then the previous generation.
+     * If no generation has a valid footer, the given file is returned if it exists (e.g. a file saved without footer)
+     *
+     * @param snapshot The snapshot file
+     * @return The file to load, or null if there is none
+     */
+    @Nullable
+    public static File findLatestSnapshot(@NonNull File snapshot) {
+        File[] generations = {snapshot, getTempFile(snapshot), getPreviousGeneration(snapshot)};
+        for (File generation : generations) {
+            if (SaveFileFooter.isComplete(generation)) {
+                return generation;
+            }
+        }
+        return snapshot.exists() ? snapshot : null;
+    }
+
+    private static File getTempFile(File to) {
+        return new File(to.getParentFile(), to.getName() + ".tmp");
+    }
+
+    private static File getPreviousGeneration(File to) {
+        return new File(to.getParentFile(), to.getName() + ".prev");
+    }
+
     /**
      * Loads a saved session from the given file using the given format
      *
@@ -55,12 +269,61 @@ public final class SerializationActions {
      * @see ISessionReader#readFrom(InputStream)
      */
     public static Session loadSession(@NonNull File from, @NonNull CSVFormat format) throws IOException, SessionDataCorruptedException {
-        SessionCSVReader reader = new SessionCSVReader(format);
+        return loadSession(from, new SessionCSVReader(format));
+    }
+
+    /**
+     * Loads a saved session from the given file using the given reader.
+     * If the file has a footer (see {@link #saveSnapshot(File, Session, ISessionWriter)}), the reader only
+     * reads the data before the footer and the checksum and the amount of games are verified.
+     * If the file cannot be read, it is renamed and kept for debugging purposes
+     *
+     * @param from   file containing the saved session data
+     * @param reader the reader parsing the data
+     * @return the session loaded from the file
+     * @throws IOException                   When the reading the file produced IO errors
+     * @throws SessionDataCorruptedException When the file cannot be parsed
+     * @see ISessionReader#readFrom(InputStream)
+     */
+    public static Session loadSession(@NonNull File from, @NonNull ISessionReader reader) throws IOException, SessionDataCorruptedException {
+        return loadSession(from, reader, null);
+    }
+
+    /**
+     * Loads a saved session from the given file using the given reader, like {@link #loadSession(File, ISessionReader)}.
+     * If a report is given, a checksum or game count that does not match the footer is recorded in the report
+     * instead of thrown. This is meant for a reader in salvage mode that records its problems in the same report,
+     * e.g. {@link SessionCSVReader#SessionCSVReader(CSVFormat, LoadReport)}
+     *
+     * @param from   file containing the saved session data
+     * @param reader the reader parsing the data
+     * @param report receives the problems of the file, or null to treat them as corrupted data
+     * @return the session loaded from the file
+     * @throws IOException                   When the reading the file produced IO errors
+     * @throws SessionDataCorruptedException When the file cannot be parsed
+     */
+    public static Session loadSession(@NonNull File from, @NonNull ISessionReader reader, @Nullable LoadReport report) throws IOException, SessionDataCorruptedException {
         try {
+            SaveFileFooter footer = SaveFileFooter.readFrom(from);
             FileInputStream fis = new FileInputStream(from);
-            Session session = reader.readFrom(fis);
-            fis.close();
-            return session;
+            try {
+                if (footer == null) {
+                    return reader.readFrom(fis);
+                }
+                SaveFileFooter.CheckedDataStream data = footer.wrap(new BufferedInputStream(fis));
+                Session session = reader.readFrom(data);
+                try {
+                    data.verify(session.getGameAmount());
+                } catch (SessionDataCorruptedException e) {
+                    if (report == null) {
+                        throw e;
+                    }
+                    report.addProblem(0, e.getMessage());
+                }
+                return session;
+            } finally {
+                fis.close();
+            }
         } catch (IOException | SessionDataCorruptedException e) {
             System.out.println("Could not load save file: " + e.getMessage());
             e.printStackTrace();
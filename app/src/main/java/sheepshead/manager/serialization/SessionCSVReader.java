@@ -20,10 +20,10 @@ package sheepshead.manager.serialization;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,6 +33,7 @@ import sheepshead.manager.session.Session;
  * A generic .csv reader following the {@link ISessionReader} interface.
  * This reader parses .csv-formatted data and turns it into an intermediate form that is then passed
  * to the {@link CSVFormat}-instance for further action.
+ * Compressed data (see {@link CSVFormat.Compression}) is detected and decompressed independent of the format.
  */
 public class SessionCSVReader implements ISessionReader {
 
@@ -41,13 +42,14 @@ public class SessionCSVReader implements ISessionReader {
      */
     private final CSVFormat format;
     /**
-     * The escape character as string
+     * Splits the text into cells
      */
-    private String escape;
+    private final CSVTokenizer tokenizer;
     /**
-     * The separation character as string
+     * The report for salvage mode, or null if the first damaged row ends reading
      */
-    private String separator;
+    @Nullable
+    private final LoadReport report;
 
     /**
      * Constructs a new CSVReader able to parse the given format
@@ -55,80 +57,122 @@ public class SessionCSVReader implements ISessionReader {
      * @param csvFormat The format to expect
      */
     public SessionCSVReader(CSVFormat csvFormat) {
+        this(csvFormat, null);
+    }
+
+    /**
+     * Constructs a new CSVReader able to parse the given format in salvage mode: rows of the body that
+     * cannot be read are skipped and recorded in the given report instead of ending reading.
+     * If the reader of the format is a {@link SalvageReader}, it records problems of the games it keeps as well.
+     * A damaged header still ends reading
+     *
+     * @param csvFormat The format to expect
+     * @param report    Receives the problems, or null to read strictly
+     */
+    public SessionCSVReader(CSVFormat csvFormat, @Nullable LoadReport report) {
         format = csvFormat;
-        escape = Character.toString(format.getEscape());
-        separator = Character.toString(format.getSeparator());
+        tokenizer = new CSVTokenizer(format.getSeparator(), format.getEscape());
+        this.report = report;
     }
 
     @Override
     public Session readFrom(InputStream inputStream) throws IOException, SessionDataCorruptedException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, format.getEncoding()));
-        String currentLine = reader.readLine();
-        if (currentLine == null) {
+        java.io.Reader reader = new InputStreamReader(CSVFormat.Compression.decompress(inputStream), format.getEncoding());
+        tokenizer.reset(reader);
+        try {
+            return readRows();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads the session from the given UTF-8 (or ASCII) encoded text, see {@link CSVTokenizer#reset(ByteBuffer)}.
+     * Like {@link #readFrom(InputStream)}, damaged games are skipped in salvage mode
+     *
+     * @param utf8 The buffer containing csv data between its position and its limit
+     * @return a session build from the data of the buffer
+     * @throws SessionDataCorruptedException When the data is corrupted
+     */
+    Session readFrom(@NonNull ByteBuffer utf8) throws SessionDataCorruptedException {
+        tokenizer.reset(utf8);
+        try {
+            return readRows();
+        } catch (IOException e) {
+            //no reader is involved
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the header and the body from the tokenizer
+     */
+    private Session readRows() throws IOException, SessionDataCorruptedException {
+        List<String> cells = new ArrayList<>();
+        if (!tokenizer.readRow(cells)) {
             throw new SessionDataCorruptedException("The file is empty!");
         }
-        List<String> currentParsedLine = parseLine(currentLine);
-        if (currentParsedLine == null) {
+        if (cells.isEmpty()) {
             throw new SessionDataCorruptedException("Empty header!");
         }
-        format.getReader().readHeader(currentParsedLine);
-        while ((currentLine = reader.readLine()) != null) {
-            currentParsedLine = parseLine(currentLine);
-            //in the body, empty lines are ok
-            if (currentParsedLine != null) {
-                format.getReader().readGame(currentParsedLine);
+        format.getReader().readHeader(cells);
+        if (report != null) {
+            readBodySalvaging(report);
+        } else {
+            while (tokenizer.readRow(cells)) {
+                //in the body, empty lines are ok
+                if (!cells.isEmpty()) {
+                    format.getReader().readGame(cells);
+                }
             }
         }
-        reader.close();
         return format.getReader().buildSession();
     }
 
-    @Nullable
-    private List<String> parseLine(String line) throws SessionDataCorruptedException {
-        if (line.isEmpty()) {
-            return null;
-        }
-        String[] cells = line.split(separator);
-        if (cells.length < 1) {
-            return null;
-        }
-        return merge(cells);
-    }
-
-    @NonNull
-    private List<String> merge(String[] cells) throws SessionDataCorruptedException {
-        List<String> mergedCells = new ArrayList<>();
-        String currentCell = "";
-        boolean inEscaped = false;
-        for (String cellContent : cells) {
-            if (inEscaped) {
-                if (cellContent.endsWith(escape)) {
-                    //add the whole cell group (excludng the escape character at the end)
-                    mergedCells.add(currentCell + separator + cellContent.substring(0, cellContent.length() - 1));
-                    currentCell = "";
-                    inEscaped = false;
-                } else {
-                    //the separator is cut out by String.split, but was in a escape sequence,
-                    //so we have to add it back in
-                    currentCell += separator + cellContent;
+    private void readBodySalvaging(LoadReport report) throws IOException {
+        List<String> cells = new ArrayList<>();
+        Reader gameReader = format.getReader();
+        //the header is row 1
+        int row = 1;
+        while (true) {
+            row++;
+            try {
+                if (!tokenizer.readRow(cells)) {
+                    break;
+                }
+                if (cells.isEmpty()) {
+                    continue;
                 }
-            } else {
-                if (cellContent.startsWith(escape)) {
-                    inEscaped = true;
-                    currentCell = cellContent.substring(1);
+                if (gameReader instanceof SalvageReader) {
+                    ((SalvageReader) gameReader).readGame(cells, report, row);
                 } else {
-                    mergedCells.add(cellContent);
+                    gameReader.readGame(cells);
                 }
+            } catch (SessionDataCorruptedException e) {
+                report.addSkippedGame(row, e.getMessage());
             }
         }
-        if (inEscaped) {
-            throw new SessionDataCorruptedException("Escape sequence was not closed");
+    }
+
+    /**
+     * Splits one line of csv-formatted data into its cells, respecting escaped cells
+     *
+     * @param line a single line without line separator
+     * @return The contents of each cell, or null if the line is empty
+     * @throws SessionDataCorruptedException If an escape sequence is not closed
+     */
+    @Nullable
+    public List<String> parseLine(String line) throws SessionDataCorruptedException {
+        List<String> cells = new ArrayList<>();
+        if (!tokenizer.tokenize(line, cells)) {
+            return null;
         }
-        return mergedCells;
+        return cells;
     }
 
     /**
-     * Interface for defining further action to turn the intermediate results into a session
+     * Interface for defining further action to turn the intermediate results into a session.
+     * The lists passed to the callbacks are only valid during the call, readers may reuse them for the next row
      */
     public interface Reader {
 
@@ -157,4 +201,84 @@ public class SessionCSVReader implements ISessionReader {
          */
         Session buildSession();
     }
+
+    /**
+     * A {@link Reader} that splits reading a game into decoding the cells, which may happen on any thread,
+     * and adding the decoded game to the session, which happens in the order of the games.
+     * Used by {@link ParallelSessionCSVReader}, all other readers call {@link #readGame(List)}
+     *
+     * @param <T> The type of the decoded games
+     */
+    public interface ParallelReader<T> extends Reader {
+
+        /**
+         * Called after {@link #readHeader(List)} for every chunk of games that is decoded.
+         * A decoder is only used by one thread, but decoders of different chunks run at the same time
+         *
+         * @return a decoder for the games of one chunk
+         */
+        GameDecoder<T> createDecoder();
+
+        /**
+         * Called for every decoded game in the order the games appear in the document
+         *
+         * @param game The decoded game
+         * @throws SessionDataCorruptedException The implementation may choose to throw this exception when
+         *                                       the game does not fit to the games before
+         */
+        void addGame(T game) throws SessionDataCorruptedException;
+    }
+
+    /**
+     * Decodes the cells of one game without changing the state of its {@link ParallelReader}
+     *
+     * @param <T> The type of the decoded games
+     */
+    public interface GameDecoder<T> {
+
+        /**
+         * Called when the data describing one game (usually one line) is parsed
+         *
+         * @param rowContent The contents of all cells belonging to the same game, only valid during the call
+         * @return The decoded game
+         * @throws SessionDataCorruptedException The implementation may choose to throw this exception when
+         *                                       encountering corrupted data or data that does not match the format the implementation expects
+         */
+        T decodeGame(List<String> rowContent) throws SessionDataCorruptedException;
+    }
+
+    /**
+     * A {@link Reader} that can tell which cells of the header are player names.
+     * Used by {@link SessionSummary} to preview a session without reading it
+     */
+    public interface SummaryReader extends Reader {
+
+        /**
+         * Extracts the player names from the header without changing the state of this reader
+         *
+         * @param headerCellContent The contents of each cell in the header
+         * @return The names of the players
+         * @throws SessionDataCorruptedException The implementation may choose to throw this exception when
+         *                                       the header does not match the format the implementation expects
+         */
+        List<String> readPlayerNames(List<String> headerCellContent) throws SessionDataCorruptedException;
+    }
+
+    /**
+     * A {@link Reader} that can keep a game with inconsistent data (e.g. stored values that do not match
+     * the recalculated ones) and record the inconsistency. Used by {@link SessionCSVReader} in salvage mode
+     */
+    public interface SalvageReader extends Reader {
+
+        /**
+         * Like {@link #readGame(List)}, but problems that do not prevent adding the game are recorded
+         * in the given report instead of being thrown
+         *
+         * @param rowContent The contents of all cells belonging to the same game
+         * @param report     Receives the problems of the game
+         * @param row        The line number of the game
+         * @throws SessionDataCorruptedException If the game cannot be added to the session, it is then skipped
+         */
+        void readGame(List<String> rowContent, LoadReport report, int row) throws SessionDataCorruptedException;
+    }
 }
@@ -17,7 +17,6 @@
 package sheepshead.manager.serialization;
 
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
@@ -30,7 +29,10 @@ import sheepshead.manager.session.Session;
 /**
  * A generic .csv writer following the {@link ISessionWriter} interface
  * This writer traverses the {@link Session} and uses a given {@link Writer} to turn session data into
- * an intermediate form that is then transformed into .csv-formatted data by the writer and written out
+ * an intermediate form that is then transformed into .csv-formatted data by the writer and written out.
+ * <br>
+ * If the writer of the format is a {@link StreamingWriter}, its cells are escaped and encoded as they are
+ * added to the {@link CellSink}, without collecting them in lists.
  */
 public class SessionCSVWriter implements ISessionWriter {
 
@@ -38,18 +40,13 @@ public class SessionCSVWriter implements ISessionWriter {
      * The format to follow
      */
     private final CSVFormat format;
-    /**
-     * The escape character as string
-     */
-    private String escape;
-    /**
-     * The separation character as string
-     */
-    private String separator;
+    private final char escape;
+    private final char separator;
+    private final String lineSeparator;
     /**
      * The amount of bytes that were written successfully into the stream
      */
-    private int bytesWritten;
+    private long bytesWritten;
 
     /**
      * Constructs this writer following the given format
@@ -58,51 +55,231 @@ public class SessionCSVWriter implements ISessionWriter {
      */
     public SessionCSVWriter(CSVFormat format) {
         this.format = format;
-        escape = Character.toString(this.format.getEscape());
-        separator = Character.toString(this.format.getSeparator());
+        escape = format.getEscape();
+        separator = format.getSeparator();
+        lineSeparator = System.getProperty("line.separator");
     }
 
     @Override
     public void writeOut(Session session, OutputStream stream) throws IOException, SessionDataCorruptedException {
-        bytesWritten = 0;
-        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(stream, format.getEncoding()));
-        //Write header
-        write(format.getWriter().writeHeader(session), writer);
-
-        //Write games
+        Output output = open(stream);
+        output.writeHeader(session);
         Iterator<SingleGameResult> it = session.iterator();
         while (it.hasNext()) {
-            write(format.getWriter().writeGame(session, it.next()), writer);
+            output.writeGame(session, it.next());
         }
-        writer.flush();
+        output.finish();
+    }
+
+    /**
+     * Starts writing into the given stream, the caller passes the session game by game to the returned sink.
+     * Used to write a session into several formats in one pass, see {@link SessionFanOut}
+     *
+     * @param stream The stream to write data into
+     * @return a sink writing the session in the format of this writer
+     * @throws IOException When writing the header of the compression produced IO errors
+     */
+    public Output open(OutputStream stream) throws IOException {
+        bytesWritten = 0;
+        return new Output(stream);
     }
 
-    private void write(List<String> row, java.io.Writer writer) throws IOException, SessionDataCorruptedException {
-        int index = 0;
-        for (String cell : row) {
-            String pre = index > 0 ? separator : "";
-            String post = "";
-            if (cell.contains(escape)) {
-                throw new SessionDataCorruptedException("The following string contains the control character (" + escape + ") which is not allowed: " + cell);
+    /**
+     * Writes the rows of one session into one stream, see {@link #open(OutputStream)}.
+     * {@link #getBytesWritten()} is updated after every row
+     */
+    public final class Output implements ISessionSink {
+        private final CountingOutputStream counter;
+        private final OutputStream compressed;
+        private final RowSink sink;
+        private final Writer writer;
+
+        private Output(OutputStream stream) throws IOException {
+            counter = new CountingOutputStream(stream);
+            compressed = format.getCompression().compress(counter);
+            sink = new RowSink(new OutputStreamWriter(compressed, format.getEncoding()));
+            writer = format.getWriter();
+        }
+
+        @Override
+        public void writeHeader(Session session) throws IOException, SessionDataCorruptedException {
+            try {
+                if (writer instanceof StreamingWriter) {
+                    ((StreamingWriter) writer).writeHeader(session, sink);
+                    sink.endRow();
+                } else {
+                    sink.addRow(writer.writeHeader(session));
+                }
+            } finally {
+                bytesWritten = counter.getCount();
             }
-            if (cell.contains(separator)) {
-                pre += escape;
-                post += escape;
+        }
+
+        @Override
+        public void writeGame(Session session, SingleGameResult result) throws IOException, SessionDataCorruptedException {
+            try {
+                if (writer instanceof StreamingWriter) {
+                    ((StreamingWriter) writer).writeGame(session, result, sink);
+                    sink.endRow();
+                } else {
+                    sink.addRow(writer.writeGame(session, result));
+                }
+            } finally {
+                bytesWritten = counter.getCount();
             }
-            String toWrite = pre + cell + post;
-            bytesWritten += toWrite.getBytes(format.getEncoding()).length;
-            writer.write(toWrite);
+        }
 
-            index++;
+        @Override
+        public void finish() throws IOException {
+            try {
+                sink.flush();
+                format.getCompression().finish(compressed);
+            } finally {
+                bytesWritten = counter.getCount();
+            }
         }
-        writer.write(System.getProperty("line.separator"));
     }
 
     /**
-     * @return The amount of bytes successfully written into the stream
+     * Writes one row of cells followed by a line separator, escaping cells where needed
+     *
+     * @param row    The content of each cell
+     * @param writer The writer to write into
+     * @throws IOException                   When writing fails
+     * @throws SessionDataCorruptedException If a cell contains the escape character
+     */
+    public void writeRow(List<String> row, java.io.Writer writer) throws IOException, SessionDataCorruptedException {
+        RowSink sink = new RowSink(writer);
+        sink.addRow(row);
+        sink.flush();
+    }
+
+    /**
+     * @return The amount of (compressed) bytes successfully written into the stream by the last {@link #writeOut(Session, OutputStream)}
      */
     public int getBytesWritten() {
-        return bytesWritten;
+        return (int) bytesWritten;
+    }
+
+    /**
+     * Receives the cells of one row and writes them out immediately
+     */
+    public interface CellSink {
+
+        /**
+         * Appends a cell to the current row. The content is written out before this method returns,
+         * so the given sequence may be reused afterwards
+         *
+         * @param cell The content of the cell
+         * @throws IOException                   When writing fails
+         * @throws SessionDataCorruptedException If the cell contains the escape character
+         */
+        void addCell(CharSequence cell) throws IOException, SessionDataCorruptedException;
+
+        /**
+         * Appends a cell containing the given number to the current row
+         *
+         * @param value The content of the cell
+         * @throws IOException When writing fails
+         */
+        void addCell(int value) throws IOException;
+    }
+
+    /**
+     * Escapes and encodes cells into a character buffer that is written to the underlying writer when full
+     */
+    private final class RowSink implements CellSink {
+        private final java.io.Writer out;
+        private final char[] buffer = new char[4096];
+        private int length;
+        private int column;
+
+        RowSink(java.io.Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void addCell(CharSequence cell) throws IOException, SessionDataCorruptedException {
+            boolean escaped = false;
+            int cellLength = cell.length();
+            for (int i = 0; i < cellLength; i++) {
+                char c = cell.charAt(i);
+                if (c == escape) {
+                    throw new SessionDataCorruptedException("The following string contains the control character (" + escape + ") which is not allowed: " + cell);
+                }
+                escaped |= c == separator;
+            }
+            startCell();
+            if (escaped) {
+                append(escape);
+            }
+            for (int i = 0; i < cellLength; i++) {
+                append(cell.charAt(i));
+            }
+            if (escaped) {
+                append(escape);
+            }
+        }
+
+        @Override
+        public void addCell(int value) throws IOException {
+            startCell();
+            if (value < 0) {
+                append('-');
+            } else {
+                value = -value;
+            }
+            //digits of the negative value, so Integer.MIN_VALUE works as well
+            int digits = 1;
+            for (int rest = value / 10; rest != 0; rest /= 10) {
+                digits++;
+            }
+            ensureSpace(digits);
+            for (int i = length + digits - 1; i >= length; i--) {
+                buffer[i] = (char) ('0' - value % 10);
+                value /= 10;
+            }
+            length += digits;
+        }
+
+        void addRow(List<String> row) throws IOException, SessionDataCorruptedException {
+            for (String cell : row) {
+                addCell(cell);
+            }
+            endRow();
+        }
+
+        void endRow() throws IOException {
+            for (int i = 0; i < lineSeparator.length(); i++) {
+                append(lineSeparator.charAt(i));
+            }
+            column = 0;
+        }
+
+        private void startCell() throws IOException {
+            if (column > 0) {
+                append(separator);
+            }
+            column++;
+        }
+
+        private void append(char c) throws IOException {
+            ensureSpace(1);
+            buffer[length++] = c;
+        }
+
+        private void ensureSpace(int space) throws IOException {
+            if (length + space > buffer.length) {
+                out.write(buffer, 0, length);
+                length = 0;
+            }
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, 0, length);
+            length = 0;
+            out.flush();
+        }
     }
 
     /**
@@ -131,4 +308,34 @@ public class SessionCSVWriter implements ISessionWriter {
          */
         List<String> writeGame(Session session, SingleGameResult result) throws SessionDataCorruptedException;
     }
+
+    /**
+     * A {@link Writer} that can add the cells of each row directly to a {@link CellSink}.
+     * {@link SessionCSVWriter} prefers these methods over the methods returning lists
+     */
+    public interface StreamingWriter extends Writer {
+
+        /**
+         * Called when the header for the csv format should be written out
+         *
+         * @param session The session to gather data from
+         * @param sink    Receives the cells of the header
+         * @throws IOException                   When writing a cell fails
+         * @throws SessionDataCorruptedException The implementation may choose to throw this exception when
+         *                                       encountering corrupted data or data that does not match the format the implementation expects
+         */
+        void writeHeader(Session session, CellSink sink) throws IOException, SessionDataCorruptedException;
+
+        /**
+         * Called for every {@link SingleGameResult} in the session
+         *
+         * @param session The session
+         * @param result  The current {@linkplain SingleGameResult}
+         * @param sink    Receives the cells of the game
+         * @throws IOException                   When writing a cell fails
+         * @throws SessionDataCorruptedException The implementation may choose to throw this exception when
+         *                                       encountering corrupted data or data that does not match the format the implementation expects
+         */
+        void writeGame(Session session, SingleGameResult result, CellSink sink) throws IOException, SessionDataCorruptedException;
+    }
 }
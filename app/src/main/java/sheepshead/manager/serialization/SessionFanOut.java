@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.session.Session;
+
+/**
+ * Writes one session into several sinks (e.g. the internal format and a spreadsheet export) while iterating
+ * the session only once: every game is passed to all sinks before the next game is read.
+ * For a paged session this loads every page once instead of once per export.
+ */
+public class SessionFanOut {
+
+    private final List<ISessionSink> sinks = new ArrayList<>();
+
+    /**
+     * Adds a sink that receives the session
+     *
+     * @param sink The sink
+     * @return this fan-out
+     */
+    public SessionFanOut add(@NonNull ISessionSink sink) {
+        sinks.add(sink);
+        return this;
+    }
+
+    /**
+     * Adds a sink writing the session with the given format into the given stream
+     *
+     * @param format The format of the written data
+     * @param stream The stream to write data into, it is not closed
+     * @return this fan-out
+     * @throws IOException When writing the header of the compression produced IO errors
+     */
+    public SessionFanOut add(@NonNull CSVFormat format, @NonNull OutputStream stream) throws IOException {
+        return add(new SessionCSVWriter(format).open(stream));
+    }
+
+    /**
+     * Writes the given session into all sinks
+     *
+     * @param session The session to write
+     * @throws IOException                   When a sink produced IO errors
+     * @throws SessionDataCorruptedException When a sink cannot serialize the session
+     */
+    public void writeOut(@NonNull Session session) throws IOException, SessionDataCorruptedException {
+        for (ISessionSink sink : sinks) {
+            sink.writeHeader(session);
+        }
+        Iterator<SingleGameResult> it = session.iterator();
+        while (it.hasNext()) {
+            SingleGameResult result = it.next();
+            for (ISessionSink sink : sinks) {
+                sink.writeGame(session, result);
+            }
+        }
+        for (ISessionSink sink : sinks) {
+            sink.finish();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import android.support.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A preview of a saved session: the names of the players and the amount of games.
+ * A summary is read without constructing a {@link sheepshead.manager.session.Session}: for csv files only the
+ * header is parsed and the non-empty lines of the body are counted (compressed csv files are decompressed), for binary files (see {@link BinarySessionWriter})
+ * the header already contains the amount of games.
+ */
+public final class SessionSummary {
+
+    private final List<String> playerNames;
+    private final int gameAmount;
+
+    private SessionSummary(List<String> playerNames, int gameAmount) {
+        this.playerNames = Collections.unmodifiableList(playerNames);
+        this.gameAmount = gameAmount;
+    }
+
+    /**
+     * Reads the summary of the given file
+     *
+     * @param file   A csv or binary session file
+     * @param format The format of csv files
+     * @return the summary of the file
+     * @throws IOException                   When reading the file produced IO errors
+     * @throws SessionDataCorruptedException When the header of the file is corrupted
+     */
+    public static SessionSummary readFrom(@NonNull File file, @NonNull CSVFormat format) throws IOException, SessionDataCorruptedException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            return readFrom(in, format);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the summary of the session in the given stream
+     *
+     * @param inputStream A stream containing a csv or binary session, supporting {@link InputStream#mark(int)}
+     * @param format      The format of csv data
+     * @return the summary of the session
+     * @throws IOException                   When reading the stream produced IO errors
+     * @throws SessionDataCorruptedException When the header is corrupted
+     */
+    public static SessionSummary readFrom(@NonNull InputStream inputStream, @NonNull CSVFormat format) throws IOException, SessionDataCorruptedException {
+        byte[] magic = new byte[BinarySessionWriter.MAGIC.length];
+        inputStream.mark(magic.length);
+        int read = 0;
+        int r;
+        while (read < magic.length && (r = inputStream.read(magic, read, magic.length - read)) != -1) {
+            read += r;
+        }
+        inputStream.reset();
+        if (read == magic.length && Arrays.equals(magic, BinarySessionWriter.MAGIC)) {
+            BinarySessionReader.Header header = BinarySessionReader.readHeader(inputStream);
+            return new SessionSummary(header.names, header.gameCount);
+        }
+        return readCSV(new InputStreamReader(CSVFormat.Compression.decompress(inputStream), format.getEncoding()), format);
+    }
+
+    private static SessionSummary readCSV(java.io.Reader reader, CSVFormat format) throws IOException, SessionDataCorruptedException {
+        char[] buffer = new char[8192];
+        StringBuilder header = new StringBuilder();
+        boolean headerDone = false;
+        boolean lineHasContent = false;
+        int games = 0;
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            int i = 0;
+            if (!headerDone) {
+                while (i < read && buffer[i] != '\n' && buffer[i] != '\r') {
+                    i++;
+                }
+                header.append(buffer, 0, i);
+                headerDone = i < read;
+            }
+            //count the lines of the body that contain cells
+            for (; i < read; i++) {
+                char c = buffer[i];
+                if (c == '\n' || c == '\r') {
+                    if (lineHasContent) {
+                        games++;
+                    }
+                    lineHasContent = false;
+                } else if (c != format.getSeparator()) {
+                    lineHasContent = true;
+                }
+            }
+        }
+        if (lineHasContent) {
+            games++;
+        }
+        List<String> cells = new ArrayList<>();
+        if (!new CSVTokenizer(format.getSeparator(), format.getEscape()).tokenize(header, cells)) {
+            throw new SessionDataCorruptedException("Empty header!");
+        }
+        List<String> names = cells;
+        if (format.getReader() instanceof SessionCSVReader.SummaryReader) {
+            names = ((SessionCSVReader.SummaryReader) format.getReader()).readPlayerNames(cells);
+        }
+        return new SessionSummary(names, games);
+    }
+
+    /**
+     * @return The names of the players in the order of the session
+     */
+    public List<String> getPlayerNames() {
+        return playerNames;
+    }
+
+    /**
+     * @return The amount of games in the session
+     */
+    public int getGameAmount() {
+        return gameAmount;
+    }
+}
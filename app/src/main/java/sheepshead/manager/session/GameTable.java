@@ -0,0 +1,745 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.session;
+
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import sheepshead.manager.game.GameType;
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.PlayerRole;
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.game.StakeModifier;
+import sheepshead.manager.serialization.SessionDataCorruptedException;
+
+/**
+ * Columnar storage for the game results of a {@link Session}.
+ * Instead of keeping one {@link SingleGameResult} with its {@link PlayerRole}s and {@link StakeModifier}
+ * per game, all games are stored in parallel primitive arrays:
+ * <li>the index of the player (its id, see {@link Player#getId()}) for each seat</li>
+ * <li>a caller/winner bitmask (bit i: seat i is caller, bit {@link #SEATS} + i: seat i is winner)</li>
+ * <li>money for each seat</li>
+ * <li>the game type ordinal and the packed stake modifier word (see {@link StakeModifier#getPackedWord()})</li>
+ * <li>the balance of every player after the game, also of players that did not participate.
+ * These are the prefix sums of the money of each player, so the balance or the earnings of a player
+ * for any range of games can be looked up directly</li>
+ * <br>
+ * The arrays are split into pages of {@link #PAGE_SIZE} games, so growing the table never copies
+ * already stored games.
+ * Game results are read through flyweight views (see {@link #iterator(boolean)}) that are repositioned
+ * instead of allocated for every game.
+ * <br>
+ * Pages are shared with snapshots (see {@link #snapshot(Player[])}). A page that may be visible to a
+ * snapshot is copied before one of its visible games is changed (copy on write), appending games
+ * never copies a page.
+ * <br>
+ * A table can be backed by a {@link ISessionPageSource}, then pages are loaded from the source when a game
+ * of the page is accessed, and pages that are unchanged since they were loaded can be dropped again
+ * (see {@link #evict(int)}).
+ */
+final class GameTable {
+
+    static final int PAGE_SHIFT = 8;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+    static final int SEATS = SingleGameResult.PLAYERS_PER_GAME;
+
+    private static final GameType[] GAME_TYPES = GameType.values();
+
+    /**
+     * The players of the session, indexed by player index
+     */
+    private final Player[] players;
+    /**
+     * The amount of players, i.e. the amount of balances stored per game
+     */
+    private final int playerCount;
+    private Page[] pages;
+    private int size;
+    /**
+     * Incremented with every snapshot, pages of an older generation may be shared with a snapshot
+     */
+    private int generation;
+    /**
+     * The games below this index may be visible to a snapshot
+     */
+    private int sharedSize;
+    /**
+     * True if the page array itself is shared with a snapshot
+     */
+    private boolean pagesShared;
+    /**
+     * The source of pages that are not loaded, or null if all pages are on the heap
+     */
+    @Nullable
+    private final ISessionPageSource source;
+    /**
+     * The amount of games in the source
+     */
+    private final int sourceSize;
+    /**
+     * The difference between the balances of the table and the balances in the source, for every page that only
+     * contains games of the source and every player, or null if there is none. Changing an earlier game
+     * (see {@link #addToBalances(int, int[])}) only updates these differences for such pages, which are added
+     * when a page is loaded, so the page can stay unloaded or still be dropped
+     */
+    @Nullable
+    private int[] sourceDeltas;
+    /**
+     * True if the source deltas are shared with a snapshot
+     */
+    private boolean sourceDeltasShared;
+
+    /**
+     * @param players The players of the session, the position in the array is the player index
+     */
+    GameTable(Player[] players) {
+        this(players, new Page[4], 0, null, 0);
+    }
+
+    /**
+     * Creates a table containing the games of the given source, no page is loaded yet
+     *
+     * @param players    The players of the session, the position in the array is the player index
+     * @param source     The source to load the pages from
+     * @param sourceSize The amount of games in the source
+     */
+    GameTable(Player[] players, @NonNull ISessionPageSource source, int sourceSize) {
+        this(players, new Page[Math.max(4, (sourceSize >>> PAGE_SHIFT) + 1)], sourceSize, source, sourceSize);
+    }
+
+    private GameTable(Player[] players, Page[] pages, int size, @Nullable ISessionPageSource source, int sourceSize) {
+        this.players = players;
+        playerCount = players.length;
+        this.pages = pages;
+        this.size = size;
+        this.source = source;
+        this.sourceSize = sourceSize;
+    }
+
+    /**
+     * Creates a table that shares all pages with this table in constant time. Later changes of this
+     * table are not visible in the returned table. The returned table must not be changed.
+     *
+     * @param snapshotPlayers The players of the snapshot, in the same order as the players of this table
+     * @return a table containing the currently stored games
+     */
+    GameTable snapshot(Player[] snapshotPlayers) {
+        GameTable snapshot = new GameTable(snapshotPlayers, pages, size, source, sourceSize);
+        //the snapshot copies the array before it stores a loaded page
+        snapshot.pagesShared = true;
+        pagesShared = true;
+        snapshot.sourceDeltas = sourceDeltas;
+        sourceDeltasShared = true;
+        sharedSize = Math.max(sharedSize, size);
+        generation++;
+        return snapshot;
+    }
+
+    /**
+     * @return The amount of stored games
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Appends a game that is already calculated (i.e. the money of its roles is set).
+     * The balances of the players are continued from the previous game
+     *
+     * @param game          The game to append
+     * @param playerIndices the player index for each seat of the game
+     */
+    void add(SingleGameResult game, int[] playerIndices) {
+        int pageIndex = size >>> PAGE_SHIFT;
+        if (pageIndex == pages.length) {
+            pages = Arrays.copyOf(pages, pages.length * 2);
+            pagesShared = false;
+        }
+        if (pages[pageIndex] == null) {
+            if ((size & PAGE_MASK) != 0) {
+                //the page already contains games, but is not loaded
+                loadPage(pageIndex);
+            } else {
+                //a snapshot never reads beyond its own size, so the slot can be filled in a shared array
+                pages[pageIndex] = new Page(playerCount, generation);
+            }
+        }
+        size++;
+        int index = size - 1;
+        set(index, game, playerIndices);
+        Page page = writablePage(index);
+        int offset = (index & PAGE_MASK) * playerCount;
+        if (index > 0) {
+            Page previous = page(index - 1);
+            System.arraycopy(previous.balances, ((index - 1) & PAGE_MASK) * playerCount, page.balances, offset, playerCount);
+        } else {
+            Arrays.fill(page.balances, offset, offset + playerCount, 0);
+        }
+        for (int seat = 0; seat < SEATS; seat++) {
+            page.balances[offset + playerIndices[seat]] += getMoney(index, seat);
+        }
+    }
+
+    /**
+     * Overwrites the stored game at the given index with a game that is already calculated.
+     * The balances are not changed, use {@link #addToBalances(int, int[])} to correct them
+     *
+     * @param index         index of the game to overwrite
+     * @param game          The new game
+     * @param playerIndices the player index for each seat of the game
+     */
+    void set(int index, SingleGameResult game, int[] playerIndices) {
+        page(index);//bounds check
+        writeRow(writablePage(index), index & PAGE_MASK, game, playerIndices);
+    }
+
+    private static void writeRow(Page page, int row, SingleGameResult game, int[] playerIndices) {
+        int roles = 0;
+        int seat = 0;
+        for (PlayerRole role : game.getParticipants()) {
+            int cell = row * SEATS + seat;
+            page.players[cell] = playerIndices[seat];
+            page.money[cell] = role.getMoney();
+            if (role.isCaller()) {
+                roles |= 1 << seat;
+            }
+            if (role.isWinner()) {
+                roles |= 1 << (SEATS + seat);
+            }
+            seat++;
+        }
+        page.roles[row] = (byte) roles;
+        page.gameTypes[row] = (byte) game.getGameType().ordinal();
+        page.modifiers[row] = game.getStakeModifier().getPackedWord();
+    }
+
+    /**
+     * Removes the game at the given index, all later games move up by one
+     *
+     * @param index index of the game to remove
+     */
+    void remove(int index) {
+        page(index);//bounds check
+        for (int game = index; game < size - 1; game++) {
+            Page to = writablePage(game);
+            Page from = page(game + 1);
+            int toRow = game & PAGE_MASK;
+            int fromRow = (game + 1) & PAGE_MASK;
+            System.arraycopy(from.players, fromRow * SEATS, to.players, toRow * SEATS, SEATS);
+            System.arraycopy(from.money, fromRow * SEATS, to.money, toRow * SEATS, SEATS);
+            System.arraycopy(from.balances, fromRow * playerCount, to.balances, toRow * playerCount, playerCount);
+            to.roles[toRow] = from.roles[fromRow];
+            to.gameTypes[toRow] = from.gameTypes[fromRow];
+            to.modifiers[toRow] = from.modifiers[fromRow];
+        }
+        size--;
+    }
+
+    /**
+     * Adds the given per player difference to the stored balances of all games starting at the given index.
+     * Pages that only contain unchanged games of the source are not loaded or marked as changed,
+     * the difference is added when they are loaded (see {@link #sourceDeltas})
+     *
+     * @param from  index of the first game to correct
+     * @param delta the difference for each player index
+     */
+    void addToBalances(int from, int[] delta) {
+        int game = from;
+        while (game < size) {
+            int pageIndex = game >>> PAGE_SHIFT;
+            int end = Math.min((pageIndex + 1) << PAGE_SHIFT, size);
+            Page page = pages[pageIndex];
+            if ((game & PAGE_MASK) == 0 && end <= sourceSize && (page == null || page.clean)) {
+                addToSourceDelta(pageIndex, delta);
+                if (page != null) {
+                    //the loaded page stays clean, as it matches the source with the new difference
+                    addToRows(ownPage(game), 0, end - game, delta);
+                }
+            } else {
+                addToRows(writablePage(game), game & PAGE_MASK, end - game, delta);
+            }
+            game = end;
+        }
+    }
+
+    private void addToRows(Page page, int firstRow, int rows, int[] delta) {
+        for (int row = firstRow; row < firstRow + rows; row++) {
+            int offset = row * playerCount;
+            for (int player = 0; player < playerCount; player++) {
+                page.balances[offset + player] += delta[player];
+            }
+        }
+    }
+
+    private void addToSourceDelta(int pageIndex, int[] delta) {
+        if (sourceDeltas == null) {
+            int sourcePages = (sourceSize + PAGE_MASK) >>> PAGE_SHIFT;
+            sourceDeltas = new int[sourcePages * playerCount];
+        } else if (sourceDeltasShared) {
+            sourceDeltas = sourceDeltas.clone();
+        }
+        sourceDeltasShared = false;
+        int offset = pageIndex * playerCount;
+        for (int player = 0; player < playerCount; player++) {
+            sourceDeltas[offset + player] += delta[player];
+        }
+    }
+
+    /**
+     * Returns the page of the given game for writing and marks it as changed, see {@link #ownPage(int)}
+     *
+     * @param game index of a game inside the table
+     * @return the page that contains the game and is not shared with any snapshot
+     */
+    private Page writablePage(int game) {
+        Page page = ownPage(game);
+        //the page differs from the source from now on
+        page.clean = false;
+        return page;
+    }
+
+    /**
+     * Returns the page of the given game for writing. If the game may be visible to a snapshot,
+     * the page is copied first.
+     *
+     * @param game index of a game inside the table
+     * @return the page that contains the game and is not shared with any snapshot
+     */
+    private Page ownPage(int game) {
+        int pageIndex = game >>> PAGE_SHIFT;
+        Page page = pages[pageIndex];
+        if (page == null) {
+            page = loadPage(pageIndex);
+        }
+        if (game < sharedSize && page.generation != generation) {
+            page = new Page(page, generation);
+            storePage(pageIndex, page);
+        }
+        return page;
+    }
+
+    private Page page(int game) {
+        if (game < 0 || game >= size) {
+            throw new IndexOutOfBoundsException("Game " + game + ", size " + size);
+        }
+        Page page = pages[game >>> PAGE_SHIFT];
+        if (page == null) {
+            page = loadPage(game >>> PAGE_SHIFT);
+        }
+        return page;
+    }
+
+    private void storePage(int pageIndex, @Nullable Page page) {
+        if (pagesShared) {
+            pages = pages.clone();
+            pagesShared = false;
+        }
+        pages[pageIndex] = page;
+    }
+
+    /**
+     * Loads the given page from the source
+     *
+     * @param pageIndex index of a page that only contains games of the source
+     * @return the loaded page
+     * @throws PageLoadException If the page cannot be loaded
+     */
+    private Page loadPage(int pageIndex) {
+        try {
+            return readPage(pageIndex);
+        } catch (IOException | SessionDataCorruptedException e) {
+            int from = pageIndex << PAGE_SHIFT;
+            throw new PageLoadException("Could not load games " + from + "-" + Math.min(from + PAGE_SIZE, sourceSize), e);
+        }
+    }
+
+    /**
+     * Reads the given page from the source and stores it
+     *
+     * @param pageIndex index of a page that only contains games of the source
+     * @return the loaded page
+     * @throws IOException                   When reading the source produced IO errors, or there is no source
+     * @throws SessionDataCorruptedException When the games in the source are corrupted
+     */
+    private Page readPage(int pageIndex) throws IOException, SessionDataCorruptedException {
+        int from = pageIndex << PAGE_SHIFT;
+        int to = Math.min(from + PAGE_SIZE, sourceSize);
+        if (source == null || from >= to) {
+            throw new IOException("Games " + from + "-" + to + " are not available");
+        }
+        int[] balances = new int[playerCount];
+        List<SingleGameResult> games = source.readGames(from, to, balances);
+        if (sourceDeltas != null) {
+            for (int player = 0; player < playerCount; player++) {
+                balances[player] += sourceDeltas[pageIndex * playerCount + player];
+            }
+        }
+        Page page = new Page(playerCount, generation);
+        int[] playerIndices = new int[SEATS];
+        int row = 0;
+        for (SingleGameResult game : games) {
+            int seat = 0;
+            for (PlayerRole role : game.getParticipants()) {
+                playerIndices[seat] = role.getPlayer().getId();
+                balances[playerIndices[seat]] += role.getMoney();
+                seat++;
+            }
+            writeRow(page, row, game, playerIndices);
+            System.arraycopy(balances, 0, page.balances, row * playerCount, playerCount);
+            row++;
+        }
+        page.clean = true;
+        storePage(pageIndex, page);
+        return page;
+    }
+
+    /**
+     * Makes sure that the pages containing the given games are loaded
+     *
+     * @param from index of the first game (inclusive)
+     * @param to   index of the last game (exclusive)
+     * @throws IOException                   When reading the source produced IO errors, or the source is closed
+     * @throws SessionDataCorruptedException When the games in the source are corrupted
+     * @throws IndexOutOfBoundsException     If the range is not inside the stored games
+     */
+    void load(int from, int to) throws IOException, SessionDataCorruptedException {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range " + from + "-" + to + ", size " + size);
+        }
+        for (int game = from; game < to; game += PAGE_SIZE - (game & PAGE_MASK)) {
+            if (pages[game >>> PAGE_SHIFT] == null) {
+                readPage(game >>> PAGE_SHIFT);
+            }
+        }
+    }
+
+    /**
+     * Closes the source of the pages, pages that are not loaded cannot be loaded afterwards.
+     * Does nothing if the table has no source.
+     *
+     * @throws IOException When closing the source produced IO errors
+     */
+    void close() throws IOException {
+        if (source != null) {
+            source.close();
+        }
+    }
+
+    /**
+     * Drops all loaded pages that can be loaded again from the source and that do not contain
+     * one of the latest games
+     *
+     * @param keepLatest The amount of latest games whose pages are kept
+     * @return The amount of dropped pages
+     */
+    int evict(int keepLatest) {
+        if (source == null) {
+            return 0;
+        }
+        int evicted = 0;
+        int end = Math.max(0, size - keepLatest) >>> PAGE_SHIFT;
+        for (int pageIndex = 0; pageIndex < end; pageIndex++) {
+            Page page = pages[pageIndex];
+            if (page != null && page.clean) {
+                storePage(pageIndex, null);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    int getPlayerIndex(int game, int seat) {
+        return page(game).players[(game & PAGE_MASK) * SEATS + seat];
+    }
+
+    int getMoney(int game, int seat) {
+        return page(game).money[(game & PAGE_MASK) * SEATS + seat];
+    }
+
+    int getBalance(int game, int seat) {
+        return getPlayerBalance(game, getPlayerIndex(game, seat));
+    }
+
+    /**
+     * @param game   index of the game, -1 for the balance before the first game
+     * @param player the player index
+     * @return the balance of the player after the given game
+     */
+    int getPlayerBalance(int game, int player) {
+        if (game == -1) {
+            return 0;
+        }
+        return page(game).balances[(game & PAGE_MASK) * playerCount + player];
+    }
+
+    /**
+     * @return the caller/winner bitmask of the given game
+     */
+    int getRoles(int game) {
+        return page(game).roles[game & PAGE_MASK] & 0xFF;
+    }
+
+    GameType getGameType(int game) {
+        return GAME_TYPES[page(game).gameTypes[game & PAGE_MASK]];
+    }
+
+    int getModifier(int game) {
+        return page(game).modifiers[game & PAGE_MASK];
+    }
+
+    /**
+     * Creates a new, independent {@link SingleGameResult} for the given game
+     *
+     * @param game index of the game
+     * @return a copy of the stored game
+     */
+    SingleGameResult materialize(int game) {
+        int roles = getRoles(game);
+        List<PlayerRole> participants = new ArrayList<>(SEATS);
+        for (int seat = 0; seat < SEATS; seat++) {
+            PlayerRole role = new PlayerRole(players[getPlayerIndex(game, seat)],
+                    (roles & (1 << seat)) != 0, (roles & (1 << (SEATS + seat))) != 0);
+            role.setMoney(getMoney(game, seat));
+            role.setPlayerBalance(getBalance(game, seat));
+            participants.add(role);
+        }
+        StakeModifier modifier = new StakeModifier();
+        modifier.setPackedWord(getModifier(game));
+        return new SingleGameResult(participants, getGameType(game), modifier);
+    }
+
+    /**
+     * Returns an iterator over flyweight views of all games.
+     * Note: The iterator returns the same view instance in every step, so a returned result is only
+     * valid until the next call of {@link Iterator#next()}. Use {@link #materialize(int)} to keep a result.
+     *
+     * @param latestFirst true to iterate from the latest to the oldest game
+     * @return an iterator over all stored games
+     */
+    Iterator<SingleGameResult> iterator(final boolean latestFirst) {
+        return new Iterator<SingleGameResult>() {
+            private final ResultView view = new ResultView();
+            private int next = latestFirst ? size - 1 : 0;
+
+            @Override
+            public boolean hasNext() {
+                return latestFirst ? next >= 0 : next < size;
+            }
+
+            @Override
+            public SingleGameResult next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                view.moveTo(next);
+                next += latestFirst ? -1 : 1;
+                return view;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Use Session#removeLatestGameResult");
+            }
+        };
+    }
+
+    /**
+     * One page of games
+     */
+    private static final class Page {
+        final int[] players = new int[PAGE_SIZE * SEATS];
+        final int[] money = new int[PAGE_SIZE * SEATS];
+        final byte[] roles = new byte[PAGE_SIZE];
+        final byte[] gameTypes = new byte[PAGE_SIZE];
+        final int[] modifiers = new int[PAGE_SIZE];
+        /**
+         * The balance of every player after each game
+         */
+        final int[] balances;
+        /**
+         * The generation of the table when this page was created
+         */
+        final int generation;
+        /**
+         * True if the page was loaded from the source and not changed since
+         */
+        boolean clean;
+
+        Page(int playerCount, int generation) {
+            balances = new int[PAGE_SIZE * playerCount];
+            this.generation = generation;
+        }
+
+        /**
+         * Creates a copy of the given page
+         */
+        Page(Page source, int generation) {
+            System.arraycopy(source.players, 0, players, 0, players.length);
+            System.arraycopy(source.money, 0, money, 0, money.length);
+            System.arraycopy(source.roles, 0, roles, 0, roles.length);
+            System.arraycopy(source.gameTypes, 0, gameTypes, 0, gameTypes.length);
+            System.arraycopy(source.modifiers, 0, modifiers, 0, modifiers.length);
+            balances = source.balances.clone();
+            this.generation = generation;
+            clean = source.clean;
+        }
+    }
+
+    /**
+     * Read-only flyweight view of one stored player role
+     */
+    private final class RoleView extends PlayerRole {
+        private final int seat;
+        /**
+         * The game this view is positioned on, -1 if not positioned yet
+         */
+        private int game;
+
+        RoleView(int seat) {
+            super(players[seat], false, false);
+            this.seat = seat;
+            game = -1;
+        }
+
+        @NonNull
+        @Override
+        public Player getPlayer() {
+            if (game == -1) {
+                return super.getPlayer();
+            }
+            return players[getPlayerIndex(game, seat)];
+        }
+
+        @Override
+        public boolean isCaller() {
+            return (getRoles(game) & (1 << seat)) != 0;
+        }
+
+        @Override
+        public boolean isWinner() {
+            return (getRoles(game) & (1 << (SEATS + seat))) != 0;
+        }
+
+        @Override
+        public int getMoney() {
+            return GameTable.this.getMoney(game, seat);
+        }
+
+        @Override
+        public int getPlayerBalance() {
+            return getBalance(game, seat);
+        }
+
+        @Override
+        public void setMoney(int money) {
+            throw new UnsupportedOperationException("Stored game results are read-only");
+        }
+
+        @Override
+        public void setPlayerBalance(int newBalance) {
+            throw new UnsupportedOperationException("Stored game results are read-only");
+        }
+    }
+
+    /**
+     * Read-only flyweight view of one stored game result
+     */
+    private final class ResultView extends SingleGameResult {
+        private final RoleView[] roles;
+        /**
+         * The roles of the current game indexed by player index
+         */
+        private final RoleView[] seatTable;
+        private final StakeModifier modifier;
+        private int game;
+        private long participantMask;
+
+        ResultView() {
+            this(new RoleView[SEATS]);
+        }
+
+        private ResultView(RoleView[] roles) {
+            super(createRoles(roles), GameType.LEER, new StakeModifier());
+            this.roles = roles;
+            seatTable = new RoleView[playerCount];
+            modifier = new StakeModifier();
+        }
+
+        void moveTo(int game) {
+            this.game = game;
+            Arrays.fill(seatTable, null);
+            participantMask = 0;
+            for (RoleView role : roles) {
+                role.game = game;
+                int player = getPlayerIndex(game, role.seat);
+                seatTable[player] = role;
+                if (player < Long.SIZE) {
+                    participantMask |= 1L << player;
+                }
+            }
+            modifier.setPackedWord(getModifier(game));
+        }
+
+        @Nullable
+        @Override
+        public PlayerRole findRole(Player p) {
+            int id = p.getId();
+            if (id >= 0 && id < playerCount && players[id] == p) {
+                return seatTable[id];
+            }
+            return null;
+        }
+
+        @Override
+        public long getParticipantMask() {
+            return participantMask;
+        }
+
+        @Override
+        public void calculate(Stake stake) {
+            throw new UnsupportedOperationException("Stored game results are already calculated");
+        }
+
+        @Override
+        public GameType getGameType() {
+            return GameTable.this.getGameType(game);
+        }
+
+        @Override
+        public StakeModifier getStakeModifier() {
+            return modifier;
+        }
+    }
+
+    private List<PlayerRole> createRoles(RoleView[] roles) {
+        List<PlayerRole> list = new ArrayList<>(SEATS);
+        for (int seat = 0; seat < SEATS; seat++) {
+            roles[seat] = new RoleView(seat);
+            list.add(roles[seat]);
+        }
+        return list;
+    }
+}
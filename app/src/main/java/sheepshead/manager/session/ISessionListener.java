@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.session;
+
+
+import android.support.annotation.NonNull;
+
+import sheepshead.manager.game.SingleGameResult;
+
+/**
+ * Interface for instances that want to be notified whenever the game results of a {@link Session} change.
+ * Listeners are registered with {@link Session#addListener(ISessionListener)} and are called after
+ * the session has been updated
+ */
+public interface ISessionListener {
+
+    /**
+     * Called after a game result was added to the session
+     *
+     * @param session The session that changed
+     * @param game    The added game result (already accounted with the player balances)
+     */
+    void onGameAdded(@NonNull Session session, @NonNull SingleGameResult game);
+
+    /**
+     * Called after a game result was removed from the session
+     *
+     * @param session The session that changed
+     * @param index   The position the removed game had in the session
+     * @param removed The removed game result
+     */
+    void onGameRemoved(@NonNull Session session, int index, @NonNull SingleGameResult removed);
+
+    /**
+     * Called after a game result of the session was replaced
+     *
+     * @param session The session that changed
+     * @param index    The position of the replaced game
+     * @param replaced The old game result
+     * @param game     The new game result (already accounted with the player balances)
+     */
+    void onGameReplaced(@NonNull Session session, int index, @NonNull SingleGameResult replaced, @NonNull SingleGameResult game);
+}
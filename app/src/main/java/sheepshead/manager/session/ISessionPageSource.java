@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.session;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.serialization.SessionDataCorruptedException;
+
+/**
+ * Interface for a persistent store of the games of a session, from which a paged {@link Session} loads
+ * the games it does not keep in memory (see {@link Session#Session(List, Stake, int, ISessionPageSource)}).
+ * Implementations must be thread safe, as snapshots of the session may be read on another thread.
+ * The source is closed by {@link Session#close()}.
+ */
+public interface ISessionPageSource extends Closeable {
+
+    /**
+     * Reads a range of games
+     *
+     * @param from           position of the first game (inclusive)
+     * @param to             position after the last game (exclusive)
+     * @param balancesBefore Receives the balance of every player before the first game, indexed by the
+     *                       position of the player in the session
+     * @return The games of the range with the money of each role set. The id of each player
+     * (see {@link sheepshead.manager.game.Player#getId()}) is its position in the session
+     * @throws IOException                   When reading the games produced IO errors
+     * @throws SessionDataCorruptedException When the stored games are corrupted
+     */
+    List<SingleGameResult> readGames(int from, int to, int[] balancesBefore) throws IOException, SessionDataCorruptedException;
+}
@@ -30,29 +30,102 @@ import sheepshead.manager.game.PlayerRole;
 import sheepshead.manager.game.SingleGameResult;
 import sheepshead.manager.game.StakeModifier;
 import sheepshead.manager.serialization.CSVCellContent;
+import sheepshead.manager.serialization.LoadReport;
 import sheepshead.manager.serialization.SessionCSVReader;
 import sheepshead.manager.serialization.SessionDataCorruptedException;
 
 /**
  * Implementation for the internal load and save format
  */
-public class InternalSessionReader implements SessionCSVReader.Reader {
+public class InternalSessionReader implements SessionCSVReader.ParallelReader<SingleGameResult>, SessionCSVReader.SummaryReader,
+        SessionCSVReader.SalvageReader {
 
     private Session session;
+    /**
+     * Reads the entries of every cell
+     */
+    private final CSVCellContent.Reader cellReader = CSVCellContent.createReader(InternalSessionWriter.contentSeparator);
+
+    /**
+     * Lets this reader append all further games to the given session instead of building a new
+     * session from a header. Used when replaying a {@link SessionJournal}
+     *
+     * @param existing The session to continue
+     */
+    void continueWith(Session existing) {
+        session = existing;
+    }
 
     @Override
     public void readHeader(List<String> headerCellContent) throws SessionDataCorruptedException {
         try {
             //all the header contains are the names of the players + the serialized stake
-            CSVCellContent.Reader stakeData = new CSVCellContent(headerCellContent.get(headerCellContent.size() - 1), InternalSessionWriter.contentSeparator).getReader();
+            CSVCellContent.Reader stakeData = cellReader.reset(headerCellContent.get(headerCellContent.size() - 1));
             session = new Session(headerCellContent.subList(0, headerCellContent.size() - 1), new Stake(stakeData));
         } catch (Exception e) {
             throw new SessionDataCorruptedException("When reading the header (" + headerCellContent + "): ", e);
         }
     }
 
+    @Override
+    public List<String> readPlayerNames(List<String> headerCellContent) throws SessionDataCorruptedException {
+        //the last cell of the header is the stake
+        if (headerCellContent.size() < 2) {
+            throw new SessionDataCorruptedException("Header contains no players (" + headerCellContent + ")");
+        }
+        return new ArrayList<>(headerCellContent.subList(0, headerCellContent.size() - 1));
+    }
+
     @Override
     public void readGame(List<String> rowContent) throws SessionDataCorruptedException {
+        SingleGameResult game = parseGame(rowContent, cellReader);
+        try {
+            session.addGame(game);
+        } catch (Exception e) {
+            throw new SessionDataCorruptedException("When reading row (" + rowContent + "): ", e);
+        }
+    }
+
+    @Override
+    public void readGame(List<String> rowContent, LoadReport report, int row) throws SessionDataCorruptedException {
+        SingleGameResult game = parseGame(rowContent, cellReader);
+        Collection<PlayerRole> roles = game.getParticipants();
+        int[] storedMoney = new int[roles.size()];
+        int[] storedBalance = new int[roles.size()];
+        int i = 0;
+        for (PlayerRole role : roles) {
+            storedMoney[i] = role.getMoney();
+            storedBalance[i] = role.getPlayerBalance();
+            i++;
+        }
+        try {
+            session.addGame(game);
+        } catch (Exception e) {
+            throw new SessionDataCorruptedException("When reading row (" + rowContent + "): ", e);
+        }
+        //the recalculated values are kept, the stored values are only checked
+        i = 0;
+        for (PlayerRole role : roles) {
+            if (role.getMoney() != storedMoney[i] || role.getPlayerBalance() != storedBalance[i]) {
+                report.addProblem(row, "Stored money/balance of " + role.getPlayer().getName() + " was " + storedMoney[i] + "/"
+                        + storedBalance[i] + ", recalculated " + role.getMoney() + "/" + role.getPlayerBalance());
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Parses the data describing one game without adding it to the session
+     *
+     * @param rowContent The contents of all cells belonging to the game
+     * @return The parsed game result
+     * @throws SessionDataCorruptedException If the data does not describe a game of the session
+     */
+    SingleGameResult parseGame(List<String> rowContent) throws SessionDataCorruptedException {
+        return parseGame(rowContent, cellReader);
+    }
+
+    private SingleGameResult parseGame(List<String> rowContent, CSVCellContent.Reader cellReader) throws SessionDataCorruptedException {
         Collection<Player> players = session.getPlayers();
         if (rowContent.size() != players.size() + 2) {
             throw new SessionDataCorruptedException("Row size does not match player size + game type + stake modifier (here: " + TextUtils.join(",", rowContent));
@@ -63,21 +136,40 @@ public class InternalSessionReader implements SessionCSVReader.Reader {
             for (Player player : session.getPlayers()) {
                 String playerRoleRaw = it.next();
                 if (!playerRoleRaw.isEmpty()) {
-                    CSVCellContent.Reader roleData = new CSVCellContent(playerRoleRaw, InternalSessionWriter.contentSeparator).getReader();
-                    playerRoles.add(new PlayerRole(player, roleData));
+                    playerRoles.add(new PlayerRole(player, cellReader.reset(playerRoleRaw)));
                 }
             }
 
             //next is the game type
-            GameType gameType = GameType.getGameType(new CSVCellContent(it.next(), InternalSessionWriter.contentSeparator).getReader());
+            GameType gameType = GameType.getGameType(cellReader.reset(it.next()));
             //and the stake modifier
-            StakeModifier modifier = new StakeModifier(new CSVCellContent(it.next(), InternalSessionWriter.contentSeparator).getReader());
-            session.addGame(new SingleGameResult(playerRoles, gameType, modifier));
+            StakeModifier modifier = new StakeModifier(cellReader.reset(it.next()));
+            return new SingleGameResult(playerRoles, gameType, modifier);
         } catch (Exception e) {
             throw new SessionDataCorruptedException("When reading row (" + rowContent + "): ", e);
         }
     }
 
+    @Override
+    public SessionCSVReader.GameDecoder<SingleGameResult> createDecoder() {
+        final CSVCellContent.Reader decoderCellReader = CSVCellContent.createReader(InternalSessionWriter.contentSeparator);
+        return new SessionCSVReader.GameDecoder<SingleGameResult>() {
+            @Override
+            public SingleGameResult decodeGame(List<String> rowContent) throws SessionDataCorruptedException {
+                return parseGame(rowContent, decoderCellReader);
+            }
+        };
+    }
+
+    @Override
+    public void addGame(SingleGameResult game) throws SessionDataCorruptedException {
+        try {
+            session.addGame(game);
+        } catch (Exception e) {
+            throw new SessionDataCorruptedException("When adding game " + (session.getGameAmount() + 1) + ": ", e);
+        }
+    }
+
     @Override
     public Session buildSession() {
         return session;
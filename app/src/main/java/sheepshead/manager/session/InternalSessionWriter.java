@@ -17,13 +17,17 @@
 package sheepshead.manager.session;
 
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import sheepshead.manager.game.GameType;
 import sheepshead.manager.game.Player;
 import sheepshead.manager.game.PlayerRole;
 import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.game.StakeModifier;
 import sheepshead.manager.serialization.CSVCellContent;
+import sheepshead.manager.serialization.CSVLayout;
 import sheepshead.manager.serialization.SessionCSVWriter;
 import sheepshead.manager.serialization.SessionDataCorruptedException;
 
@@ -31,8 +35,13 @@ import sheepshead.manager.serialization.SessionDataCorruptedException;
 /**
  * Implementation for the internal load and save format
  */
-public class InternalSessionWriter implements SessionCSVWriter.Writer {
+public class InternalSessionWriter implements SessionCSVWriter.StreamingWriter {
     public static final char contentSeparator = '|';
+    /**
+     * The combined hash of the layouts of all cells of this format. It changes whenever the entries of a cell change
+     */
+    public static final int LAYOUT_HASH = CSVLayout.combinedHash(Stake.CSV_LAYOUT, PlayerRole.CSV_LAYOUT,
+            GameType.CSV_LAYOUT, StakeModifier.CSV_LAYOUT);
 
 
     @Override
@@ -72,4 +81,35 @@ public class InternalSessionWriter implements SessionCSVWriter.Writer {
         list.add(modifier.consume());
         return list;
     }
+
+    @Override
+    public void writeHeader(Session session, SessionCSVWriter.CellSink sink) throws IOException, SessionDataCorruptedException {
+        for (Player player : session.getPlayers()) {
+            sink.addCell(player.getName());
+        }
+        CSVCellContent cellContent = new CSVCellContent(contentSeparator);
+        session.getSessionStake().toCSVSerializableString(cellContent);
+        sink.addCell(cellContent.getContent());
+    }
+
+    @Override
+    public void writeGame(Session session, SingleGameResult result, SessionCSVWriter.CellSink sink) throws IOException, SessionDataCorruptedException {
+        //one content per row, the sink writes each cell out before the content is reset
+        CSVCellContent content = new CSVCellContent(contentSeparator);
+        for (Player player : session.getPlayers()) {
+            PlayerRole role = result.findRole(player);
+            content.reset();
+            if (role != null) {
+                role.toCSVSerializableString(content);
+            }
+            sink.addCell(content.getContent());
+        }
+        content.reset();
+        result.getGameType().toCSVSerializableString(content);
+        sink.addCell(content.getContent());
+
+        content.reset();
+        result.getStakeModifier().toCSVSerializableString(content);
+        sink.addCell(content.getContent());
+    }
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sheepshead.manager.session;
+
+
+/**
+ * Thrown when a paged {@link Session} cannot load games from its {@link ISessionPageSource}, e.g. while
+ * iterating over the games. Use {@link Session#loadGames(int, int)} to load the games up front and handle
+ * the failure as checked exception
+ */
+public class PageLoadException extends IllegalStateException {
+
+    /**
+     * @param message describes the games that could not be loaded
+     * @param cause   the error of the source, or null if the source is not available
+     */
+    PageLoadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -19,23 +19,31 @@ package sheepshead.manager.session;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
 import sheepshead.manager.game.Player;
 import sheepshead.manager.game.PlayerRole;
 import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.serialization.SessionDataCorruptedException;
 
 /**
  * A session holds all participating players, and all single games that have been entered by the user
  */
-public class Session {
+public class Session implements Closeable {
+
+    /**
+     * The amount of latest games a paged session always keeps in memory
+     */
+    public static final int RECENT_GAMES = GameTable.PAGE_SIZE;
 
     /**
      * All players in the session
@@ -45,10 +53,22 @@ public class Session {
      * The stake of the session
      */
     private final Stake sessionStake;
+    /**
+     * All players in the session, the position in the array is the id of the player
+     */
+    private final Player[] playerArray;
     /**
      * All saved games in the session
      */
-    private LinkedList<SingleGameResult> savedGames;
+    private final GameTable savedGames;
+    /**
+     * All listeners that are notified when games are added or removed
+     */
+    private final List<ISessionListener> listeners = new ArrayList<>();
+    /**
+     * True if this session is an immutable snapshot (see {@link #snapshot()})
+     */
+    private final boolean snapshot;
 
     /**
      * Creates a new session with the given players and the given stake
@@ -59,21 +79,75 @@ public class Session {
      * @throws IllegalArgumentException If the name list contains duplicate names
      */
     public Session(List<String> playerNames, Stake stake) {
+        this(playerNames, stake, null, 0);
+    }
+
+    /**
+     * Creates a paged session, whose games are stored in the given source. Only the latest
+     * {@link #RECENT_GAMES} games are loaded immediately, older games are loaded in pages when they
+     * are accessed and can be dropped again with {@link #trimMemory()}.
+     * Games that are changed (or moved by removing an earlier game) stay in memory.
+     *
+     * @param playerNames The names of the players, in the order of the source
+     * @param stake       The stake of the session
+     * @param gameAmount  The amount of games in the source
+     * @param source      The source of the games
+     * @throws IllegalArgumentException If less than 4 names are given
+     * @throws IllegalArgumentException If the name list contains duplicate names
+     * @throws PageLoadException       If the latest games cannot be loaded from the source
+     */
+    public Session(List<String> playerNames, Stake stake, int gameAmount, @NonNull ISessionPageSource source) {
+        this(playerNames, stake, source, gameAmount);
+        if (gameAmount > 0) {
+            try {
+                savedGames.load(Math.max(0, gameAmount - RECENT_GAMES), gameAmount);
+            } catch (IOException | SessionDataCorruptedException e) {
+                throw new PageLoadException("Could not load the latest games", e);
+            }
+            for (Player player : playerArray) {
+                player.setSessionMoney(savedGames.getPlayerBalance(gameAmount - 1, player.getId()));
+            }
+        }
+    }
+
+    private Session(List<String> playerNames, Stake stake, @Nullable ISessionPageSource source, int gameAmount) {
         if (playerNames.size() < SingleGameResult.PLAYERS_PER_GAME) {
             throw new IllegalArgumentException("The name list must contain at least " + SingleGameResult.PLAYERS_PER_GAME + " names");
         }
         if (containsDuplicates(playerNames)) {
             throw new IllegalArgumentException("Duplicate player names are not allowed");
         }
-        players = Collections.unmodifiableList(createPlayers(playerNames));
+        List<Player> playerList = createPlayers(playerNames);
+        players = Collections.unmodifiableList(playerList);
+        playerArray = playerList.toArray(new Player[playerList.size()]);
         sessionStake = stake;
-        savedGames = new LinkedList<>();
+        savedGames = source == null ? new GameTable(playerArray) : new GameTable(playerArray, source, gameAmount);
+        snapshot = false;
+    }
+
+    /**
+     * Creates an immutable snapshot of the given session
+     *
+     * @param source The session to take the snapshot of
+     */
+    private Session(Session source) {
+        playerArray = new Player[source.playerArray.length];
+        for (int i = 0; i < playerArray.length; i++) {
+            Player player = source.playerArray[i];
+            playerArray[i] = new Player(player.getName(), player.getId());
+            playerArray[i].setSessionMoney(player.getSessionMoney());
+        }
+        players = Collections.unmodifiableList(Arrays.asList(playerArray));
+        sessionStake = source.sessionStake;
+        savedGames = source.savedGames.snapshot(playerArray);
+        snapshot = true;
     }
 
     private static List<Player> createPlayers(List<String> playerNames) {
         List<Player> players = new ArrayList<>(playerNames.size());
         for (String name : playerNames) {
-            players.add(new Player(name));
+            //the id is the position in the player list
+            players.add(new Player(name, players.size()));
         }
         return players;
     }
@@ -97,22 +171,126 @@ public class Session {
      * @param game The game result to add
      */
     public void addGame(@NonNull SingleGameResult game) {
-        savedGames.add(game);
+        checkModifiable();
         game.calculate(sessionStake);
         //update players money
+        int[] playerIndices = new int[SingleGameResult.PLAYERS_PER_GAME];
+        int seat = 0;
         for (PlayerRole role : game.getParticipants()) {
             int delta = role.getMoney();
             Player player = role.getPlayer();
             player.setSessionMoney(player.getSessionMoney() + delta);
             role.setPlayerBalance(player.getSessionMoney());
+            playerIndices[seat] = indexOf(player);
+            seat++;
+        }
+        savedGames.add(game, playerIndices);
+        for (ISessionListener listener : listeners) {
+            listener.onGameAdded(this, game);
         }
     }
 
+    /**
+     * Returns an immutable snapshot of this session. The snapshot shares the stored games with this
+     * session, so it is created in constant time (regarding the amount of games). Games that are
+     * added, removed or replaced afterwards are not visible in the snapshot.
+     * <br>
+     * The snapshot may be read by another thread (e.g. to save it) while this session is changed.
+     * Its players are copies of the players of this session, which are frozen at the time of the
+     * snapshot. Trying to change the snapshot throws an {@link UnsupportedOperationException}.
+     *
+     * @return An immutable copy of this session
+     */
+    public Session snapshot() {
+        if (snapshot) {
+            return this;
+        }
+        return new Session(this);
+    }
+
+    /**
+     * @return true if this session is an immutable snapshot, see {@link #snapshot()}
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Drops the games of a paged session from memory that can be loaded again, the latest {@link #RECENT_GAMES}
+     * games are kept. Does nothing if the session is not paged.
+     */
+    public void trimMemory() {
+        savedGames.evict(RECENT_GAMES);
+    }
+
+    /**
+     * Loads the given games of a paged session into memory, so reading them afterwards (e.g. with {@link #iterator()})
+     * does not throw a {@link PageLoadException}, unless they are dropped again by {@link #trimMemory()}.
+     * Does nothing for games that are in memory or if the session is not paged.
+     *
+     * @param from position of the first game (inclusive), 0 is the first (oldest) game
+     * @param to   position after the last game (exclusive)
+     * @throws IOException                   When reading the source produced IO errors, or the source is closed
+     * @throws SessionDataCorruptedException When the games in the source are corrupted
+     * @throws IndexOutOfBoundsException     If the range is not inside the stored games
+     */
+    public void loadGames(int from, int to) throws IOException, SessionDataCorruptedException {
+        savedGames.load(from, to);
+    }
+
+    /**
+     * Closes the source of a paged session. Games that are not in memory cannot be loaded afterwards, so
+     * neither this session nor its snapshots may be read any more. Does nothing if the session is not paged.
+     *
+     * @throws IOException                   When closing the source produced IO errors
+     * @throws UnsupportedOperationException If this session is a snapshot
+     */
+    @Override
+    public void close() throws IOException {
+        checkModifiable();
+        savedGames.close();
+    }
+
+    private void checkModifiable() {
+        if (snapshot) {
+            throw new UnsupportedOperationException("A session snapshot can not be changed");
+        }
+    }
+
+    private int indexOf(Player player) {
+        int id = player.getId();
+        if (id < 0 || id >= playerArray.length || playerArray[id] != player) {
+            throw new IllegalArgumentException(player + " is not part of this session");
+        }
+        return id;
+    }
+
+    /**
+     * Registers the given listener. It is notified whenever a game result is added to or removed from this session
+     *
+     * @param listener The listener to add
+     */
+    public void addListener(@NonNull ISessionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters the given listener
+     *
+     * @param listener The listener to remove
+     */
+    public void removeListener(@NonNull ISessionListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return A copy of the latest game result, or null if there is no game in the session
+     */
     public
     @Nullable
     SingleGameResult getLatestResult() {
-        if (!savedGames.isEmpty()) {
-            return savedGames.getLast();
+        if (savedGames.size() > 0) {
+            return savedGames.materialize(savedGames.size() - 1);
         }
         return null;
     }
@@ -135,15 +313,24 @@ public class Session {
         return players;
     }
 
+    /**
+     * Note: The iterator returns read-only views that are only valid until the next call of {@link Iterator#next()}
+     * and throws a {@link PageLoadException} if games of a paged session cannot be loaded (see {@link #loadGames(int, int)})
+     *
+     * @return An iterator ranging from the last (latest) game result to the first (oldest) game result
+     */
     public Iterator<SingleGameResult> getLatestFirstIterator() {
-        return savedGames.descendingIterator();
+        return savedGames.iterator(true);
     }
 
     /**
+     * Note: The iterator returns read-only views that are only valid until the next call of {@link Iterator#next()}
+     * and throws a {@link PageLoadException} if games of a paged session cannot be loaded (see {@link #loadGames(int, int)})
+     *
      * @return An iterator ranging from the first (oldest) game result to the last (latest) game result
      */
     public Iterator<SingleGameResult> iterator() {
-        return savedGames.iterator();
+        return savedGames.iterator(false);
     }
 
     public String printInfo() {
@@ -153,23 +340,130 @@ public class Session {
             builder.append(p).append('\n');
         }
         builder.append("Letztes Spiel:\n");
-        SingleGameResult lastGame = savedGames.get(savedGames.size() - 1);
+        SingleGameResult lastGame = savedGames.materialize(savedGames.size() - 1);
         for (PlayerRole pr : lastGame.getParticipants()) {
             builder.append(pr.getPlayer().getName() + " (" + pr.getMoney() + ")\n");
         }
         return builder.toString();
     }
 
+    /**
+     * Removes the latest game result. The earned and lost stakes of this game are taken back from
+     * the balance of each player
+     */
     public void removeLatestGameResult() {
-        if (!savedGames.isEmpty()) {
-            SingleGameResult remove = savedGames.removeLast();
-            for (Player player : players) {
-                PlayerRole role = remove.findRole(player);
-                if (role != null) {
-                    player.setSessionMoney(player.getSessionMoney() - role.getMoney());
-                }
-            }
+        checkModifiable();
+        if (savedGames.size() > 0) {
+            removeGame(savedGames.size() - 1);
+        }
+    }
+
+    /**
+     * Removes the game result at the given position. The earned and lost stakes of this game are
+     * taken back from the balance of each player and from the stored balances of all later games.
+     * Later games are not recalculated.
+     *
+     * @param index position of the game, 0 is the first (oldest) game
+     * @throws IndexOutOfBoundsException If there is no game at the given position
+     */
+    public void removeGame(int index) {
+        checkModifiable();
+        SingleGameResult removed = savedGames.materialize(index);
+        int[] delta = new int[playerArray.length];
+        for (int seat = 0; seat < SingleGameResult.PLAYERS_PER_GAME; seat++) {
+            delta[savedGames.getPlayerIndex(index, seat)] -= savedGames.getMoney(index, seat);
         }
+        savedGames.remove(index);
+        savedGames.addToBalances(index, delta);
+        applyToPlayers(delta);
+        for (ISessionListener listener : listeners) {
+            listener.onGameRemoved(this, index, removed);
+        }
+    }
+
+    /**
+     * Replaces the game result at the given position with the given game result. Only the new game
+     * is calculated, the stored balances of this and all later games are corrected by the difference
+     * between the old and the new game.
+     *
+     * @param index position of the game, 0 is the first (oldest) game
+     * @param game  the new game result
+     * @throws IndexOutOfBoundsException If there is no game at the given position
+     */
+    public void replaceGame(int index, @NonNull SingleGameResult game) {
+        checkModifiable();
+        if (index < 0 || index >= savedGames.size()) {
+            throw new IndexOutOfBoundsException("Game " + index + ", size " + savedGames.size());
+        }
+        game.calculate(sessionStake);
+        SingleGameResult replaced = listeners.isEmpty() ? null : savedGames.materialize(index);
+        //per player difference between the new and the old game
+        int[] delta = new int[playerArray.length];
+        for (int seat = 0; seat < SingleGameResult.PLAYERS_PER_GAME; seat++) {
+            delta[savedGames.getPlayerIndex(index, seat)] -= savedGames.getMoney(index, seat);
+        }
+        int[] playerIndices = new int[SingleGameResult.PLAYERS_PER_GAME];
+        int seat = 0;
+        for (PlayerRole role : game.getParticipants()) {
+            playerIndices[seat] = indexOf(role.getPlayer());
+            delta[playerIndices[seat]] += role.getMoney();
+            seat++;
+        }
+        savedGames.set(index, game, playerIndices);
+        savedGames.addToBalances(index, delta);
+        seat = 0;
+        for (PlayerRole role : game.getParticipants()) {
+            role.setPlayerBalance(savedGames.getPlayerBalance(index, playerIndices[seat]));
+            seat++;
+        }
+        applyToPlayers(delta);
+        for (ISessionListener listener : listeners) {
+            listener.onGameReplaced(this, index, replaced, game);
+        }
+    }
+
+    private void applyToPlayers(int[] delta) {
+        for (int i = 0; i < playerArray.length; i++) {
+            playerArray[i].setSessionMoney(playerArray[i].getSessionMoney() + delta[i]);
+        }
+    }
+
+    /**
+     * Returns the balance of the given player after the given game. If the player did not participate
+     * in that game, the balance of the previous game is carried forward.
+     * This is a constant time lookup.
+     *
+     * @param player    a player of this session
+     * @param gameIndex position of the game, 0 is the first (oldest) game, -1 is before the first game
+     * @return the balance of the player after the game
+     * @throws IndexOutOfBoundsException If there is no game at the given position
+     */
+    public int balanceAt(@NonNull Player player, int gameIndex) {
+        return savedGames.getPlayerBalance(gameIndex, indexOf(player));
+    }
+
+    /**
+     * Returns the earnings (or losses, if negative) of the given player in a range of games.
+     * This is a constant time lookup.
+     *
+     * @param player a player of this session
+     * @param from   position of the first game of the range (inclusive)
+     * @param to     position of the last game of the range (inclusive)
+     * @return the sum of the money the player earned in the given games
+     * @throws IndexOutOfBoundsException If the range is not inside the stored games
+     */
+    public int deltaBetween(@NonNull Player player, int from, int to) {
+        int index = indexOf(player);
+        return savedGames.getPlayerBalance(to, index) - savedGames.getPlayerBalance(from - 1, index);
+    }
+
+    /**
+     * @param index position of the game, 0 is the first (oldest) game
+     * @return A copy of the game result at the given position
+     * @throws IndexOutOfBoundsException If there is no game at the given position
+     */
+    public SingleGameResult getGame(int index) {
+        return savedGames.materialize(index);
     }
 
 }
@@ -0,0 +1,433 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.session;
+
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.serialization.CSVFormat;
+import sheepshead.manager.serialization.CSVTokenizer;
+import sheepshead.manager.serialization.ISessionWriter;
+import sheepshead.manager.serialization.LoadReport;
+import sheepshead.manager.serialization.SerializationActions;
+import sheepshead.manager.serialization.SessionCSVWriter;
+import sheepshead.manager.serialization.SessionDataCorruptedException;
+
+/**
+ * A write-ahead log for a session that is saved as a full snapshot (see {@link SerializationActions#saveSnapshot}).
+ * Instead of rewriting the whole snapshot whenever the session changes, each change is appended as
+ * one small record to the journal file. The cost of one record does not depend on the length of the session.
+ * <br>
+ * The journal consists of one row per record, formatted with the given {@link CSVFormat}:
+ * <li><code>H;n;h;c</code> The header, n is the amount of games in the snapshot the journal belongs to, h
+ * the {@linkplain InternalSessionWriter#LAYOUT_HASH layout hash} of the cells and c the checksum of the snapshot
+ * (see {@link SerializationActions#readSnapshotChecksum(File)})</li>
+ * <li><code>A;cells...</code> A game was added, the cells are the same as in the internal save format</li>
+ * <li><code>R;i</code> The game at position i was removed (without position: the latest game)</li>
+ * <li><code>E;i;cells...</code> The game at position i was replaced by the game described by the cells</li>
+ * <br>
+ * When loading, the snapshot is loaded first and the journal is then replayed with {@link #replay(Session, File)}.
+ * The records refer to positions, so replaying them on a snapshot that already contains them would change the
+ * session a second time. Therefore a journal is only replayed on the snapshot whose checksum is in its header.
+ * Once the journal grows too long, {@link #compact(Session, File)} writes a new snapshot and clears the journal.
+ * <br>
+ * All file operations of records and of {@link #compactLater(Session, File)} run on the executor given
+ * to the constructor in the order they are requested, so a single threaded executor moves the IO off the
+ * calling thread. The rows are created on the calling thread, the journaled session is never read by the executor.
+ */
+public class SessionJournal implements ISessionListener {
+
+    /**
+     * The amount of records after which {@link #needsCompaction()} suggests a compaction
+     */
+    public static final int COMPACTION_THRESHOLD = 64;
+
+    /**
+     * Appended to the name of a journal that could not be replayed on a salvaged session
+     */
+    public static final String DROPPED_SUFFIX = ".dropped";
+
+    private static final String HEADER_RECORD = "H";
+    private static final String ADD_RECORD = "A";
+    private static final String REMOVE_RECORD = "R";
+    private static final String REPLACE_RECORD = "E";
+
+    /**
+     * The journal file
+     */
+    private final File journalFile;
+    /**
+     * The format used for the journal rows
+     */
+    private final CSVFormat format;
+    /**
+     * Turns single game results into cells
+     */
+    private final InternalSessionWriter gameWriter;
+    /**
+     * Writes the full snapshot when compacting
+     */
+    private final ISessionWriter snapshotWriter;
+    /**
+     * Executes all file operations in the order they are requested
+     */
+    private final Executor executor;
+    /**
+     * The amount of records written since the last compaction
+     */
+    private int recordCount;
+    /**
+     * True if a record could not be written, the journal is then out of sync with the session
+     */
+    private volatile boolean broken;
+
+    /**
+     * Creates a journal operating on the given file, all file operations run on the calling thread
+     *
+     * @param file   The journal file
+     * @param format The format for the journal rows, should be the same as the format of the snapshot
+     */
+    public SessionJournal(@NonNull File file, @NonNull CSVFormat format) {
+        this(file, format, new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    /**
+     * Creates a journal operating on the given file
+     *
+     * @param file     The journal file
+     * @param format   The format for the journal rows, should be the same as the format of the snapshot
+     * @param executor The executor for all file operations, it must execute the operations in order
+     *                 (e.g. a single thread executor)
+     */
+    public SessionJournal(@NonNull File file, @NonNull CSVFormat format, @NonNull Executor executor) {
+        this(file, format, new SessionCSVWriter(format), executor);
+    }
+
+    /**
+     * Creates a journal operating on the given file, whose snapshot is written by the given writer
+     *
+     * @param file           The journal file
+     * @param format         The format for the journal rows
+     * @param snapshotWriter The writer for the snapshot, e.g. a {@link sheepshead.manager.serialization.BinarySessionWriter}
+     * @param executor       The executor for all file operations, it must execute the operations in order
+     *                       (e.g. a single thread executor)
+     */
+    public SessionJournal(@NonNull File file, @NonNull CSVFormat format, @NonNull ISessionWriter snapshotWriter, @NonNull Executor executor) {
+        journalFile = file;
+        this.format = format;
+        this.snapshotWriter = snapshotWriter;
+        this.executor = executor;
+        gameWriter = new InternalSessionWriter();
+        recordCount = 0;
+        broken = false;
+    }
+
+    @Override
+    public void onGameAdded(@NonNull Session session, @NonNull SingleGameResult game) {
+        try {
+            List<String> row = new ArrayList<>();
+            row.add(ADD_RECORD);
+            row.addAll(gameWriter.writeGame(session, game));
+            append(row);
+        } catch (SessionDataCorruptedException e) {
+            System.out.println("Could not journal game: " + e.getMessage());
+            broken = true;
+        }
+    }
+
+    @Override
+    public void onGameRemoved(@NonNull Session session, int index, @NonNull SingleGameResult removed) {
+        List<String> row = new ArrayList<>(2);
+        row.add(REMOVE_RECORD);
+        row.add(Integer.toString(index));
+        append(row);
+    }
+
+    @Override
+    public void onGameReplaced(@NonNull Session session, int index, @NonNull SingleGameResult replaced, @NonNull SingleGameResult game) {
+        try {
+            List<String> row = new ArrayList<>();
+            row.add(REPLACE_RECORD);
+            row.add(Integer.toString(index));
+            row.addAll(gameWriter.writeGame(session, game));
+            append(row);
+        } catch (SessionDataCorruptedException e) {
+            System.out.println("Could not journal game: " + e.getMessage());
+            broken = true;
+        }
+    }
+
+    private void append(final List<String> row) {
+        recordCount++;
+        executor.execute(() -> {
+            if (broken) {
+                //no need to write anything, the next compaction writes a full snapshot anyway
+                return;
+            }
+            if (!journalFile.exists()) {
+                //without header the record could never be replayed
+                System.out.println("Journal " + journalFile.getName() + " has no header");
+                broken = true;
+                return;
+            }
+            try {
+                writeRows(Collections.singletonList(row), true);
+            } catch (IOException | SessionDataCorruptedException e) {
+                System.out.println("Could not append to journal " + journalFile.getName() + ": " + e.getMessage());
+                broken = true;
+            }
+        });
+    }
+
+    private void writeRows(List<List<String>> rows, boolean append) throws IOException, SessionDataCorruptedException {
+        SessionCSVWriter rowWriter = new SessionCSVWriter(format);
+        FileOutputStream fos = new FileOutputStream(journalFile, append);
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(fos, format.getEncoding()));
+            for (List<String> row : rows) {
+                rowWriter.writeRow(row, writer);
+            }
+            writer.flush();
+        } finally {
+            fos.close();
+        }
+    }
+
+    /**
+     * Replays all records of this journal on the given session, that was loaded from the given snapshot.
+     * If the journal belongs to a different snapshot (e.g. the application stopped after writing the snapshot
+     * but before clearing the journal), nothing is replayed. If there is no journal, an empty journal belonging
+     * to the snapshot is started, so the records appended afterwards can be replayed.
+     * A damaged trailing record (e.g. a partially written line) ends the replay.
+     *
+     * @param session  The session loaded from the snapshot
+     * @param snapshot The file the session was loaded from
+     * @return The amount of replayed records
+     * @throws IOException When reading the journal produced IO errors
+     */
+    public int replay(@NonNull Session session, @NonNull File snapshot) throws IOException {
+        return replay(session, snapshot, null);
+    }
+
+    /**
+     * Replays the journal like {@link #replay(Session, File)} on a session that was loaded in salvage mode.
+     * If the load skipped games, the session no longer matches the journal and its records cannot be replayed.
+     * The journal is then kept as {@link #DROPPED_SUFFIX} file next to the journal and recorded in the report,
+     * so the next compaction does not overwrite the changes it contains
+     *
+     * @param session  The session loaded from the snapshot
+     * @param snapshot The file the session was loaded from
+     * @param report   The report of the load, or null
+     * @return The amount of replayed records
+     * @throws IOException When reading the journal produced IO errors
+     */
+    public int replay(@NonNull Session session, @NonNull File snapshot, @Nullable LoadReport report) throws IOException {
+        recordCount = 0;
+        Integer snapshotChecksum = SerializationActions.readSnapshotChecksum(snapshot);
+        if (!journalFile.exists()) {
+            //records appended without a header would be rejected by the next replay
+            startEmpty(session.getGameAmount(), snapshotChecksum);
+            return 0;
+        }
+        CSVTokenizer tokenizer = new CSVTokenizer(format.getSeparator(), format.getEscape());
+        InternalSessionReader gameReader = new InternalSessionReader();
+        gameReader.continueWith(session);
+        Reader reader = new InputStreamReader(new FileInputStream(journalFile), format.getEncoding());
+        tokenizer.reset(reader);
+        List<String> row = new ArrayList<>();
+        boolean belongsToSnapshot = false;
+        try {
+            if (!isHeaderOf(tokenizer, row, session, snapshotChecksum)) {
+                System.out.println("Journal " + journalFile.getName() + " does not belong to the snapshot, ignoring it");
+                broken = true;
+                return 0;
+            }
+            belongsToSnapshot = true;
+            while (tokenizer.readRow(row)) {
+                if (row.isEmpty()) {
+                    continue;
+                }
+                String type = row.get(0);
+                if (ADD_RECORD.equals(type)) {
+                    gameReader.readGame(row.subList(1, row.size()));
+                } else if (REMOVE_RECORD.equals(type)) {
+                    if (row.size() > 1) {
+                        session.removeGame(parseIndex(row.get(1)));
+                    } else {
+                        session.removeLatestGameResult();
+                    }
+                } else if (REPLACE_RECORD.equals(type)) {
+                    session.replaceGame(parseIndex(row.get(1)), gameReader.parseGame(row.subList(2, row.size())));
+                } else {
+                    throw new SessionDataCorruptedException("Unknown journal record " + type);
+                }
+                recordCount++;
+            }
+        } catch (SessionDataCorruptedException | IndexOutOfBoundsException e) {
+            //keep everything up to the damaged record, the next compaction removes the damaged rest
+            System.out.println("Stopped replaying journal " + journalFile.getName() + ": " + e.getMessage());
+            broken = true;
+        } finally {
+            reader.close();
+            if (!belongsToSnapshot && report != null && report.getSkippedGames() > 0) {
+                keepDroppedJournal(report);
+            }
+        }
+        return recordCount;
+    }
+
+    private void keepDroppedJournal(LoadReport report) {
+        File dropped = new File(journalFile.getPath() + DROPPED_SUFFIX);
+        if (journalFile.renameTo(dropped)) {
+            report.addProblem(0, "The journal of the changes since the last save could not be replayed on the salvaged games, kept as " + dropped.getName());
+        } else {
+            report.addProblem(0, "The journal of the changes since the last save could not be replayed on the salvaged games and could not be kept");
+        }
+    }
+
+    /**
+     * Starts an empty journal belonging to the snapshot with the given amount of games and checksum. If the journal
+     * cannot be written, it is out of sync, so the next compaction writes it again
+     *
+     * @param gameAmount       The amount of games of the snapshot
+     * @param snapshotChecksum The checksum of the snapshot, or null if the snapshot has no footer
+     */
+    private void startEmpty(int gameAmount, @Nullable Integer snapshotChecksum) {
+        try {
+            writeRows(Collections.singletonList(createHeader(gameAmount, snapshotChecksum)), false);
+        } catch (IOException | SessionDataCorruptedException e) {
+            System.out.println("Could not start journal " + journalFile.getName() + ": " + e.getMessage());
+            broken = true;
+        }
+    }
+
+    private int parseIndex(String index) throws SessionDataCorruptedException {
+        try {
+            return Integer.parseInt(index);
+        } catch (NumberFormatException e) {
+            throw new SessionDataCorruptedException("Invalid game position " + index, e);
+        }
+    }
+
+    private boolean isHeaderOf(CSVTokenizer tokenizer, List<String> header, Session session,
+                               @Nullable Integer snapshotChecksum) throws IOException {
+        try {
+            if (!tokenizer.readRow(header) || header.size() < 2 || header.size() > 4
+                    || !HEADER_RECORD.equals(header.get(0))
+                    || Integer.parseInt(header.get(1)) != session.getGameAmount()) {
+                return false;
+            }
+            //journals without the hash were written before the layouts were hashed, their layout is the same
+            if (header.size() > 2 && Integer.parseInt(header.get(2)) != InternalSessionWriter.LAYOUT_HASH) {
+                return false;
+            }
+            if (header.size() > 3) {
+                return snapshotChecksum != null && Integer.parseInt(header.get(3)) == snapshotChecksum;
+            }
+            //journals without the checksum can only be matched by the amount of games
+            return true;
+        } catch (SessionDataCorruptedException | NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static List<String> createHeader(int gameAmount, @Nullable Integer snapshotChecksum) {
+        List<String> header = new ArrayList<>(4);
+        header.add(HEADER_RECORD);
+        header.add(Integer.toString(gameAmount));
+        header.add(Integer.toString(InternalSessionWriter.LAYOUT_HASH));
+        if (snapshotChecksum != null) {
+            //snapshots without footer are matched by the amount of games
+            header.add(Integer.toString(snapshotChecksum));
+        }
+        return header;
+    }
+
+    /**
+     * Writes the given session as full snapshot to the given file and starts a new, empty journal
+     * belonging to that snapshot
+     *
+     * @param session  The session to save
+     * @param snapshot The snapshot file
+     * @throws IOException                   When writing the snapshot or the journal produced IO errors
+     * @throws SessionDataCorruptedException When the session cannot be serialized
+     */
+    public void compact(@NonNull Session session, @NonNull File snapshot) throws IOException, SessionDataCorruptedException {
+        int checksum = SerializationActions.saveSnapshot(snapshot, session, snapshotWriter);
+        writeRows(Collections.singletonList(createHeader(session.getGameAmount(), checksum)), false);
+        recordCount = 0;
+        broken = false;
+    }
+
+    /**
+     * Takes a snapshot of the given session (see {@link Session#snapshot()}) and schedules a compaction
+     * with it on the executor of this journal. Errors are not thrown but leave the journal out of sync,
+     * so {@link #needsCompaction()} suggests another compaction.
+     *
+     * @param session  The session to save
+     * @param snapshot The snapshot file
+     */
+    public void compactLater(@NonNull Session session, @NonNull final File snapshot) {
+        final Session frozen = session.snapshot();
+        recordCount = 0;
+        executor.execute(() -> {
+            try {
+                int checksum = SerializationActions.saveSnapshot(snapshot, frozen, snapshotWriter);
+                writeRows(Collections.singletonList(createHeader(frozen.getGameAmount(), checksum)), false);
+                broken = false;
+            } catch (IOException | SessionDataCorruptedException | PageLoadException e) {
+                System.out.println("Could not save session: " + e.getMessage());
+                broken = true;
+            }
+        });
+    }
+
+    /**
+     * @return True if the journal should be compacted, because it is too long or out of sync with the session
+     */
+    public boolean needsCompaction() {
+        return broken || recordCount >= COMPACTION_THRESHOLD;
+    }
+
+    /**
+     * @return The amount of records requested since the last compaction
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+}
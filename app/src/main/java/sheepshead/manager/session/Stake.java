@@ -19,12 +19,22 @@ package sheepshead.manager.session;
 
 import sheepshead.manager.game.GameType;
 import sheepshead.manager.serialization.CSVCellContent;
+import sheepshead.manager.serialization.CSVLayout;
 
 /**
  * The stake class represents the different stake values for the game types and stake modifiers
  */
 public class Stake implements ICSVSerializable {
 
+    private static final CSVLayout.Builder CSV_FIELDS = CSVLayout.builder("Stake");
+    private static final CSVLayout.Field GRUND_TARIF = CSV_FIELDS.integer("grundTarif");
+    private static final CSVLayout.Field SOLO_TARIF = CSV_FIELDS.integer("soloTarif");
+    private static final CSVLayout.Field LAUFENDE_TARIF = CSV_FIELDS.integer("laufendeTarif");
+    /**
+     * The entries of the csv representation
+     */
+    public static final CSVLayout CSV_LAYOUT = CSV_FIELDS.build();
+
     /**
      * The base value used for Sauspiel and most of the stake modifiers
      */
@@ -56,15 +66,17 @@ public class Stake implements ICSVSerializable {
     }
 
     public Stake(CSVCellContent.Reader data) {
-        this(data.getInteger(), data.getInteger(), data.getInteger());
+        this(data.begin(CSV_LAYOUT).getInteger(GRUND_TARIF), data.getInteger(SOLO_TARIF), data.getInteger(LAUFENDE_TARIF));
+        data.end();
     }
 
     @Override
     public void toCSVSerializableString(CSVCellContent content) {
-        // The order is important!
-        content.put(grundTarif);
-        content.put(soloTarif);
-        content.put(laufendeTarif);
+        content.begin(CSV_LAYOUT);
+        content.put(GRUND_TARIF, grundTarif);
+        content.put(SOLO_TARIF, soloTarif);
+        content.put(LAUFENDE_TARIF, laufendeTarif);
+        content.end();
     }
 
     /**
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.statistics;
+
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.session.ISessionListener;
+import sheepshead.manager.session.Session;
+
+/**
+ * The balances of the players over the course of a session, downsampled to the width of a chart.
+ * Point x of the full series is the balance after x games (point 0 is the balance 0 before the first game);
+ * in games a player does not participate in, the balance is carried forward.
+ * <br>
+ * The series is downsampled by min/max bucketing: the points are split into buckets of equal size and of every
+ * bucket only the lowest and the highest point are kept, so peaks and drops stay visible. The buckets of every
+ * requested width are cached and updated as a listener of the session: an added game is put into the last bucket,
+ * and when all buckets are full, neighboring buckets are merged pairwise, doubling the bucket size. Adding a game
+ * therefore costs amortized constant time per player and width. Removing or replacing a game drops the cache.
+ */
+public class BalanceTimeSeries implements ISessionListener {
+
+    /**
+     * The amount of widths whose buckets are cached
+     */
+    private static final int CACHED_WIDTHS = 4;
+
+    private final Session session;
+    private final int playerAmount;
+    /**
+     * The buckets by width, the least recently used width is dropped first
+     */
+    private final Map<Integer, Buckets> cache = new LinkedHashMap<Integer, Buckets>(CACHED_WIDTHS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Buckets> eldest) {
+            return size() > CACHED_WIDTHS;
+        }
+    };
+
+    /**
+     * Creates the balance series of the given session.
+     * To keep the cache up to date, register it with {@link Session#addListener(ISessionListener)}
+     *
+     * @param session The session
+     */
+    public BalanceTimeSeries(@NonNull Session session) {
+        this.session = session;
+        playerAmount = session.getPlayers().size();
+    }
+
+    /**
+     * Returns the balance series of the given player with at most the given amount of points
+     *
+     * @param player a player of the session
+     * @param width  the maximal amount of points, e.g. the width of the chart in pixels (at least 4)
+     * @return the downsampled series, containing the first and the last point
+     * @throws IllegalArgumentException If the width is less than 4 or the player is not part of the session
+     */
+    public Series getSeries(@NonNull Player player, int width) {
+        if (width < 4) {
+            throw new IllegalArgumentException("Width must be at least 4, was " + width);
+        }
+        int id = player.getId();
+        if (id < 0 || id >= playerAmount) {
+            throw new IllegalArgumentException(player + " is not part of the session");
+        }
+        Buckets buckets = cache.get(width);
+        if (buckets == null) {
+            buckets = new Buckets((width - 2) / 2);
+            int[] balances = new int[playerAmount];
+            buckets.append(balances);
+            for (int game = 0; game < session.getGameAmount(); game++) {
+                for (Player p : session.getPlayers()) {
+                    balances[p.getId()] = session.balanceAt(p, game);
+                }
+                buckets.append(balances);
+            }
+            cache.put(width, buckets);
+        }
+        return buckets.toSeries(id);
+    }
+
+    @Override
+    public void onGameAdded(@NonNull Session session, @NonNull SingleGameResult game) {
+        if (cache.isEmpty()) {
+            return;
+        }
+        int[] balances = new int[playerAmount];
+        for (Player player : session.getPlayers()) {
+            balances[player.getId()] = player.getSessionMoney();
+        }
+        for (Buckets buckets : cache.values()) {
+            buckets.append(balances);
+        }
+    }
+
+    @Override
+    public void onGameRemoved(@NonNull Session session, int index, @NonNull SingleGameResult removed) {
+        //the minimum and maximum of a bucket cannot be taken back
+        cache.clear();
+    }
+
+    @Override
+    public void onGameReplaced(@NonNull Session session, int index, @NonNull SingleGameResult replaced, @NonNull SingleGameResult game) {
+        //the balances of all later games changed
+        cache.clear();
+    }
+
+    /**
+     * The lowest and highest point of every bucket for all players. The arrays of a player start at
+     * player id * {@link #capacity}
+     */
+    private final class Buckets {
+        private final int capacity;
+        private final int[] minPosition;
+        private final int[] minBalance;
+        private final int[] maxPosition;
+        private final int[] maxBalance;
+        /**
+         * The balance of each player at the latest point
+         */
+        private final int[] lastBalance;
+        private int bucketSize = 1;
+        private int bucketAmount;
+        private int points;
+
+        Buckets(int capacity) {
+            this.capacity = capacity;
+            minPosition = new int[playerAmount * capacity];
+            minBalance = new int[playerAmount * capacity];
+            maxPosition = new int[playerAmount * capacity];
+            maxBalance = new int[playerAmount * capacity];
+            lastBalance = new int[playerAmount];
+        }
+
+        /**
+         * Appends the next point
+         *
+         * @param balances the balance of each player at the point, indexed by player id
+         */
+        void append(int[] balances) {
+            //all buckets before the last are full, so the last bucket is full if all points fill the buckets
+            if (bucketAmount == capacity && points == bucketAmount * bucketSize) {
+                mergePairs();
+            }
+            boolean newBucket = points == bucketAmount * bucketSize;
+            if (newBucket) {
+                bucketAmount++;
+            }
+            int bucket = bucketAmount - 1;
+            for (int id = 0; id < playerAmount; id++) {
+                int i = id * capacity + bucket;
+                int balance = balances[id];
+                if (newBucket || balance < minBalance[i]) {
+                    minBalance[i] = balance;
+                    minPosition[i] = points;
+                }
+                if (newBucket || balance > maxBalance[i]) {
+                    maxBalance[i] = balance;
+                    maxPosition[i] = points;
+                }
+                lastBalance[id] = balance;
+            }
+            points++;
+        }
+
+        /**
+         * Merges bucket 2k and 2k+1 into bucket k. With an odd amount of buckets, the last merged bucket is half full
+         */
+        private void mergePairs() {
+            int merged = (bucketAmount + 1) / 2;
+            for (int id = 0; id < playerAmount; id++) {
+                int base = id * capacity;
+                for (int k = 0; k < merged; k++) {
+                    int first = base + 2 * k;
+                    int second = first + 1;
+                    int target = base + k;
+                    boolean hasSecond = 2 * k + 1 < bucketAmount;
+                    //ties keep the earlier point
+                    if (hasSecond && minBalance[second] < minBalance[first]) {
+                        minBalance[target] = minBalance[second];
+                        minPosition[target] = minPosition[second];
+                    } else {
+                        minBalance[target] = minBalance[first];
+                        minPosition[target] = minPosition[first];
+                    }
+                    if (hasSecond && maxBalance[second] > maxBalance[first]) {
+                        maxBalance[target] = maxBalance[second];
+                        maxPosition[target] = maxPosition[second];
+                    } else {
+                        maxBalance[target] = maxBalance[first];
+                        maxPosition[target] = maxPosition[first];
+                    }
+                }
+            }
+            bucketAmount = merged;
+            bucketSize *= 2;
+        }
+
+        Series toSeries(int id) {
+            int[] positions = new int[2 * bucketAmount + 2];
+            int[] balances = new int[2 * bucketAmount + 2];
+            int size = 0;
+            //the first point is 0 before the first game
+            if (minPosition[id * capacity] != 0 && maxPosition[id * capacity] != 0) {
+                positions[size] = 0;
+                balances[size] = 0;
+                size++;
+            }
+            for (int b = 0; b < bucketAmount; b++) {
+                int i = id * capacity + b;
+                boolean minFirst = minPosition[i] <= maxPosition[i];
+                positions[size] = minFirst ? minPosition[i] : maxPosition[i];
+                balances[size] = minFirst ? minBalance[i] : maxBalance[i];
+                size++;
+                if (minPosition[i] != maxPosition[i]) {
+                    positions[size] = minFirst ? maxPosition[i] : minPosition[i];
+                    balances[size] = minFirst ? maxBalance[i] : minBalance[i];
+                    size++;
+                }
+            }
+            if (positions[size - 1] != points - 1) {
+                positions[size] = points - 1;
+                balances[size] = lastBalance[id];
+                size++;
+            }
+            return new Series(Arrays.copyOf(positions, size), Arrays.copyOf(balances, size));
+        }
+    }
+
+    /**
+     * A downsampled balance series, the points are ordered by position
+     */
+    public static final class Series {
+        private final int[] positions;
+        private final int[] balances;
+
+        private Series(int[] positions, int[] balances) {
+            this.positions = positions;
+            this.balances = balances;
+        }
+
+        /**
+         * @return the amount of points
+         */
+        public int size() {
+            return positions.length;
+        }
+
+        /**
+         * @param point index of the point
+         * @return the amount of games played at the point
+         */
+        public int getPosition(int point) {
+            return positions[point];
+        }
+
+        /**
+         * @param point index of the point
+         * @return the balance of the player after the games played at the point
+         */
+        public int getBalance(int point) {
+            return balances[point];
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.statistics;
+
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.PlayerRole;
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.session.ISessionListener;
+import sheepshead.manager.session.Session;
+
+/**
+ * The current form of the players of a session: win ratio, net money and average payout of the last games
+ * each player participated in. The size of this window is given to the constructor.
+ * <br>
+ * Every player has a ring buffer of the money, the result and the position of the games in the window,
+ * together with the running sums over the buffer. Adding a game pushes it onto the buffers of its players in
+ * constant time, removing the latest game pops it again. A game that dropped out of a full window is read back
+ * from the session when it becomes part of the window again. Queries never look at the session.
+ */
+public class FormStatistics implements ISessionListener {
+
+    /**
+     * The window size used by the application
+     */
+    public static final int DEFAULT_WINDOW = 10;
+
+    private final int window;
+    private final int playerAmount;
+    /**
+     * The ring buffers of all players, the buffer of a player starts at player id * window
+     */
+    private final int[] money;
+    private final boolean[] won;
+    private final int[] gameIndex;
+    /**
+     * Per player: the slot of the newest game and the amount of games in the buffer
+     */
+    private final int[] newest;
+    private final int[] count;
+    /**
+     * Per player: the running sums over the buffer
+     */
+    private final int[] winSum;
+    private final int[] moneySum;
+    private final int[] payoutSum;
+
+    /**
+     * Creates the form of the games currently in the given session.
+     * To keep it up to date, register it with {@link Session#addListener(ISessionListener)}
+     *
+     * @param session The session
+     * @param window  The amount of latest games of a player that are taken into account
+     * @throws IllegalArgumentException If the window is not positive
+     */
+    public FormStatistics(@NonNull Session session, int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive, was " + window);
+        }
+        this.window = window;
+        playerAmount = session.getPlayers().size();
+        money = new int[playerAmount * window];
+        won = new boolean[playerAmount * window];
+        gameIndex = new int[playerAmount * window];
+        newest = new int[playerAmount];
+        count = new int[playerAmount];
+        winSum = new int[playerAmount];
+        moneySum = new int[playerAmount];
+        payoutSum = new int[playerAmount];
+        int[] start = new int[playerAmount];
+        for (int id = 0; id < playerAmount; id++) {
+            clear(id);
+            start[id] = session.getGameAmount();
+        }
+        fillBackwards(session, start);
+    }
+
+    private void clear(int id) {
+        newest[id] = window - 1;
+        count[id] = 0;
+        winSum[id] = 0;
+        moneySum[id] = 0;
+        payoutSum[id] = 0;
+    }
+
+    private void add(int id, int slot, int game, int gameMoney, boolean gameWon) {
+        int i = id * window + slot;
+        money[i] = gameMoney;
+        won[i] = gameWon;
+        gameIndex[i] = game;
+        moneySum[id] += gameMoney;
+        payoutSum[id] += Math.abs(gameMoney);
+        if (gameWon) {
+            winSum[id]++;
+        }
+    }
+
+    private void subtract(int id, int slot) {
+        int i = id * window + slot;
+        moneySum[id] -= money[i];
+        payoutSum[id] -= Math.abs(money[i]);
+        if (won[i]) {
+            winSum[id]--;
+        }
+    }
+
+    /**
+     * Makes the given game the newest of the window of the player, the oldest game drops out of a full window
+     */
+    private void pushNewest(int id, int game, int gameMoney, boolean gameWon) {
+        int slot = (newest[id] + 1) % window;
+        if (count[id] == window) {
+            subtract(id, slot);
+        } else {
+            count[id]++;
+        }
+        add(id, slot, game, gameMoney, gameWon);
+        newest[id] = slot;
+    }
+
+    private void popNewest(int id) {
+        subtract(id, newest[id]);
+        newest[id] = (newest[id] + window - 1) % window;
+        count[id]--;
+    }
+
+    /**
+     * Appends the given game as the oldest game of a window that is not full
+     */
+    private void appendOldest(int id, int game, int gameMoney, boolean gameWon) {
+        int slot = (newest[id] + window - count[id]) % window;
+        add(id, slot, game, gameMoney, gameWon);
+        count[id]++;
+    }
+
+    private int oldestGame(int id) {
+        return gameIndex[id * window + (newest[id] + window - count[id] + 1) % window];
+    }
+
+    /**
+     * Fills the windows of the players from their oldest game backwards, until they are full or the first game
+     * of the session is reached
+     *
+     * @param session The session
+     * @param start   Per player the position before which games are appended, 0 for players whose window is complete
+     */
+    private void fillBackwards(Session session, int[] start) {
+        int from = 0;
+        int pending = 0;
+        for (int id = 0; id < playerAmount; id++) {
+            if (start[id] > 0 && count[id] < window) {
+                from = Math.max(from, start[id]);
+                pending++;
+            } else {
+                start[id] = 0;
+            }
+        }
+        for (int game = from - 1; game >= 0 && pending > 0; game--) {
+            for (PlayerRole role : session.getGame(game).getParticipants()) {
+                int id = role.getPlayer().getId();
+                if (game < start[id]) {
+                    appendOldest(id, game, role.getMoney(), role.isWinner());
+                    if (count[id] == window) {
+                        start[id] = 0;
+                        pending--;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onGameAdded(@NonNull Session session, @NonNull SingleGameResult game) {
+        int index = session.getGameAmount() - 1;
+        for (PlayerRole role : game.getParticipants()) {
+            pushNewest(role.getPlayer().getId(), index, role.getMoney(), role.isWinner());
+        }
+    }
+
+    @Override
+    public void onGameRemoved(@NonNull Session session, int index, @NonNull SingleGameResult removed) {
+        int[] start = new int[playerAmount];
+        if (index == session.getGameAmount()) {
+            //the latest game: roll it back and refill windows that were full
+            for (PlayerRole role : removed.getParticipants()) {
+                int id = role.getPlayer().getId();
+                boolean full = count[id] == window;
+                popNewest(id);
+                if (full) {
+                    start[id] = count[id] > 0 ? oldestGame(id) : index;
+                }
+            }
+        } else {
+            //the later games moved one position down, the windows of the participants are read again
+            for (int i = 0; i < gameIndex.length; i++) {
+                if (gameIndex[i] > index) {
+                    gameIndex[i]--;
+                }
+            }
+            for (PlayerRole role : removed.getParticipants()) {
+                int id = role.getPlayer().getId();
+                clear(id);
+                start[id] = session.getGameAmount();
+            }
+        }
+        fillBackwards(session, start);
+    }
+
+    @Override
+    public void onGameReplaced(@NonNull Session session, int index, @NonNull SingleGameResult replaced, @NonNull SingleGameResult game) {
+        int[] start = new int[playerAmount];
+        for (SingleGameResult changed : Arrays.asList(replaced, game)) {
+            for (PlayerRole role : changed.getParticipants()) {
+                int id = role.getPlayer().getId();
+                clear(id);
+                start[id] = session.getGameAmount();
+            }
+        }
+        fillBackwards(session, start);
+    }
+
+    private int idOf(Player player) {
+        int id = player.getId();
+        if (id < 0 || id >= playerAmount) {
+            throw new IllegalArgumentException(player + " is not part of the session");
+        }
+        return id;
+    }
+
+    /**
+     * @return The amount of latest games of a player that are taken into account
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * @param player a player of the session
+     * @return the amount of games in the window of the player, less than the window size if the player has
+     * not played that many games yet
+     */
+    public int getGames(@NonNull Player player) {
+        return count[idOf(player)];
+    }
+
+    /**
+     * @param player a player of the session
+     * @return the amount of games the player won in the window
+     */
+    public int getWins(@NonNull Player player) {
+        return winSum[idOf(player)];
+    }
+
+    /**
+     * @param player a player of the session
+     * @return the won games divided by the games in the window, 0 if the player has not played
+     */
+    public float getWinRatio(@NonNull Player player) {
+        int id = idOf(player);
+        return count[id] == 0 ? 0 : winSum[id] / (float) count[id];
+    }
+
+    /**
+     * @param player a player of the session
+     * @return the money the player won (negative: lost) in the window
+     */
+    public int getNetMoney(@NonNull Player player) {
+        return moneySum[idOf(player)];
+    }
+
+    /**
+     * @param player a player of the session
+     * @return the average amount the player won or lost per game in the window (see
+     * {@link SingleGameResult#calculate}), 0 if the player has not played
+     */
+    public float getAveragePayout(@NonNull Player player) {
+        int id = idOf(player);
+        return count[id] == 0 ? 0 : payoutSum[id] / (float) count[id];
+    }
+}
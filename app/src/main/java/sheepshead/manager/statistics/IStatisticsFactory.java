@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.statistics;
+
+
+import sheepshead.manager.session.ISessionListener;
+import sheepshead.manager.session.Session;
+
+/**
+ * Creates the statistics of a session, which are then kept up to date as listener of the session
+ * (see {@link sheepshead.manager.appcore.SheepsheadManagerApplication#getStatistics(Class, IStatisticsFactory)})
+ *
+ * @param <T> The type of the statistics
+ */
+public interface IStatisticsFactory<T extends ISessionListener> {
+
+    /**
+     * Computes the statistics of the given session
+     *
+     * @param session The session
+     * @return The statistics of the session, not yet registered as listener
+     */
+    T create(Session session);
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.statistics;
+
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import sheepshead.manager.serialization.CSVFormat;
+import sheepshead.manager.serialization.SessionCSVReader;
+import sheepshead.manager.serialization.SessionDataCorruptedException;
+import sheepshead.manager.session.InternalSessionReader;
+
+/**
+ * Aggregates all session files of a directory (e.g. {@link sheepshead.manager.serialization.SerializationActions#sessionSaveDirectory})
+ * into one {@link LeagueTable}. The files are read on a {@link ForkJoinPool}, one task per file; the tables
+ * of the files are merged pairwise while the tasks are joined.
+ * <br>
+ * The table of every file is cached with the modification time and length of the file, so aggregating again
+ * after a session was added only reads the new file. Files that cannot be read are listed in
+ * {@link LeagueTable#getUnreadableFiles()} and are not renamed (unlike
+ * {@link sheepshead.manager.serialization.SerializationActions#loadSession(File, CSVFormat)}).
+ */
+public class LeagueAggregator {
+
+    /**
+     * The format of the session files, its reader is replaced by an {@link InternalSessionReader} per file
+     */
+    private final CSVFormat format;
+    /**
+     * The pool to read on, or null if every aggregation uses its own pool
+     */
+    @Nullable
+    private final ForkJoinPool pool;
+    /**
+     * The cached tables by the path of their file
+     */
+    private final Map<String, CachedFile> cache = new HashMap<>();
+
+    /**
+     * Creates an aggregator for session files of the given format, every aggregation reads on a new pool
+     *
+     * @param format The format of the session files (the internal format, see {@link InternalSessionReader}),
+     *               compressed files are recognized automatically
+     */
+    public LeagueAggregator(@NonNull CSVFormat format) {
+        this(format, null);
+    }
+
+    /**
+     * Creates an aggregator for session files of the given format
+     *
+     * @param format The format of the session files (the internal format, see {@link InternalSessionReader}),
+     *               compressed files are recognized automatically
+     * @param pool   The pool to read on, or null to create a new pool for every aggregation
+     */
+    public LeagueAggregator(@NonNull CSVFormat format, @Nullable ForkJoinPool pool) {
+        this.format = format;
+        this.pool = pool;
+    }
+
+    /**
+     * @param fileName The name of a file
+     * @return True if the name is the name of a session file (.csv, possibly compressed)
+     */
+    static boolean isSessionFile(String fileName) {
+        String name = fileName.toLowerCase();
+        for (CSVFormat.Compression compression : CSVFormat.Compression.values()) {
+            if (name.endsWith(".csv" + compression.getFileExtension())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Aggregates all session files in the given directory. Only files that are new or changed since the
+     * last aggregation are read
+     *
+     * @param directory The directory containing the session files
+     * @return The totals of all sessions in the directory, {@link LeagueTable#EMPTY} if there is no directory
+     */
+    public synchronized LeagueTable aggregate(@NonNull File directory) {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return isSessionFile(name);
+            }
+        });
+        if (files == null) {
+            cache.clear();
+            return LeagueTable.EMPTY;
+        }
+        LeagueTable cached = LeagueTable.EMPTY;
+        List<File> changed = new ArrayList<>();
+        Map<String, CachedFile> present = new HashMap<>();
+        for (File file : files) {
+            CachedFile entry = cache.get(file.getPath());
+            if (entry != null && entry.matches(file)) {
+                cached = cached.merge(entry.table);
+                present.put(file.getPath(), entry);
+            } else {
+                changed.add(file);
+            }
+        }
+        //files that were removed are dropped from the cache
+        cache.clear();
+        cache.putAll(present);
+        if (changed.isEmpty()) {
+            return cached;
+        }
+
+        File[] toRead = changed.toArray(new File[changed.size()]);
+        LeagueTable[] tables = new LeagueTable[toRead.length];
+        long[] modified = new long[toRead.length];
+        long[] length = new long[toRead.length];
+        for (int i = 0; i < toRead.length; i++) {
+            //taken before reading, so a change during reading is read again next time
+            modified[i] = toRead[i].lastModified();
+            length[i] = toRead[i].length();
+        }
+        AggregateTask task = new AggregateTask(toRead, tables, 0, toRead.length);
+        LeagueTable read;
+        if (pool != null) {
+            read = pool.invoke(task);
+        } else {
+            ForkJoinPool ownPool = new ForkJoinPool();
+            try {
+                read = ownPool.invoke(task);
+            } finally {
+                ownPool.shutdown();
+            }
+        }
+        for (int i = 0; i < toRead.length; i++) {
+            cache.put(toRead[i].getPath(), new CachedFile(modified[i], length[i], tables[i]));
+        }
+        return cached.merge(read);
+    }
+
+    /**
+     * Reads the table of one session file
+     *
+     * @param file A session file
+     * @return the table of the session, or a table listing the file as unreadable
+     */
+    private LeagueTable readFile(File file) {
+        try {
+            InputStream in = new BufferedInputStream(new FileInputStream(file));
+            try {
+                //the reader of the format keeps the state of one session, every file gets its own
+                CSVFormat fileFormat = format.withReader(new InternalSessionReader());
+                return LeagueTable.of(new SessionCSVReader(fileFormat).readFrom(in));
+            } finally {
+                in.close();
+            }
+        } catch (IOException | SessionDataCorruptedException e) {
+            System.out.println("Could not aggregate " + file.getName() + ": " + e.getMessage());
+            return LeagueTable.unreadable(file.getName());
+        }
+    }
+
+    /**
+     * Reads the files of a range and merges their tables. Every file is read by its own task
+     */
+    private class AggregateTask extends RecursiveTask<LeagueTable> {
+        private static final long serialVersionUID = 1L;
+        private final File[] files;
+        /**
+         * Receives the table of every file for the cache
+         */
+        private final LeagueTable[] tables;
+        private final int from;
+        private final int to;
+
+        AggregateTask(File[] files, LeagueTable[] tables, int from, int to) {
+            this.files = files;
+            this.tables = tables;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected LeagueTable compute() {
+            if (to - from == 1) {
+                tables[from] = readFile(files[from]);
+                return tables[from];
+            }
+            int middle = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(files, tables, from, middle);
+            AggregateTask right = new AggregateTask(files, tables, middle, to);
+            left.fork();
+            LeagueTable rightTable = right.compute();
+            return left.join().merge(rightTable);
+        }
+    }
+
+    /**
+     * The table of a file and the state of the file it was read from
+     */
+    private static class CachedFile {
+        private final long lastModified;
+        private final long length;
+        private final LeagueTable table;
+
+        CachedFile(long lastModified, long length, LeagueTable table) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.table = table;
+        }
+
+        boolean matches(File file) {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.statistics;
+
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import sheepshead.manager.game.GameType;
+import sheepshead.manager.game.Player;
+import sheepshead.manager.session.Session;
+
+/**
+ * All-time totals of the players of several sessions, identified by their name.
+ * A table is created for a single session with {@link #of(Session)} and tables of several sessions are
+ * combined with {@link #merge(LeagueTable)}. Merging is associative and commutative, so the tables of many
+ * sessions can be merged in any grouping and order (see {@link LeagueAggregator}).
+ * <br>
+ * Tables are immutable.
+ */
+public final class LeagueTable {
+
+    /**
+     * The table of no sessions
+     */
+    public static final LeagueTable EMPTY = new LeagueTable(Collections.<String, Entry>emptyMap(), 0,
+            Collections.<String>emptyList());
+
+    private static final int GAME_TYPES = GameType.values().length;
+
+    /**
+     * The entries sorted by the name of the player
+     */
+    private final Map<String, Entry> entries;
+    private final int sessionAmount;
+    private final List<String> unreadableFiles;
+
+    private LeagueTable(Map<String, Entry> entries, int sessionAmount, List<String> unreadableFiles) {
+        this.entries = entries;
+        this.sessionAmount = sessionAmount;
+        this.unreadableFiles = unreadableFiles;
+    }
+
+    /**
+     * Creates the table of the games of the given session
+     *
+     * @param session A session
+     * @return the totals of the players of the session
+     */
+    public static LeagueTable of(@NonNull Session session) {
+        SessionStatistics statistics = new SessionStatistics(session);
+        Map<String, Entry> entries = new TreeMap<>();
+        for (Player player : session.getPlayers()) {
+            int[] gamesByType = new int[GAME_TYPES];
+            int[] moneyByType = new int[GAME_TYPES];
+            for (GameType type : GameType.values()) {
+                gamesByType[type.ordinal()] = statistics.getGamesPlayed(player, type);
+                moneyByType[type.ordinal()] = statistics.getMoney(player, type);
+            }
+            entries.put(player.getName(), new Entry(player.getName(), 1, statistics.getGamesPlayed(player),
+                    statistics.getWins(player), statistics.getCalls(player), gamesByType, moneyByType));
+        }
+        return new LeagueTable(Collections.unmodifiableMap(entries), 1, Collections.<String>emptyList());
+    }
+
+    /**
+     * Creates the table of a session file that could not be read
+     *
+     * @param fileName The name of the file
+     * @return a table without entries listing the given file as unreadable
+     */
+    static LeagueTable unreadable(@NonNull String fileName) {
+        return new LeagueTable(Collections.<String, Entry>emptyMap(), 0, Collections.singletonList(fileName));
+    }
+
+    /**
+     * Combines this table with the given table. Players with the same name are added up
+     *
+     * @param other Another table
+     * @return a new table with the totals of both tables
+     */
+    public LeagueTable merge(@NonNull LeagueTable other) {
+        if (other.sessionAmount == 0 && other.unreadableFiles.isEmpty()) {
+            return this;
+        }
+        if (sessionAmount == 0 && unreadableFiles.isEmpty()) {
+            return other;
+        }
+        Map<String, Entry> merged = new TreeMap<>(entries);
+        for (Entry entry : other.entries.values()) {
+            Entry existing = merged.get(entry.name);
+            merged.put(entry.name, existing == null ? entry : existing.merge(entry));
+        }
+        List<String> unreadable = new ArrayList<>(unreadableFiles);
+        unreadable.addAll(other.unreadableFiles);
+        Collections.sort(unreadable);
+        return new LeagueTable(Collections.unmodifiableMap(merged), sessionAmount + other.sessionAmount,
+                Collections.unmodifiableList(unreadable));
+    }
+
+    /**
+     * @return the entries of all players, sorted by name
+     */
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * @param playerName The name of a player
+     * @return the entry of the player, or null if the player did not participate in any session of this table
+     */
+    public
+    @Nullable
+    Entry getEntry(@NonNull String playerName) {
+        return entries.get(playerName);
+    }
+
+    /**
+     * @return the amount of sessions in this table
+     */
+    public int getSessionAmount() {
+        return sessionAmount;
+    }
+
+    /**
+     * @return the names of the session files that could not be read, sorted
+     */
+    public List<String> getUnreadableFiles() {
+        return unreadableFiles;
+    }
+
+    /**
+     * The totals of one player
+     */
+    public static final class Entry {
+        private final String name;
+        private final int sessions;
+        private final int gamesPlayed;
+        private final int wins;
+        private final int calls;
+        private final int[] gamesByType;
+        private final int[] moneyByType;
+
+        private Entry(String name, int sessions, int gamesPlayed, int wins, int calls, int[] gamesByType, int[] moneyByType) {
+            this.name = name;
+            this.sessions = sessions;
+            this.gamesPlayed = gamesPlayed;
+            this.wins = wins;
+            this.calls = calls;
+            this.gamesByType = gamesByType;
+            this.moneyByType = moneyByType;
+        }
+
+        private Entry merge(Entry other) {
+            int[] games = new int[GAME_TYPES];
+            int[] money = new int[GAME_TYPES];
+            for (int i = 0; i < GAME_TYPES; i++) {
+                games[i] = gamesByType[i] + other.gamesByType[i];
+                money[i] = moneyByType[i] + other.moneyByType[i];
+            }
+            return new Entry(name, sessions + other.sessions, gamesPlayed + other.gamesPlayed, wins + other.wins,
+                    calls + other.calls, games, money);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the amount of sessions the player was part of
+         */
+        public int getSessions() {
+            return sessions;
+        }
+
+        /**
+         * @return the amount of games the player participated in
+         */
+        public int getGamesPlayed() {
+            return gamesPlayed;
+        }
+
+        /**
+         * @param type a game type
+         * @return the amount of games of the given type the player participated in
+         */
+        public int getGamesPlayed(@NonNull GameType type) {
+            return gamesByType[type.ordinal()];
+        }
+
+        /**
+         * @return the amount of games the player won
+         */
+        public int getWins() {
+            return wins;
+        }
+
+        /**
+         * @return the amount of games the player was on the calling side
+         */
+        public int getCalls() {
+            return calls;
+        }
+
+        /**
+         * @return the won games divided by the played games, 0 if the player has not played
+         */
+        public float getWinRate() {
+            return gamesPlayed == 0 ? 0 : wins / (float) gamesPlayed;
+        }
+
+        /**
+         * @return the money the player won (negative: lost) in all sessions
+         */
+        public int getMoney() {
+            int money = 0;
+            for (int m : moneyByType) {
+                money += m;
+            }
+            return money;
+        }
+
+        /**
+         * @param type a game type
+         * @return the money the player won (negative: lost) in games of the given type
+         */
+        public int getMoney(@NonNull GameType type) {
+            return moneyByType[type.ordinal()];
+        }
+    }
+}
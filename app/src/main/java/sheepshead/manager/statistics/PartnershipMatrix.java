@@ -0,0 +1,274 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.statistics;
+
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import sheepshead.manager.game.GameType;
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.PlayerRole;
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.serialization.CSVFormat;
+import sheepshead.manager.serialization.SessionCSVWriter;
+import sheepshead.manager.serialization.SessionDataCorruptedException;
+import sheepshead.manager.session.ISessionListener;
+import sheepshead.manager.session.Session;
+
+/**
+ * Who played with and against whom in the {@link GameType#SAUSPIEL} games of a session. In a Sauspiel the two
+ * callers play together against the two other players.
+ * <br>
+ * The counters of every pair of players are stored in flat primitive arrays of players x players entries, indexed
+ * by first player id * players + second player id. The matrix is counted once when it is created and then kept up
+ * to date as a listener of the session: every added, removed or replaced game changes the 12 pairs of its four
+ * players in constant time.
+ */
+public class PartnershipMatrix implements ISessionListener {
+
+    private final Player[] players;
+    private final int playerAmount;
+    private final int[] gamesTogether;
+    private final int[] winsTogether;
+    private final int[] gamesAgainst;
+    /**
+     * The money the first player won (negative: lost) in the games against the second player
+     */
+    private final int[] moneyAgainst;
+
+    /**
+     * Creates the matrix of the games currently in the given session.
+     * To keep it up to date, register it with {@link Session#addListener(ISessionListener)}
+     *
+     * @param session The session
+     */
+    public PartnershipMatrix(@NonNull Session session) {
+        playerAmount = session.getPlayers().size();
+        players = new Player[playerAmount];
+        for (Player player : session.getPlayers()) {
+            players[player.getId()] = player;
+        }
+        gamesTogether = new int[playerAmount * playerAmount];
+        winsTogether = new int[playerAmount * playerAmount];
+        gamesAgainst = new int[playerAmount * playerAmount];
+        moneyAgainst = new int[playerAmount * playerAmount];
+        Iterator<SingleGameResult> it = session.iterator();
+        while (it.hasNext()) {
+            account(it.next(), 1);
+        }
+    }
+
+    /**
+     * Adds (sign 1) or takes back (sign -1) the given game
+     */
+    private void account(SingleGameResult game, int sign) {
+        if (game.getGameType() != GameType.SAUSPIEL) {
+            return;
+        }
+        PlayerRole[] roles = game.getParticipants().toArray(new PlayerRole[SingleGameResult.PLAYERS_PER_GAME]);
+        for (PlayerRole first : roles) {
+            int row = first.getPlayer().getId() * playerAmount;
+            for (PlayerRole second : roles) {
+                if (first == second) {
+                    continue;
+                }
+                int i = row + second.getPlayer().getId();
+                if (first.isCaller() == second.isCaller()) {
+                    gamesTogether[i] += sign;
+                    if (first.isWinner()) {
+                        winsTogether[i] += sign;
+                    }
+                } else {
+                    gamesAgainst[i] += sign;
+                    moneyAgainst[i] += sign * first.getMoney();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onGameAdded(@NonNull Session session, @NonNull SingleGameResult game) {
+        account(game, 1);
+    }
+
+    @Override
+    public void onGameRemoved(@NonNull Session session, int index, @NonNull SingleGameResult removed) {
+        account(removed, -1);
+    }
+
+    @Override
+    public void onGameReplaced(@NonNull Session session, int index, @NonNull SingleGameResult replaced, @NonNull SingleGameResult game) {
+        account(replaced, -1);
+        account(game, 1);
+    }
+
+    private int indexOf(Player first, Player second) {
+        int a = first.getId();
+        int b = second.getId();
+        if (a < 0 || a >= playerAmount || b < 0 || b >= playerAmount) {
+            throw new IllegalArgumentException(first + " or " + second + " is not part of the session");
+        }
+        return a * playerAmount + b;
+    }
+
+    /**
+     * @param first  a player of the session
+     * @param second another player of the session
+     * @return the amount of Sauspiel games both players played on the same side
+     */
+    public int getGamesTogether(@NonNull Player first, @NonNull Player second) {
+        return gamesTogether[indexOf(first, second)];
+    }
+
+    /**
+     * @param first  a player of the session
+     * @param second another player of the session
+     * @return the amount of Sauspiel games both players won together
+     */
+    public int getWinsTogether(@NonNull Player first, @NonNull Player second) {
+        return winsTogether[indexOf(first, second)];
+    }
+
+    /**
+     * @param first  a player of the session
+     * @param second another player of the session
+     * @return the amount of Sauspiel games the players played on opposite sides
+     */
+    public int getGamesAgainst(@NonNull Player first, @NonNull Player second) {
+        return gamesAgainst[indexOf(first, second)];
+    }
+
+    /**
+     * @param first  a player of the session
+     * @param second another player of the session
+     * @return the money the first player won (negative: lost) in the Sauspiel games against the second player
+     */
+    public int getMoneyAgainst(@NonNull Player first, @NonNull Player second) {
+        return moneyAgainst[indexOf(first, second)];
+    }
+
+    /**
+     * Returns all pairs of players that played together, the best partnership first: sorted by the ratio of
+     * won games, then by the amount of games
+     *
+     * @return the partnerships
+     */
+    public List<Partnership> getPartnerships() {
+        List<Partnership> partnerships = new ArrayList<>();
+        for (int a = 0; a < playerAmount; a++) {
+            for (int b = a + 1; b < playerAmount; b++) {
+                int i = a * playerAmount + b;
+                if (gamesTogether[i] > 0) {
+                    partnerships.add(new Partnership(players[a], players[b], gamesTogether[i], winsTogether[i]));
+                }
+            }
+        }
+        Collections.sort(partnerships, new Comparator<Partnership>() {
+            @Override
+            public int compare(Partnership p1, Partnership p2) {
+                //cross multiplied ratios, so equal ratios compare equal
+                int byRatio = Long.compare((long) p2.wins * p1.games, (long) p1.wins * p2.games);
+                return byRatio != 0 ? byRatio : Integer.compare(p2.games, p1.games);
+            }
+        });
+        return partnerships;
+    }
+
+    /**
+     * Writes one row per ordered pair of players with the counters of the pair, following a header row
+     *
+     * @param stream The stream to write into, it is not closed
+     * @param format The format of the rows, its writer and compression are not used
+     * @throws IOException                   When writing fails
+     * @throws SessionDataCorruptedException If a player name contains the escape character of the format
+     */
+    public void writeTo(@NonNull OutputStream stream, @NonNull CSVFormat format) throws IOException, SessionDataCorruptedException {
+        SessionCSVWriter csvWriter = new SessionCSVWriter(format);
+        Writer writer = new OutputStreamWriter(stream, format.getEncoding());
+        csvWriter.writeRow(Arrays.asList("Player", "Partner", "Games together", "Wins together", "Games against",
+                "Money against"), writer);
+        for (int a = 0; a < playerAmount; a++) {
+            for (int b = 0; b < playerAmount; b++) {
+                if (a == b) {
+                    continue;
+                }
+                int i = a * playerAmount + b;
+                csvWriter.writeRow(Arrays.asList(players[a].getName(), players[b].getName(),
+                        Integer.toString(gamesTogether[i]), Integer.toString(winsTogether[i]),
+                        Integer.toString(gamesAgainst[i]), Integer.toString(moneyAgainst[i])), writer);
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Two players that played together
+     */
+    public static final class Partnership {
+        private final Player first;
+        private final Player second;
+        private final int games;
+        private final int wins;
+
+        private Partnership(Player first, Player second, int games, int wins) {
+            this.first = first;
+            this.second = second;
+            this.games = games;
+            this.wins = wins;
+        }
+
+        public Player getFirst() {
+            return first;
+        }
+
+        public Player getSecond() {
+            return second;
+        }
+
+        /**
+         * @return the amount of Sauspiel games the players played together
+         */
+        public int getGames() {
+            return games;
+        }
+
+        /**
+         * @return the amount of Sauspiel games the players won together
+         */
+        public int getWins() {
+            return wins;
+        }
+
+        /**
+         * @return the won games divided by the games together
+         */
+        public float getWinRatio() {
+            return wins / (float) games;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.statistics;
+
+
+import android.support.annotation.NonNull;
+
+import java.util.Iterator;
+
+import sheepshead.manager.game.GameType;
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.PlayerRole;
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.game.StakeModifier;
+import sheepshead.manager.session.ISessionListener;
+import sheepshead.manager.session.Session;
+
+/**
+ * Per player statistics of a session (games played, wins, calls, money per {@link GameType} and how often
+ * the modifiers of {@link StakeModifier} occurred). The statistics are counted once when they are created and
+ * then kept up to date as a listener of the session (see {@link Session#addListener(ISessionListener)}):
+ * every added, removed or replaced game changes the counters of its four players in constant time, so
+ * querying never rescans the games of the session.
+ * <br>
+ * The counters are stored in primitive arrays indexed by the {@linkplain Player#getId() id} of the player.
+ */
+public class SessionStatistics implements ISessionListener {
+
+    private static final int GAME_TYPES = GameType.values().length;
+
+    private final int playerAmount;
+    private final int[] gamesPlayed;
+    private final int[] wins;
+    private final int[] calls;
+    private final int[] callsWon;
+    private final int[] schneider;
+    private final int[] schwarz;
+    private final int[] tout;
+    private final int[] sie;
+    /**
+     * Indexed by player id * {@link #GAME_TYPES} + ordinal of the game type
+     */
+    private final int[] gamesByType;
+    private final int[] moneyByType;
+
+    /**
+     * Creates the statistics of the games currently in the given session.
+     * To keep them up to date, register them with {@link Session#addListener(ISessionListener)}
+     *
+     * @param session The session
+     */
+    public SessionStatistics(@NonNull Session session) {
+        playerAmount = session.getPlayers().size();
+        gamesPlayed = new int[playerAmount];
+        wins = new int[playerAmount];
+        calls = new int[playerAmount];
+        callsWon = new int[playerAmount];
+        schneider = new int[playerAmount];
+        schwarz = new int[playerAmount];
+        tout = new int[playerAmount];
+        sie = new int[playerAmount];
+        gamesByType = new int[playerAmount * GAME_TYPES];
+        moneyByType = new int[playerAmount * GAME_TYPES];
+        Iterator<SingleGameResult> it = session.iterator();
+        while (it.hasNext()) {
+            account(it.next(), 1);
+        }
+    }
+
+    /**
+     * Adds (sign 1) or takes back (sign -1) the given game
+     */
+    private void account(SingleGameResult game, int sign) {
+        int type = game.getGameType().ordinal();
+        StakeModifier modifier = game.getStakeModifier();
+        int schneiderDelta = modifier.isSchneider() ? sign : 0;
+        int schwarzDelta = modifier.isSchwarz() ? sign : 0;
+        int toutDelta = modifier.isTout() ? sign : 0;
+        int sieDelta = modifier.isSie() ? sign : 0;
+        for (PlayerRole role : game.getParticipants()) {
+            int id = role.getPlayer().getId();
+            gamesPlayed[id] += sign;
+            if (role.isWinner()) {
+                wins[id] += sign;
+            }
+            if (role.isCaller()) {
+                calls[id] += sign;
+                if (role.isWinner()) {
+                    callsWon[id] += sign;
+                }
+            }
+            schneider[id] += schneiderDelta;
+            schwarz[id] += schwarzDelta;
+            tout[id] += toutDelta;
+            sie[id] += sieDelta;
+            gamesByType[id * GAME_TYPES + type] += sign;
+            moneyByType[id * GAME_TYPES + type] += sign * role.getMoney();
+        }
+    }
+
+    @Override
+    public void onGameAdded(@NonNull Session session, @NonNull SingleGameResult game) {
+        account(game, 1);
+    }
+
+    @Override
+    public void onGameRemoved(@NonNull Session session, int index, @NonNull SingleGameResult removed) {
+        account(removed, -1);
+    }
+
+    @Override
+    public void onGameReplaced(@NonNull Session session, int index, @NonNull SingleGameResult replaced, @NonNull SingleGameResult game) {
+        account(replaced, -1);
+        account(game, 1);
+    }
+
+    private int idOf(Player player) {
+        int id = player.getId();
+        if (id < 0 || id >= playerAmount) {
+            throw new IllegalArgumentException(player + " is not part of the session");
+        }
+        return id;
+    }
+
+    /**
+     * @param player a player of the session
+     * @return the amount of games the player participated in
+     */
+    public int getGamesPlayed(@NonNull Player player) {
+        return gamesPlayed[idOf(player)];
+    }
+
+    /**
+     * @param player a player of the session
+     * @return the amount of games the player won
+     */
+    public int getWins(@NonNull Player player) {
+        return wins[idOf(player)];
+    }
+
+    /**
+     * @param player a player of the session
+     * @return the amount of games the player was on the calling side
+     */
+    public int getCalls(@NonNull Player player) {
+        return calls[idOf(player)];
+    }
+
+    /**
+     * @param player a player of the session
+     * @return the amount of games the player won on the calling side
+     */
+    public int getCallsWon(@NonNull Player player) {
+        return callsWon[idOf(player)];
+    }
+
+    /**
+     * @param player a player of the session
+     * @return the won games divided by the played games, 0 if the player has not played
+     */
+    public float getWinRate(@NonNull Player player) {
+        int id = idOf(player);
+        return gamesPlayed[id] == 0 ? 0 : wins[id] / (float) gamesPlayed[id];
+    }
+
+    /**
+     * @param player a player of the session
+     * @return the games on the calling side divided by the played games, 0 if the player has not played
+     */
+    public float getCallerRate(@NonNull Player player) {
+        int id = idOf(player);
+        return gamesPlayed[id] == 0 ? 0 : calls[id] / (float) gamesPlayed[id];
+    }
+
+    /**
+     * @param player a player of the session
+     * @param type   a game type
+     * @return the amount of games of the given type the player participated in
+     */
+    public int getGamesPlayed(@NonNull Player player, @NonNull GameType type) {
+        return gamesByType[idOf(player) * GAME_TYPES + type.ordinal()];
+    }
+
+    /**
+     * @param player a player of the session
+     * @param type   a game type
+     * @return the money the player won (negative: lost) in games of the given type
+     */
+    public int getMoney(@NonNull Player player, @NonNull GameType type) {
+        return moneyByType[idOf(player) * GAME_TYPES + type.ordinal()];
+    }
+
+    /**
+     * @param player a player of the session
+     * @return the amount of games with "Schneider" the player participated in
+     */
+    public int getSchneiderCount(@NonNull Player player) {
+        return schneider[idOf(player)];
+    }
+
+    /**
+     * @param player a player of the session
+     * @return the amount of games with "Schwarz" the player participated in
+     */
+    public int getSchwarzCount(@NonNull Player player) {
+        return schwarz[idOf(player)];
+    }
+
+    /**
+     * @param player a player of the session
+     * @return the amount of games with "Tout" the player participated in
+     */
+    public int getToutCount(@NonNull Player player) {
+        return tout[idOf(player)];
+    }
+
+    /**
+     * @param player a player of the session
+     * @return the amount of games with "Sie" the player participated in
+     */
+    public int getSieCount(@NonNull Player player) {
+        return sie[idOf(player)];
+    }
+}
@@ -24,6 +24,7 @@ import java.util.List;
 import sheepshead.manager.session.Stake;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 
 /**
  * Created by Nicolas on 01.10.2016.
@@ -330,6 +331,35 @@ public class SingleGameResultTest {
 
     */
 
+    @Test
+    public void testFindRole() throws Exception {
+        Player[] withIds = {new Player("A", 0), new Player("B", 1), new Player("C", 2), new Player("D", 3), new Player("E", 4)};
+        List<PlayerRole> playerList = new ArrayList<>(4);
+        playerList.add(new PlayerRole(withIds[4], true, true));
+        playerList.add(new PlayerRole(withIds[1], false, false));
+        playerList.add(new PlayerRole(withIds[2], false, false));
+        playerList.add(new PlayerRole(withIds[3], false, false));
+        singleGameResult = new SingleGameResult(playerList, GameType.SOLO, new StakeModifier());
+        assertEquals(0b11110L, singleGameResult.getParticipantMask());
+        assertTrue(singleGameResult.findRole(withIds[0]) == null);
+        for (PlayerRole role : playerList) {
+            assertTrue(singleGameResult.findRole(role.getPlayer()) == role);
+        }
+        //same id, but a different player
+        assertTrue(singleGameResult.findRole(new Player("B", 1)) == null);
+
+        //players without ids
+        playerList = new ArrayList<>(4);
+        playerList.add(new PlayerRole(player1, true, true));
+        playerList.add(new PlayerRole(player2, false, false));
+        playerList.add(new PlayerRole(player3, false, false));
+        playerList.add(new PlayerRole(player4, false, false));
+        singleGameResult = new SingleGameResult(playerList, GameType.SOLO, new StakeModifier());
+        for (PlayerRole role : playerList) {
+            assertTrue(singleGameResult.findRole(role.getPlayer()) == role);
+        }
+        assertTrue(singleGameResult.findRole(withIds[0]) == null);
+    }
 
     private void whenSetSingleGameResultIsExecuted() {
         singleGameResult.calculate(defaultStake);
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.PlayerRole;
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.session.DummySession;
+import sheepshead.manager.session.InternalSessionReader;
+import sheepshead.manager.session.InternalSessionWriter;
+import sheepshead.manager.session.PageLoadException;
+import sheepshead.manager.session.Session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BinarySessionReaderWriterTest {
+
+    private static final String[] players = {"Anton", "Berta", "Cäsar", "Dora", "Emil"};
+
+    private byte[] write(ISessionWriter writer, Session session) throws IOException, SessionDataCorruptedException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writer.writeOut(session, stream);
+        return stream.toByteArray();
+    }
+
+    @Test
+    public void testReadWrite() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession(Arrays.asList(players), 600);
+        byte[] data = write(new BinarySessionWriter(), session);
+        Session read = new BinarySessionReader().readFrom(new ByteArrayInputStream(data));
+
+        assertEquals(session.getGameAmount(), read.getGameAmount());
+        assertEquals(session.getSessionStake().getSoloTarif(), read.getSessionStake().getSoloTarif());
+        Iterator<SingleGameResult> expectedIt = session.iterator();
+        Iterator<SingleGameResult> readIt = read.iterator();
+        while (expectedIt.hasNext()) {
+            SingleGameResult expected = expectedIt.next();
+            SingleGameResult actual = readIt.next();
+            assertEquals(expected.getGameType(), actual.getGameType());
+            assertEquals(expected.getStakeModifier().getPackedWord(), actual.getStakeModifier().getPackedWord());
+            Iterator<PlayerRole> actualRoles = actual.getParticipants().iterator();
+            for (PlayerRole role : expected.getParticipants()) {
+                PlayerRole actualRole = actualRoles.next();
+                assertEquals(role.getPlayer().getName(), actualRole.getPlayer().getName());
+                assertEquals(role.isCaller(), actualRole.isCaller());
+                assertEquals(role.isWinner(), actualRole.isWinner());
+                assertEquals(role.getPlayerBalance(), actualRole.getPlayerBalance());
+            }
+        }
+        Iterator<Player> readPlayers = read.getPlayers().iterator();
+        for (Player player : session.getPlayers()) {
+            Player readPlayer = readPlayers.next();
+            assertEquals(player.getName(), readPlayer.getName());
+            assertEquals(player.getSessionMoney(), readPlayer.getSessionMoney());
+        }
+    }
+
+    @Test
+    public void testSmallerThanCSV() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession(Arrays.asList(players), 600);
+        CSVFormat format = new CSVFormat(';', '"', "utf8", false, new InternalSessionWriter(), new InternalSessionReader());
+        byte[] csv = write(new SessionCSVWriter(format), session);
+        byte[] binary = write(new BinarySessionWriter(), session);
+        assertTrue(binary.length * 4 < csv.length);
+    }
+
+    private void assertRange(Session session, int from, int to, int indexInterval) throws IOException, SessionDataCorruptedException {
+        File file = File.createTempFile("session", ".bin");
+        try {
+            SerializationActions.saveSession(file, session, new BinarySessionWriter(indexInterval));
+            IndexedSessionFile indexed = new IndexedSessionFile(file);
+            try {
+                assertEquals(indexInterval > 0, indexed.hasIndex());
+                assertEquals(session.getGameAmount(), indexed.getGameAmount());
+                List<SingleGameResult> games = indexed.readGames(from, to);
+                assertEquals(to - from, games.size());
+                for (int i = from; i < to; i++) {
+                    SingleGameResult expected = session.getGame(i);
+                    SingleGameResult actual = games.get(i - from);
+                    assertEquals(expected.getGameType(), actual.getGameType());
+                    assertEquals(expected.getStakeModifier().getPackedWord(), actual.getStakeModifier().getPackedWord());
+                    Iterator<PlayerRole> actualRoles = actual.getParticipants().iterator();
+                    for (PlayerRole role : expected.getParticipants()) {
+                        PlayerRole actualRole = actualRoles.next();
+                        assertEquals(role.getPlayer().getName(), actualRole.getPlayer().getName());
+                        assertEquals(role.getMoney(), actualRole.getMoney());
+                        assertEquals(role.getPlayerBalance(), actualRole.getPlayerBalance());
+                    }
+                }
+            } finally {
+                indexed.close();
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testIndexedRead() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession(Arrays.asList(players), 600);
+        assertRange(session, 130, 140, 64);
+        assertRange(session, 0, 600, 64);
+        assertRange(session, 550, 600, 64);
+        assertRange(session, 128, 128, 64);
+        assertRange(session, 300, 310, 0);
+    }
+
+    private void assertSameGames(Session expected, Session actual) {
+        assertEquals(expected.getGameAmount(), actual.getGameAmount());
+        Iterator<SingleGameResult> expectedIt = expected.iterator();
+        Iterator<SingleGameResult> actualIt = actual.iterator();
+        while (expectedIt.hasNext()) {
+            SingleGameResult expectedGame = expectedIt.next();
+            SingleGameResult actualGame = actualIt.next();
+            assertEquals(expectedGame.getStakeModifier().getPackedWord(), actualGame.getStakeModifier().getPackedWord());
+            Iterator<PlayerRole> actualRoles = actualGame.getParticipants().iterator();
+            for (PlayerRole role : expectedGame.getParticipants()) {
+                PlayerRole actualRole = actualRoles.next();
+                assertEquals(role.getPlayer().getName(), actualRole.getPlayer().getName());
+                assertEquals(role.getMoney(), actualRole.getMoney());
+                assertEquals(role.getPlayerBalance(), actualRole.getPlayerBalance());
+            }
+        }
+        Iterator<Player> actualPlayers = actual.getPlayers().iterator();
+        for (Player player : expected.getPlayers()) {
+            assertEquals(player.getSessionMoney(), actualPlayers.next().getSessionMoney());
+        }
+    }
+
+    @Test
+    public void testPagedSession() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession(Arrays.asList(players), 1000);
+        File file = File.createTempFile("session", ".bin");
+        try {
+            SerializationActions.saveSession(file, session, new BinarySessionWriter());
+            IndexedSessionFile pages = new IndexedSessionFile(file);
+            try {
+                Session paged = pages.createPagedSession();
+                Session snapshot = paged.snapshot();
+                assertSameGames(session, paged);
+                paged.trimMemory();
+                //replacing the file must not affect the paged session
+                SerializationActions.saveSession(file, new DummySession(Arrays.asList(players), 3), new BinarySessionWriter());
+                assertSameGames(session, snapshot);
+                assertEquals(session.balanceAt(session.getPlayers().iterator().next(), 300),
+                        paged.balanceAt(paged.getPlayers().iterator().next(), 300));
+
+                //the balances of the later pages are corrected when they are loaded again
+                Session beforeReplace = paged.snapshot();
+                session.replaceGame(10, session.getGame(20));
+                paged.replaceGame(10, paged.getGame(20));
+                paged.trimMemory();
+                assertSameGames(session, paged);
+                assertEquals(session.balanceAt(session.getPlayers().iterator().next(), 700),
+                        paged.balanceAt(paged.getPlayers().iterator().next(), 700));
+                assertSameGames(snapshot, beforeReplace);
+
+                session.removeGame(600);
+                paged.removeGame(600);
+                paged.trimMemory();
+                assertSameGames(session, paged);
+            } finally {
+                pages.close();
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testClosePagedSession() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession(Arrays.asList(players), 1000);
+        File file = File.createTempFile("session", ".bin");
+        try {
+            SerializationActions.saveSession(file, session, new BinarySessionWriter());
+            Session paged = new IndexedSessionFile(file).createPagedSession();
+            paged.close();
+            //the latest games stay in memory, older games cannot be loaded any more
+            assertEquals(session.getGameAmount(), paged.getGameAmount());
+            try {
+                paged.balanceAt(paged.getPlayers().iterator().next(), 300);
+                fail("The source of the session is closed");
+            } catch (PageLoadException e) {
+                //expected
+            }
+            try {
+                paged.loadGames(0, 300);
+                fail("The source of the session is closed");
+            } catch (IOException e) {
+                //expected
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testLargeOffsets() throws IOException, SessionDataCorruptedException {
+        long[] values = {0, 127, 128, Integer.MAX_VALUE, 1L << 31, 5L << 32, Long.MAX_VALUE};
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (long value : values) {
+            BinarySessionWriter.writeVarLong(stream, value);
+        }
+        ByteArrayInputStream in = new ByteArrayInputStream(stream.toByteArray());
+        for (long value : values) {
+            assertEquals(value, BinarySessionReader.readVarLong(in));
+        }
+        //offsets below 2 GiB are written like before, so older files keep their index
+        stream.reset();
+        BinarySessionWriter.writeVarLong(stream, 300000);
+        assertEquals(300000, BinarySessionReader.readVarint(new ByteArrayInputStream(stream.toByteArray())));
+    }
+
+    @Test
+    public void testOldReaderAcceptsIndex() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession(Arrays.asList(players), 100);
+        byte[] indexed = write(new BinarySessionWriter(8), session);
+        byte[] plain = write(new BinarySessionWriter(0), session);
+        assertTrue(indexed.length > plain.length);
+        Session read = new BinarySessionReader().readFrom(new ByteArrayInputStream(indexed));
+        assertEquals(100, read.getGameAmount());
+    }
+
+    @Test(expected = SessionDataCorruptedException.class)
+    public void testReadWrongMagic() throws IOException, SessionDataCorruptedException {
+        new BinarySessionReader().readFrom(new ByteArrayInputStream("P1;P2;P3;P4".getBytes("UTF-8")));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadTruncated() throws IOException, SessionDataCorruptedException {
+        byte[] data = write(new BinarySessionWriter(0), new DummySession(Arrays.asList(players), 20));
+        new BinarySessionReader().readFrom(new ByteArrayInputStream(Arrays.copyOf(data, data.length - 3)));
+    }
+
+    @Test(expected = SessionDataCorruptedException.class)
+    public void testReadTamperedMoney() throws IOException, SessionDataCorruptedException {
+        byte[] data = write(new BinarySessionWriter(0), new DummySession(Arrays.asList(players), 1));
+        //the last byte is the money of the last seat
+        data[data.length - 1] ^= 2;
+        new BinarySessionReader().readFrom(new ByteArrayInputStream(data));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CSVCellContentTest {
+
+    @Test
+    public void testPutAndRead() {
+        CSVCellContent content = new CSVCellContent('|');
+        content.put(true);
+        content.put(-42);
+        content.put("text");
+        content.put(Integer.MIN_VALUE);
+        String cell = content.consume();
+        assertEquals("true|-42|text|-2147483648", cell);
+
+        CSVCellContent.Reader reader = new CSVCellContent(cell, '|').getReader();
+        assertTrue(reader.getBoolean());
+        assertEquals(-42, reader.getInteger());
+        assertEquals("text", reader.getString());
+        assertEquals(Integer.MIN_VALUE, reader.getInteger());
+    }
+
+    @Test
+    public void testReuseReader() {
+        CSVCellContent.Reader reader = CSVCellContent.createReader('|');
+        reader.reset("FALSE|7||");
+        assertFalse(reader.getBoolean());
+        assertEquals(7, reader.getInteger());
+        reader.reset("|+3");
+        assertEquals("", reader.getString());
+        assertEquals(3, reader.getInteger());
+        reader.reset("");
+        assertEquals("", reader.getString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTrailingEmptyEntriesAreIgnored() {
+        CSVCellContent.Reader reader = CSVCellContent.createReader('|');
+        reader.reset("1||");
+        reader.getInteger();
+        reader.getString();
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testInvalidInteger() {
+        CSVCellContent.createReader('|').reset("12a").getInteger();
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testIntegerOverflow() {
+        CSVCellContent.createReader('|').reset("2147483648").getInteger();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import sheepshead.manager.session.DummySession;
+import sheepshead.manager.session.InternalSessionReader;
+import sheepshead.manager.session.InternalSessionWriter;
+import sheepshead.manager.session.Session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CSVCompressionTest {
+
+    private static final CSVFormat format = new CSVFormat(';', '"', "utf8", false, new InternalSessionWriter(), new InternalSessionReader());
+
+    private static byte[] write(Session session, CSVFormat format) throws IOException, SessionDataCorruptedException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        SessionCSVWriter writer = new SessionCSVWriter(format);
+        writer.writeOut(session, stream);
+        assertEquals(stream.size(), writer.getBytesWritten());
+        return stream.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession(500);
+        int plainSize = write(session, format).length;
+        for (CSVFormat.Compression compression : CSVFormat.Compression.values()) {
+            byte[] data = write(session, format.withCompression(compression));
+            if (compression != CSVFormat.Compression.NONE) {
+                assertTrue(compression + ": " + data.length + " of " + plainSize, data.length * 4 < plainSize);
+            }
+            //the reader detects the compression, its format does not need to match
+            Session read = new SessionCSVReader(format).readFrom(new ByteArrayInputStream(data));
+            assertEquals(session.getGameAmount(), read.getGameAmount());
+            assertEquals(compression, CSVFormat.Compression.detect(data[0] & 0xff, data[1] & 0xff));
+        }
+    }
+
+    @Test
+    public void testCompressedFile() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession(50);
+        File file = File.createTempFile("session", ".csv.gz");
+        try {
+            SerializationActions.saveSession(file, session, format.withCompression(CSVFormat.Compression.GZIP));
+            assertEquals(50, new MappedSessionCSVReader(format).readFrom(file).getGameAmount());
+            assertEquals(50, SessionSummary.readFrom(file, format).getGameAmount());
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import org.junit.Test;
+
+import sheepshead.manager.game.GameType;
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.PlayerRole;
+import sheepshead.manager.game.StakeModifier;
+import sheepshead.manager.session.Stake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CSVLayoutTest {
+
+    private static final CSVLayout.Builder FIELDS = CSVLayout.builder("Test");
+    private static final CSVLayout.Field FLAG = FIELDS.bool("flag");
+    private static final CSVLayout.Field COUNT = FIELDS.integer("count");
+    private static final CSVLayout LAYOUT = FIELDS.build();
+
+    @Test
+    public void testChecksEnabled() {
+        //the codecs are only checked against their layouts when the tests run with assertions
+        assertTrue(CSVLayout.CHECKED);
+    }
+
+    @Test
+    public void testHash() {
+        CSVLayout.Builder same = CSVLayout.builder("Test");
+        same.bool("flag");
+        same.integer("count");
+        assertEquals(LAYOUT.getHash(), same.build().getHash());
+
+        CSVLayout.Builder swapped = CSVLayout.builder("Test");
+        swapped.integer("count");
+        swapped.bool("flag");
+        assertNotEquals(LAYOUT.getHash(), swapped.build().getHash());
+
+        CSVLayout.Builder renamed = CSVLayout.builder("Test");
+        renamed.bool("flag");
+        renamed.integer("amount");
+        assertNotEquals(LAYOUT.getHash(), renamed.build().getHash());
+
+        assertNotEquals(CSVLayout.combinedHash(LAYOUT, Stake.CSV_LAYOUT), CSVLayout.combinedHash(Stake.CSV_LAYOUT, LAYOUT));
+    }
+
+    @Test
+    public void testPutAndRead() {
+        CSVCellContent content = new CSVCellContent('|');
+        content.begin(LAYOUT);
+        content.put(FLAG, true);
+        content.put(COUNT, -3);
+        content.end();
+        String cell = content.consume();
+        assertEquals("true|-3", cell);
+
+        CSVCellContent.Reader reader = CSVCellContent.createReader('|').reset(cell).begin(LAYOUT);
+        assertTrue(reader.getBoolean(FLAG));
+        assertEquals(-3, reader.getInteger(COUNT));
+        reader.end();
+    }
+
+    @Test
+    public void testOrderMismatch() {
+        CSVCellContent content = new CSVCellContent('|');
+        content.begin(LAYOUT);
+        try {
+            content.put(COUNT, 1);
+            fail("Put a field out of order");
+        } catch (IllegalStateException expected) {
+        }
+
+        CSVCellContent.Reader reader = CSVCellContent.createReader('|').reset("true|1").begin(LAYOUT);
+        reader.getBoolean(FLAG);
+        try {
+            reader.getBoolean(COUNT);
+            fail("Read an integer field as boolean");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testIncomplete() {
+        CSVCellContent content = new CSVCellContent('|');
+        content.begin(LAYOUT);
+        content.put(FLAG, false);
+        try {
+            content.end();
+            fail("Ended a layout with missing fields");
+        } catch (IllegalStateException expected) {
+        }
+        //reset forgets the unfinished layout
+        content.reset();
+        content.begin(LAYOUT);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        CSVCellContent content = new CSVCellContent('|');
+        CSVCellContent.Reader reader = CSVCellContent.createReader('|');
+
+        new Stake(2, 5, 1).toCSVSerializableString(content);
+        assertEquals(Stake.CSV_LAYOUT.size(), content.getContent().toString().split("\\|").length);
+        Stake stake = new Stake(reader.reset(content.getContent()));
+        assertEquals(2, stake.getGrundTarif());
+        assertEquals(5, stake.getSoloTarif());
+        assertEquals(1, stake.getLaufendeTarif());
+
+        content.reset();
+        StakeModifier modifier = new StakeModifier();
+        modifier.setRe(true);
+        modifier.setSchwarz(true);
+        modifier.setNumberOfLaufende(4);
+        modifier.toCSVSerializableString(content);
+        assertEquals(StakeModifier.CSV_LAYOUT.size(), content.getContent().toString().split("\\|").length);
+        assertEquals(modifier.getPackedWord(), new StakeModifier(reader.reset(content.getContent())).getPackedWord());
+
+        content.reset();
+        PlayerRole role = new PlayerRole(new Player("A"), true, false);
+        role.setMoney(-30);
+        role.setPlayerBalance(120);
+        role.toCSVSerializableString(content);
+        assertEquals(PlayerRole.CSV_LAYOUT.size(), content.getContent().toString().split("\\|").length);
+        PlayerRole read = new PlayerRole(role.getPlayer(), reader.reset(content.getContent()));
+        assertTrue(read.isCaller());
+        assertFalse(read.isWinner());
+        assertEquals(-30, read.getMoney());
+        assertEquals(120, read.getPlayerBalance());
+
+        for (GameType type : GameType.values()) {
+            content.reset();
+            type.toCSVSerializableString(content);
+            assertEquals(type, GameType.getGameType(reader.reset(content.getContent())));
+        }
+    }
+}
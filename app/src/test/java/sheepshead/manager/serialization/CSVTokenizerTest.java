@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CSVTokenizerTest {
+
+    private final CSVTokenizer tokenizer = new CSVTokenizer(';', '"');
+
+    private List<String> tokenize(String line) throws SessionDataCorruptedException {
+        List<String> cells = new ArrayList<>();
+        tokenizer.tokenize(line, cells);
+        return cells;
+    }
+
+    @Test
+    public void testTokenize() throws SessionDataCorruptedException {
+        assertEquals(Arrays.asList("a", "b", "c"), tokenize("a;b;c"));
+        assertEquals(Arrays.asList("", "b", "", "d"), tokenize(";b;;d;;"));
+        assertEquals(Arrays.asList("a;b", "c"), tokenize("\"a;b\";c"));
+        assertEquals(Arrays.asList("a\"b", "c\""), tokenize("\"a\"b\";\"c\"\""));
+        assertEquals(Arrays.asList("x\"y"), tokenize("x\"y"));
+        assertEquals(Collections.<String>emptyList(), tokenize(";;;"));
+        assertFalse(tokenizer.tokenize("", new ArrayList<String>()));
+    }
+
+    @Test
+    public void testLongEscapedCell() throws SessionDataCorruptedException {
+        StringBuilder cell = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            cell.append("ab;");
+        }
+        assertEquals(Arrays.asList(cell.toString(), "end"), tokenize("\"" + cell + "\";end"));
+    }
+
+    @Test
+    public void testReadRows() throws IOException, SessionDataCorruptedException {
+        tokenizer.reset(new StringReader("h1;h2\r\na;\"b;c\"\n\nd\re"));
+        List<String> cells = new ArrayList<>();
+        assertTrue(tokenizer.readRow(cells));
+        assertEquals(Arrays.asList("h1", "h2"), cells);
+        assertTrue(tokenizer.readRow(cells));
+        assertEquals(Arrays.asList("a", "b;c"), cells);
+        assertTrue(tokenizer.readRow(cells));
+        assertTrue(cells.isEmpty());
+        assertTrue(tokenizer.readRow(cells));
+        assertEquals(Collections.singletonList("d"), cells);
+        assertTrue(tokenizer.readRow(cells));
+        assertEquals(Collections.singletonList("e"), cells);
+        assertFalse(tokenizer.readRow(cells));
+    }
+
+    @Test(expected = SessionDataCorruptedException.class)
+    public void testUnclosedEscape() throws IOException, SessionDataCorruptedException {
+        tokenizer.reset(new StringReader("a;\"b;c\nd"));
+        tokenizer.readRow(new ArrayList<String>());
+    }
+}
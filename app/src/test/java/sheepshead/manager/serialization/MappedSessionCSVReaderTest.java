@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import sheepshead.manager.game.Player;
+import sheepshead.manager.session.DummySession;
+import sheepshead.manager.session.InternalSessionReader;
+import sheepshead.manager.session.InternalSessionWriter;
+import sheepshead.manager.session.Session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MappedSessionCSVReaderTest {
+
+    private static final CSVFormat format = new CSVFormat(';', '"', "utf8", false, new InternalSessionWriter(), new InternalSessionReader());
+
+    @Test
+    public void testReadSession() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession(Arrays.asList("Änton", "Berta;B", "Cäsar", "Dora"), 50);
+        File file = File.createTempFile("session", ".csv");
+        try {
+            SerializationActions.saveSession(file, session, format);
+            Session read = new MappedSessionCSVReader(format).readFrom(file);
+            assertEquals(session.getGameAmount(), read.getGameAmount());
+            Iterator<Player> readPlayers = read.getPlayers().iterator();
+            for (Player player : session.getPlayers()) {
+                Player readPlayer = readPlayers.next();
+                assertEquals(player.getName(), readPlayer.getName());
+                assertEquals(player.getSessionMoney(), readPlayer.getSessionMoney());
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testCellsMatchSessionCSVReader() throws SessionDataCorruptedException {
+        String[] lines = {"a;b;\"c;d\";e", ";x;;y;;", "\"ä;ö\";ü", ";;;", "", "\"end;\""};
+        RecordingReader recorder = new RecordingReader();
+        CSVFormat recording = new CSVFormat(';', '"', "utf8", false, null, recorder);
+        StringBuilder data = new StringBuilder("header");
+        List<List<String>> expected = new ArrayList<>();
+        SessionCSVReader reference = new SessionCSVReader(recording);
+        for (int i = 0; i < lines.length; i++) {
+            data.append(i % 2 == 0 ? "\r\n" : "\n").append(lines[i]);
+            List<String> cells = reference.parseLine(lines[i]);
+            if (cells != null && !cells.isEmpty()) {
+                expected.add(cells);
+            }
+        }
+        new MappedSessionCSVReader(recording).readFrom(ByteBuffer.wrap(data.toString().getBytes(Charset.forName("UTF-8"))));
+        assertEquals(Arrays.asList("header"), recorder.header);
+        assertEquals(expected, recorder.rows);
+    }
+
+    @Test(expected = SessionDataCorruptedException.class)
+    public void testUnclosedEscape() throws SessionDataCorruptedException {
+        CSVFormat recording = new CSVFormat(';', '"', "utf8", false, null, new RecordingReader());
+        new MappedSessionCSVReader(recording).readFrom(ByteBuffer.wrap("header\na;\"b;c\nd".getBytes()));
+    }
+
+    @Test
+    public void testSalvageSkipsDamagedRows() throws SessionDataCorruptedException {
+        RecordingReader recorder = new RecordingReader();
+        CSVFormat recording = new CSVFormat(';', '"', "utf8", false, null, recorder);
+        LoadReport report = new LoadReport();
+        byte[] data = "header\na;b\nbad;c\nd;e".getBytes(Charset.forName("UTF-8"));
+        new MappedSessionCSVReader(recording, report).readFrom(ByteBuffer.wrap(data));
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("d", "e")), recorder.rows);
+        assertEquals(1, report.getSkippedGames());
+    }
+
+    private static class RecordingReader implements SessionCSVReader.Reader {
+        List<String> header;
+        List<List<String>> rows = new ArrayList<>();
+
+        @Override
+        public void readHeader(List<String> headerCellContent) {
+            header = new ArrayList<>(headerCellContent);
+        }
+
+        @Override
+        public void readGame(List<String> rowContent) throws SessionDataCorruptedException {
+            if (rowContent.get(0).equals("bad")) {
+                throw new SessionDataCorruptedException("Damaged row");
+            }
+            rows.add(new ArrayList<>(rowContent));
+        }
+
+        @Override
+        public Session buildSession() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.session.DummySession;
+import sheepshead.manager.session.InternalSessionReader;
+import sheepshead.manager.session.InternalSessionWriter;
+import sheepshead.manager.session.Session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelSessionCSVReaderTest {
+
+    private static final List<String> names = Arrays.asList("Änton", "Berta;B", "Cäsar", "Dora", "Emil");
+
+    private static final CSVFormat format = new CSVFormat(';', '"', "utf8", false, new InternalSessionWriter(), new InternalSessionReader());
+
+    private static byte[] write(Session session) throws IOException, SessionDataCorruptedException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new SessionCSVWriter(format).writeOut(session, stream);
+        return stream.toByteArray();
+    }
+
+    @Test
+    public void testMatchesSequentialRead() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession(names, 500);
+        byte[] data = write(session);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Session read = new ParallelSessionCSVReader(format, pool, 256).readFrom(new ByteArrayInputStream(data));
+            assertEquals(session.getGameAmount(), read.getGameAmount());
+            Iterator<Player> readPlayers = read.getPlayers().iterator();
+            for (Player player : session.getPlayers()) {
+                Player readPlayer = readPlayers.next();
+                assertEquals(player.getName(), readPlayer.getName());
+                assertEquals(player.getSessionMoney(), readPlayer.getSessionMoney());
+            }
+            Iterator<SingleGameResult> games = session.iterator();
+            Iterator<SingleGameResult> readGames = read.iterator();
+            while (games.hasNext()) {
+                SingleGameResult game = games.next();
+                SingleGameResult readGame = readGames.next();
+                assertEquals(game.getGameType(), readGame.getGameType());
+                assertEquals(game.getStakeModifier().getNumberOfLaufende(), readGame.getStakeModifier().getNumberOfLaufende());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSmallAndEmptyBody() throws IOException, SessionDataCorruptedException {
+        for (int games : new int[]{0, 1, 3}) {
+            Session read = new ParallelSessionCSVReader(format).readFrom(new ByteArrayInputStream(write(new DummySession(names, games))));
+            assertEquals(games, read.getGameAmount());
+        }
+    }
+
+    @Test
+    public void testReportsFirstCorruptedRow() throws IOException, SessionDataCorruptedException {
+        String[] lines = new String(write(new DummySession(names, 200)), "utf8").split("\n");
+        lines[50] = "broken;row";
+        lines[150] = "another;broken;row";
+        StringBuilder data = new StringBuilder();
+        for (String line : lines) {
+            data.append(line).append('\n');
+        }
+        try {
+            new ParallelSessionCSVReader(format, null, 128).readFrom(new ByteArrayInputStream(data.toString().getBytes("utf8")));
+            fail("Corrupted row was not detected");
+        } catch (SessionDataCorruptedException e) {
+            assertTrue(e.getMessage().contains("broken;row") || e.getMessage().contains("broken,row"));
+            assertEquals(49, format.getReader().buildSession().getGameAmount());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import sheepshead.manager.session.DummySession;
+import sheepshead.manager.session.InternalSessionReader;
+import sheepshead.manager.session.InternalSessionWriter;
+import sheepshead.manager.session.Session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SalvageLoadTest {
+
+    private static final CSVFormat format = new CSVFormat(';', '"', "utf8", false, new InternalSessionWriter(), new InternalSessionReader());
+
+    private static String[] writeLines(Session session) throws IOException, SessionDataCorruptedException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new SessionCSVWriter(format).writeOut(session, stream);
+        return new String(stream.toByteArray(), "utf8").split("\r?\n");
+    }
+
+    private static byte[] join(String[] lines) throws IOException {
+        StringBuilder data = new StringBuilder();
+        for (String line : lines) {
+            data.append(line).append("\r\n");
+        }
+        return data.toString().getBytes("utf8");
+    }
+
+    @Test
+    public void testSkipsDamagedRows() throws IOException, SessionDataCorruptedException {
+        String[] lines = writeLines(new DummySession(10));
+        //line numbers start at 1 with the header
+        lines[2] = "broken;row";
+        lines[5] = lines[5].replaceFirst(";", ";\"");
+        LoadReport report = new LoadReport();
+        Session session = new SessionCSVReader(format, report).readFrom(new ByteArrayInputStream(join(lines)));
+
+        assertEquals(8, session.getGameAmount());
+        assertEquals(2, report.getSkippedGames());
+        //the stored balances of the games after a skipped game do not match the recalculated ones
+        List<Integer> skippedRows = new ArrayList<>();
+        for (LoadReport.Problem problem : report.getProblems()) {
+            if (problem.isSkipped()) {
+                skippedRows.add(problem.getRow());
+            } else {
+                assertTrue(problem.getRow() > 3);
+            }
+        }
+        assertEquals(Arrays.asList(3, 6), skippedRows);
+    }
+
+    @Test
+    public void testReportsStoredBalanceMismatch() throws IOException, SessionDataCorruptedException {
+        Session original = new DummySession(3);
+        String[] lines = writeLines(original);
+        //the winners of the second game lose instead, so all stored values of the later games differ
+        lines[2] = lines[2].replace("true|true", "true|false").replace("false|false", "false|true");
+        LoadReport report = new LoadReport();
+        Session session = new SessionCSVReader(format, report).readFrom(new ByteArrayInputStream(join(lines)));
+
+        assertEquals(3, session.getGameAmount());
+        assertEquals(0, report.getSkippedGames());
+        assertFalse(report.isClean());
+        for (LoadReport.Problem problem : report.getProblems()) {
+            assertTrue(problem.getRow() >= 3);
+        }
+    }
+
+    @Test(expected = SessionDataCorruptedException.class)
+    public void testStrictModeStillFails() throws IOException, SessionDataCorruptedException {
+        String[] lines = writeLines(new DummySession(3));
+        lines[2] = "broken;row";
+        new SessionCSVReader(format).readFrom(new ByteArrayInputStream(join(lines)));
+    }
+
+    @Test
+    public void testBinaryKeepsGamesBeforeDamage() throws IOException, SessionDataCorruptedException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new BinarySessionWriter(0).writeOut(new DummySession(20), stream);
+        byte[] data = Arrays.copyOf(stream.toByteArray(), stream.size() - 10);
+        LoadReport report = new LoadReport();
+        Session session = new BinarySessionReader(report).readFrom(new ByteArrayInputStream(data));
+
+        assertTrue(session.getGameAmount() > 0 && session.getGameAmount() < 20);
+        assertEquals(1, report.getSkippedGames());
+        assertEquals(session.getGameAmount(), report.getProblems().get(0).getRow());
+    }
+}
@@ -22,6 +22,7 @@ import org.junit.Test;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -34,7 +35,9 @@ import sheepshead.manager.game.StakeModifier;
 import sheepshead.manager.session.Session;
 import sheepshead.manager.session.Stake;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class SessionCSVReaderWriterTest {
     private static final CSVFormat format = new CSVFormat(';', '"', "utf8", false, null, null);
@@ -75,6 +78,31 @@ public class SessionCSVReaderWriterTest {
         return fake;
     }
 
+    @Test
+    public void testStreamingWriterMatchesListWriter() throws IOException, SessionDataCorruptedException {
+        Session fakeSession = prepareFakeSession();
+        ByteArrayOutputStream listStream = new ByteArrayOutputStream();
+        new SessionCSVWriter(new CSVFormat(';', '"', "utf8", false, new FakeSessionWriter(), null)).writeOut(fakeSession, listStream);
+        ByteArrayOutputStream streamingStream = new ByteArrayOutputStream();
+        new SessionCSVWriter(new CSVFormat(';', '"', "utf8", false, new FakeStreamingWriter(false), null)).writeOut(fakeSession, streamingStream);
+        assertArrayEquals(listStream.toByteArray(), streamingStream.toByteArray());
+    }
+
+    @Test
+    public void testBytesWritten() throws IOException, SessionDataCorruptedException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        SessionCSVWriter writer = new SessionCSVWriter(new CSVFormat(';', '"', "utf8", false, new FakeStreamingWriter(true), null));
+        writer.writeOut(prepareFakeSession(), stream);
+        assertEquals(stream.size(), writer.getBytesWritten());
+        assertTrue(new String(stream.toByteArray(), "utf8").contains("-2147483648;0;\u00dcber;42"));
+    }
+
+    @Test(expected = SessionDataCorruptedException.class)
+    public void testEscapeCharacterInCell() throws IOException, SessionDataCorruptedException {
+        SessionCSVWriter writer = new SessionCSVWriter(format);
+        writer.writeRow(Arrays.asList("a", "b\"c"), new StringWriter());
+    }
+
     @Test(expected = SessionDataCorruptedException.class)
     public void testReadEmpty() throws IOException, SessionDataCorruptedException {
         ByteArrayInputStream is = new ByteArrayInputStream(new byte[0]);
@@ -98,6 +126,34 @@ public class SessionCSVReaderWriterTest {
         }
     }
 
+    private static class FakeStreamingWriter extends FakeSessionWriter implements SessionCSVWriter.StreamingWriter {
+        private final boolean numberCells;
+
+        FakeStreamingWriter(boolean numberCells) {
+            this.numberCells = numberCells;
+        }
+
+        @Override
+        public void writeHeader(Session session, SessionCSVWriter.CellSink sink) throws IOException, SessionDataCorruptedException {
+            for (String cell : writeHeader(session)) {
+                sink.addCell(new StringBuilder(cell));
+            }
+            if (numberCells) {
+                sink.addCell(Integer.MIN_VALUE);
+                sink.addCell(0);
+                sink.addCell("\u00dcber");
+                sink.addCell(42);
+            }
+        }
+
+        @Override
+        public void writeGame(Session session, SingleGameResult result, SessionCSVWriter.CellSink sink) throws IOException, SessionDataCorruptedException {
+            for (String cell : writeGame(session, result)) {
+                sink.addCell(cell);
+            }
+        }
+    }
+
     private static class FakeSessionReader implements SessionCSVReader.Reader {
         private List<String> headerList;
         private List<List<String>> bodyList;
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.session.DummySession;
+import sheepshead.manager.session.InternalSessionReader;
+import sheepshead.manager.session.InternalSessionWriter;
+import sheepshead.manager.session.Session;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SessionFanOutTest {
+
+    private static final CSVFormat format = new CSVFormat(';', '"', "utf8", false, new InternalSessionWriter(), new InternalSessionReader());
+
+    private static byte[] write(Session session, CSVFormat format) throws IOException, SessionDataCorruptedException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new SessionCSVWriter(format).writeOut(session, stream);
+        return stream.toByteArray();
+    }
+
+    @Test
+    public void testMatchesSingleExports() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession(40);
+        CSVFormat compressed = format.withCompression(CSVFormat.Compression.GZIP);
+        CSVFormat other = new CSVFormat(',', '\'', "utf-16", false, new InternalSessionWriter(), null);
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        ByteArrayOutputStream third = new ByteArrayOutputStream();
+        CountingSink counter = new CountingSink();
+        new SessionFanOut().add(format, first).add(compressed, second).add(other, third).add(counter).writeOut(session);
+
+        assertArrayEquals(write(session, format), first.toByteArray());
+        assertArrayEquals(write(session, compressed), second.toByteArray());
+        assertArrayEquals(write(session, other), third.toByteArray());
+        assertEquals(1, counter.headers);
+        assertEquals(40, counter.games);
+        assertEquals(1, counter.finished);
+    }
+
+    @Test
+    public void testSaveSessionIntoSeveralFiles() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession(40);
+        CSVFormat compressed = format.withCompression(CSVFormat.Compression.GZIP);
+        File first = File.createTempFile("session", ".csv");
+        File second = File.createTempFile("session", ".csv.gz");
+        try {
+            SerializationActions.saveSession(Arrays.asList(first, second), session, Arrays.asList(format, compressed));
+            assertArrayEquals(write(session, format), Files.readAllBytes(first.toPath()));
+            assertArrayEquals(write(session, compressed), Files.readAllBytes(second.toPath()));
+        } finally {
+            assertTrue(first.delete());
+            assertTrue(second.delete());
+        }
+    }
+
+    @Test
+    public void testFailedSaveKeepsExistingFiles() throws IOException {
+        Session session = new DummySession(40);
+        CSVFormat failing = new CSVFormat(';', '"', "utf8", false, new FailingWriter(), null);
+        File first = File.createTempFile("session", ".csv");
+        File second = File.createTempFile("session", ".csv");
+        File[] temps = {new File(first.getPath() + ".tmp"), new File(second.getPath() + ".tmp")};
+        try {
+            SerializationActions.saveSession(Arrays.asList(first, second), session, Arrays.asList(format, failing));
+            fail("The failing writer was not noticed");
+        } catch (SessionDataCorruptedException e) {
+            //expected
+        } finally {
+            assertEquals(0, first.length());
+            assertEquals(0, second.length());
+            assertFalse(temps[0].exists());
+            assertFalse(temps[1].exists());
+            assertTrue(first.delete());
+            assertTrue(second.delete());
+        }
+    }
+
+    private static class FailingWriter implements SessionCSVWriter.Writer {
+        @Override
+        public List<String> writeHeader(Session session) {
+            return Arrays.asList("header");
+        }
+
+        @Override
+        public List<String> writeGame(Session session, SingleGameResult result) throws SessionDataCorruptedException {
+            throw new SessionDataCorruptedException("Cannot write " + result);
+        }
+    }
+
+    private static class CountingSink implements ISessionSink {
+        int headers;
+        int games;
+        int finished;
+
+        @Override
+        public void writeHeader(Session session) {
+            headers++;
+        }
+
+        @Override
+        public void writeGame(Session session, SingleGameResult result) {
+            games++;
+        }
+
+        @Override
+        public void finish() {
+            finished++;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import sheepshead.manager.session.DummySession;
+import sheepshead.manager.session.InternalSessionReader;
+import sheepshead.manager.session.InternalSessionWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class SessionSummaryTest {
+
+    private static final CSVFormat format = new CSVFormat(';', '"', "utf8", false, new InternalSessionWriter(), new InternalSessionReader());
+    private static final List<String> names = Arrays.asList("Änton", "Berta;B", "Cäsar", "Dora");
+
+    @Test
+    public void testCSVSummary() throws IOException, SessionDataCorruptedException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new SessionCSVWriter(format).writeOut(new DummySession(names, 37), stream);
+        //empty lines in the body are not counted
+        stream.write("\n;;\r\n".getBytes("utf8"));
+        SessionSummary summary = SessionSummary.readFrom(new ByteArrayInputStream(stream.toByteArray()), format);
+        assertEquals(names, summary.getPlayerNames());
+        assertEquals(37, summary.getGameAmount());
+    }
+
+    @Test
+    public void testBinarySummary() throws IOException, SessionDataCorruptedException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new BinarySessionWriter().writeOut(new DummySession(names, 300), stream);
+        SessionSummary summary = SessionSummary.readFrom(new ByteArrayInputStream(stream.toByteArray()), format);
+        assertEquals(names, summary.getPlayerNames());
+        assertEquals(300, summary.getGameAmount());
+    }
+
+    @Test(expected = SessionDataCorruptedException.class)
+    public void testEmptyFile() throws IOException, SessionDataCorruptedException {
+        SessionSummary.readFrom(new ByteArrayInputStream(new byte[0]), format);
+    }
+}
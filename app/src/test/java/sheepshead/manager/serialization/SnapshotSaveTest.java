@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.serialization;
+
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import sheepshead.manager.session.DummySession;
+import sheepshead.manager.session.InternalSessionReader;
+import sheepshead.manager.session.InternalSessionWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotSaveTest {
+
+    private static final CSVFormat format = new CSVFormat(';', '"', "utf8", false, new InternalSessionWriter(), new InternalSessionReader());
+
+    private File dir;
+    private File snapshot;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("snapshots", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+        snapshot = new File(dir, "latest_session");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                assertTrue(file.delete());
+            }
+        }
+        assertTrue(dir.delete());
+    }
+
+    @Test
+    public void testLoadSnapshot() throws IOException, SessionDataCorruptedException {
+        assertNull(SerializationActions.findLatestSnapshot(snapshot));
+        SerializationActions.saveSnapshot(snapshot, new DummySession(10), new SessionCSVWriter(format));
+        assertEquals(snapshot, SerializationActions.findLatestSnapshot(snapshot));
+        assertEquals(10, SerializationActions.loadSession(snapshot, new SessionCSVReader(format)).getGameAmount());
+    }
+
+    @Test
+    public void testInterruptedWriteFallsBackToPreviousGeneration() throws IOException, SessionDataCorruptedException {
+        SerializationActions.saveSnapshot(snapshot, new DummySession(10), new SessionCSVWriter(format));
+        SerializationActions.saveSnapshot(snapshot, new DummySession(11), new SessionCSVWriter(format));
+        RandomAccessFile file = new RandomAccessFile(snapshot, "rw");
+        file.setLength(file.length() - 5);
+        file.close();
+
+        File latest = SerializationActions.findLatestSnapshot(snapshot);
+        assertEquals(snapshot.getName() + ".prev", latest.getName());
+        assertEquals(10, SerializationActions.loadSession(latest, new SessionCSVReader(format)).getGameAmount());
+    }
+
+    @Test(expected = SessionDataCorruptedException.class)
+    public void testChecksumMismatch() throws IOException, SessionDataCorruptedException {
+        SerializationActions.saveSnapshot(snapshot, new DummySession(10), new SessionCSVWriter(format));
+        RandomAccessFile file = new RandomAccessFile(snapshot, "rw");
+        //the header still parses, but the name changed from Anton to Bnton
+        file.seek(0);
+        file.write('B');
+        file.close();
+        assertEquals(snapshot, SerializationActions.findLatestSnapshot(snapshot));
+        SerializationActions.loadSession(snapshot, new SessionCSVReader(format));
+    }
+
+    @Test
+    public void testIndexedSnapshot() throws IOException, SessionDataCorruptedException {
+        SerializationActions.saveSnapshot(snapshot, new DummySession(300), new BinarySessionWriter());
+        assertEquals(300, SerializationActions.loadSession(snapshot, new BinarySessionReader()).getGameAmount());
+        IndexedSessionFile indexed = new IndexedSessionFile(snapshot);
+        try {
+            assertTrue(indexed.hasIndex());
+            assertEquals(300, indexed.createPagedSession().getGameAmount());
+        } finally {
+            indexed.close();
+        }
+    }
+
+    @Test(expected = SessionDataCorruptedException.class)
+    public void testIndexedSnapshotChecksumMismatch() throws IOException, SessionDataCorruptedException {
+        SerializationActions.saveSnapshot(snapshot, new DummySession(300), new BinarySessionWriter());
+        IndexedSessionFile indexed = new IndexedSessionFile(snapshot);
+        try {
+            indexed.verify();
+            RandomAccessFile file = new RandomAccessFile(snapshot, "rw");
+            //a game in the middle of the file, which a paged session would not read at startup
+            file.seek(file.length() / 2);
+            int b = file.read();
+            file.seek(file.length() / 2);
+            file.write(b ^ 0x01);
+            file.close();
+            indexed.verify();
+        } finally {
+            indexed.close();
+        }
+    }
+
+    @Test
+    public void testPlainSaveHasNoFooter() throws IOException, SessionDataCorruptedException {
+        SerializationActions.saveSession(snapshot, new DummySession(3), format);
+        assertFalse(SaveFileFooter.isComplete(snapshot));
+        assertEquals(snapshot, SerializationActions.findLatestSnapshot(snapshot));
+    }
+}
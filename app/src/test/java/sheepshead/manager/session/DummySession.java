@@ -44,6 +44,41 @@ public class DummySession extends Session {
         addGames();
     }
 
+    /**
+     * Creates a session of the given amount of generated games. The players take turns, every fifth game is
+     * a solo and the modifiers vary from game to game
+     *
+     * @param games The amount of games
+     */
+    public DummySession(int games) {
+        this(Arrays.asList(names), games);
+    }
+
+    /**
+     * Creates a session of the given players with the given amount of generated games, see {@link #DummySession(int)}
+     *
+     * @param playerNames The names of the players
+     * @param games       The amount of games
+     */
+    public DummySession(List<String> playerNames, int games) {
+        super(playerNames, new Stake(10, 50, 10));
+        Player[] p = getPlayers().toArray(new Player[0]);
+        for (int i = 0; i < games; i++) {
+            List<PlayerRole> roles = new ArrayList<>();
+            GameType type = i % 5 == 0 ? GameType.SOLO : GameType.SAUSPIEL;
+            boolean callersWon = i % 3 != 0;
+            for (int seat = 0; seat < SingleGameResult.PLAYERS_PER_GAME; seat++) {
+                boolean caller = seat < type.getNumberOfCallers();
+                roles.add(new PlayerRole(p[(i + seat) % p.length], caller, caller == callersWon));
+            }
+            StakeModifier modifier = new StakeModifier();
+            modifier.setKontra(i % 4 == 0);
+            modifier.setSchneider(i % 2 == 0);
+            modifier.setNumberOfLaufende(i % 7);
+            addGame(new SingleGameResult(roles, type, modifier));
+        }
+    }
+
     private void addGames() {
         addGame(createGame(createMod(0, false), GameType.SAUSPIEL, "Arian"));
         addGame(createGame(createMod(0, false), GameType.SAUSPIEL, "Simon"));
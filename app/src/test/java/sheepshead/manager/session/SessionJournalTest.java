@@ -0,0 +1,253 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.session;
+
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import sheepshead.manager.appcore.SheepsheadManagerApplication;
+import sheepshead.manager.game.GameType;
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.PlayerRole;
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.game.StakeModifier;
+import sheepshead.manager.serialization.LoadReport;
+import sheepshead.manager.serialization.SerializationActions;
+import sheepshead.manager.serialization.SessionCSVReader;
+import sheepshead.manager.serialization.SessionCSVWriter;
+import sheepshead.manager.serialization.SessionDataCorruptedException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SessionJournalTest {
+
+    private File snapshot;
+    private File journalFile;
+
+    @Before
+    public void setUp() throws IOException {
+        snapshot = File.createTempFile("journal_test", ".csv");
+        journalFile = File.createTempFile("journal_test", ".journal");
+    }
+
+    @After
+    public void cleanup() {
+        new File(snapshot.getPath() + ".prev").delete();
+        assertTrue(snapshot.delete());
+        assertTrue(journalFile.delete());
+    }
+
+    private SingleGameResult createGame(Session session, int firstPlayer) {
+        Player[] players = session.getPlayers().toArray(new Player[0]);
+        List<PlayerRole> roles = new ArrayList<>();
+        for (int i = 0; i < SingleGameResult.PLAYERS_PER_GAME; i++) {
+            roles.add(new PlayerRole(players[(firstPlayer + i) % players.length], i == 0, i == 0));
+        }
+        return new SingleGameResult(roles, GameType.SOLO, new StakeModifier());
+    }
+
+    private Session reload() throws IOException, SessionDataCorruptedException {
+        Session loaded = SerializationActions.loadSession(snapshot, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        new SessionJournal(journalFile, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT).replay(loaded, snapshot);
+        return loaded;
+    }
+
+    private void assertSameBalances(Session expected, Session actual) {
+        assertEquals(expected.getGameAmount(), actual.getGameAmount());
+        Iterator<Player> it = expected.getPlayers().iterator();
+        for (Player p : actual.getPlayers()) {
+            assertEquals(it.next().getSessionMoney(), p.getSessionMoney());
+        }
+    }
+
+    @Test
+    public void testReplay() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession();
+        SessionJournal journal = new SessionJournal(journalFile, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        session.addListener(journal);
+        journal.compact(session, snapshot);
+        long snapshotSize = snapshot.length();
+
+        session.addGame(createGame(session, 0));
+        session.addGame(createGame(session, 1));
+        session.addGame(createGame(session, 2));
+        session.removeLatestGameResult();
+        session.replaceGame(3, createGame(session, 3));
+        session.removeGame(5);
+        assertEquals(6, journal.getRecordCount());
+        //the snapshot is not touched by journaled changes
+        assertEquals(snapshotSize, snapshot.length());
+
+        assertSameBalances(session, reload());
+    }
+
+    @Test
+    public void testReplayWithoutJournal() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession();
+        SerializationActions.saveSnapshot(snapshot, session, new SessionCSVWriter(SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT));
+        assertTrue(journalFile.delete());
+
+        Session loaded = SerializationActions.loadSession(snapshot, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        SessionJournal journal = new SessionJournal(journalFile, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        assertEquals(0, journal.replay(loaded, snapshot));
+        assertFalse(journal.needsCompaction());
+        loaded.addListener(journal);
+        loaded.addGame(createGame(loaded, 0));
+        loaded.addGame(createGame(loaded, 1));
+
+        Session reopened = SerializationActions.loadSession(snapshot, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        assertEquals(2, new SessionJournal(journalFile, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT).replay(reopened, snapshot));
+        assertSameBalances(loaded, reopened);
+    }
+
+    @Test
+    public void testCompaction() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession();
+        SessionJournal journal = new SessionJournal(journalFile, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        session.addListener(journal);
+        journal.compact(session, snapshot);
+        for (int i = 0; i < SessionJournal.COMPACTION_THRESHOLD; i++) {
+            session.addGame(createGame(session, i));
+        }
+        assertTrue(journal.needsCompaction());
+        journal.compact(session, snapshot);
+        assertFalse(journal.needsCompaction());
+        assertEquals(0, journal.getRecordCount());
+
+        assertSameBalances(session, reload());
+    }
+
+    @Test
+    public void testStaleJournalIsIgnored() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession();
+        SessionJournal journal = new SessionJournal(journalFile, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        session.addListener(journal);
+        journal.compact(session, snapshot);
+        session.addGame(createGame(session, 0));
+        //simulates a crash after the snapshot was written but before the journal was cleared
+        SerializationActions.saveSession(snapshot, session, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+
+        Session loaded = SerializationActions.loadSession(snapshot, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        SessionJournal loadedJournal = new SessionJournal(journalFile, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        assertEquals(0, loadedJournal.replay(loaded, snapshot));
+        assertTrue(loadedJournal.needsCompaction());
+        assertSameBalances(session, loaded);
+    }
+
+    @Test
+    public void testJournalOfOtherLayoutIsIgnored() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession();
+        SessionJournal journal = new SessionJournal(journalFile, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        session.addListener(journal);
+        journal.compact(session, snapshot);
+        int games = session.getGameAmount();
+        session.addGame(createGame(session, 0));
+
+        //the cells of the journal were written with different layouts
+        String content = new String(Files.readAllBytes(journalFile.toPath()), StandardCharsets.UTF_8);
+        String hash = Integer.toString(InternalSessionWriter.LAYOUT_HASH);
+        assertTrue(content.contains(hash));
+        content = content.replaceFirst(hash, Integer.toString(InternalSessionWriter.LAYOUT_HASH + 1));
+        Files.write(journalFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+        Session loaded = SerializationActions.loadSession(snapshot, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        SessionJournal loadedJournal = new SessionJournal(journalFile, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        assertEquals(0, loadedJournal.replay(loaded, snapshot));
+        assertTrue(loadedJournal.needsCompaction());
+        assertEquals(games, loaded.getGameAmount());
+    }
+
+    @Test
+    public void testCrashBeforeJournalTruncation() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession();
+        SessionJournal journal = new SessionJournal(journalFile, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        session.addListener(journal);
+        journal.compact(session, snapshot);
+        //positional records whose net amount of games is zero
+        session.removeGame(3);
+        session.addGame(createGame(session, 2));
+        //simulates a crash after compaction renamed the new snapshot but before the journal was truncated
+        SerializationActions.saveSnapshot(snapshot, session, new SessionCSVWriter(SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT));
+
+        Session loaded = SerializationActions.loadSession(snapshot, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        SessionJournal loadedJournal = new SessionJournal(journalFile, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        assertEquals(0, loadedJournal.replay(loaded, snapshot));
+        assertTrue(loadedJournal.needsCompaction());
+        assertSameBalances(session, loaded);
+        for (int i = 0; i < session.getGameAmount(); i++) {
+            assertEquals(session.getGame(i).getParticipantMask(), loaded.getGame(i).getParticipantMask());
+            assertEquals(session.getGame(i).getGameType(), loaded.getGame(i).getGameType());
+        }
+
+        //the previous generation is the snapshot the journal belongs to
+        Session previous = SerializationActions.loadSession(new File(snapshot.getPath() + ".prev"), SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        assertEquals(2, new SessionJournal(journalFile, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT)
+                .replay(previous, new File(snapshot.getPath() + ".prev")));
+        assertSameBalances(session, previous);
+    }
+
+    @Test
+    public void testJournalIsKeptAfterSalvage() throws IOException, SessionDataCorruptedException {
+        Session session = new DummySession();
+        SessionJournal journal = new SessionJournal(journalFile, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        session.addListener(journal);
+        journal.compact(session, snapshot);
+        session.addGame(createGame(session, 0));
+
+        //damage the second game of the snapshot
+        String content = new String(Files.readAllBytes(snapshot.toPath()), StandardCharsets.ISO_8859_1);
+        String[] lines = content.split("\n", -1);
+        lines[2] = "broken;row\r";
+        StringBuilder damaged = new StringBuilder(lines[0]);
+        for (int i = 1; i < lines.length; i++) {
+            damaged.append('\n').append(lines[i]);
+        }
+        Files.write(snapshot.toPath(), damaged.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+        LoadReport report = new LoadReport();
+        Session salvaged = SerializationActions.loadSession(snapshot,
+                new SessionCSVReader(SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT, report), report);
+        assertTrue(report.getSkippedGames() > 0);
+        SessionJournal loadedJournal = new SessionJournal(journalFile, SheepsheadManagerApplication.INTERNAL_LOAD_SAVE_FORMAT);
+        assertEquals(0, loadedJournal.replay(salvaged, snapshot, report));
+
+        //the changes of the journal are kept for the user and listed in the report
+        File dropped = new File(journalFile.getPath() + SessionJournal.DROPPED_SUFFIX);
+        assertTrue(dropped.exists());
+        assertFalse(journalFile.exists());
+        boolean listed = false;
+        for (LoadReport.Problem problem : report.getProblems()) {
+            listed |= problem.getReason().contains(dropped.getName());
+        }
+        assertTrue(listed);
+        loadedJournal.compact(salvaged, snapshot);
+        assertTrue(dropped.exists());
+        assertTrue(dropped.delete());
+    }
+}
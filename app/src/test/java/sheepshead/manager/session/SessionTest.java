@@ -20,6 +20,7 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import sheepshead.manager.game.GameType;
@@ -29,6 +30,10 @@ import sheepshead.manager.game.SingleGameResult;
 import sheepshead.manager.game.StakeModifier;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class SessionTest {
@@ -134,6 +139,211 @@ public class SessionTest {
         testMoney(expectedMoney2, players);
     }
 
+    @Test
+    public void testStoredGames() {
+        String[] names = {"Anton", "Berta", "Cäsar", "Dora", "Emil"};
+        Session session = createDefaultSession(names);
+        Player[] players = session.getPlayers().toArray(new Player[names.length]);
+        List<SingleGameResult> added = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            Player[] callers = {players[i % 5]};
+            Player[] nonCallers = {players[(i + 1) % 5], players[(i + 2) % 5], players[(i + 3) % 5]};
+            StakeModifier mod = new StakeModifier();
+            mod.setKontra(i % 3 == 0);
+            mod.setSchneider(i % 2 == 0);
+            mod.setNumberOfLaufende(i % 5);
+            SingleGameResult game = createGame(callers, nonCallers, i % 2 == 0 ? GameType.SOLO : GameType.WENZ, i % 7 != 0, mod);
+            session.addGame(game);
+            added.add(game);
+        }
+        assertEquals(added.size(), session.getGameAmount());
+
+        Iterator<SingleGameResult> it = session.iterator();
+        for (SingleGameResult expected : added) {
+            assertSameGame(expected, it.next());
+        }
+        assertFalse(it.hasNext());
+
+        Iterator<SingleGameResult> revIt = session.getLatestFirstIterator();
+        for (int i = added.size() - 1; i >= 0; i--) {
+            assertSameGame(added.get(i), revIt.next());
+        }
+        assertFalse(revIt.hasNext());
+
+        //removing the latest game restores the previous balances
+        session.removeLatestGameResult();
+        assertSameGame(added.get(added.size() - 2), session.getLatestResult());
+        for (PlayerRole role : session.getLatestResult().getParticipants()) {
+            assertEquals(role.getPlayerBalance(), role.getPlayer().getSessionMoney());
+        }
+    }
+
+    private void assertSameGame(SingleGameResult expected, SingleGameResult stored) {
+        assertEquals(expected.getGameType(), stored.getGameType());
+        assertEquals(expected.getStakeModifier().getPackedWord(), stored.getStakeModifier().getPackedWord());
+        Iterator<PlayerRole> storedRoles = stored.getParticipants().iterator();
+        for (PlayerRole role : expected.getParticipants()) {
+            PlayerRole storedRole = storedRoles.next();
+            assertSame(role.getPlayer(), storedRole.getPlayer());
+            assertEquals(role.isCaller(), storedRole.isCaller());
+            assertEquals(role.isWinner(), storedRole.isWinner());
+            assertEquals(role.getMoney(), storedRole.getMoney());
+            assertEquals(role.getPlayerBalance(), storedRole.getPlayerBalance());
+            assertSame(storedRole, stored.findRole(role.getPlayer()));
+        }
+    }
+
+    private SingleGameResult createRotatingGame(Session session, int i) {
+        Player[] players = session.getPlayers().toArray(new Player[0]);
+        Player[] callers = {players[i % players.length], players[(i + 1) % players.length]};
+        Player[] nonCallers = {players[(i + 2) % players.length], players[(i + 3) % players.length]};
+        StakeModifier mod = new StakeModifier();
+        mod.setSchneider(i % 2 == 0);
+        mod.setNumberOfLaufende(i % 4);
+        return createGame(callers, nonCallers, GameType.SAUSPIEL, i % 3 != 0, mod);
+    }
+
+    /**
+     * Asserts that both sessions contain the same games with the same stored balances and player balances
+     */
+    private void assertSameSession(Session expected, Session actual) {
+        assertEquals(expected.getGameAmount(), actual.getGameAmount());
+        Iterator<SingleGameResult> expectedIt = expected.iterator();
+        Iterator<SingleGameResult> actualIt = actual.iterator();
+        while (expectedIt.hasNext()) {
+            SingleGameResult expectedGame = expectedIt.next();
+            SingleGameResult actualGame = actualIt.next();
+            Iterator<PlayerRole> actualRoles = actualGame.getParticipants().iterator();
+            for (PlayerRole role : expectedGame.getParticipants()) {
+                PlayerRole actualRole = actualRoles.next();
+                assertEquals(role.getPlayer().getName(), actualRole.getPlayer().getName());
+                assertEquals(role.getMoney(), actualRole.getMoney());
+                assertEquals(role.getPlayerBalance(), actualRole.getPlayerBalance());
+            }
+        }
+        Iterator<Player> players = expected.getPlayers().iterator();
+        for (Player p : actual.getPlayers()) {
+            assertEquals(players.next().getSessionMoney(), p.getSessionMoney());
+        }
+    }
+
+    @Test
+    public void testRemoveGame() {
+        String[] names = {"Anton", "Berta", "Cäsar", "Dora", "Emil"};
+        Session session = createDefaultSession(names);
+        Session expected = createDefaultSession(names);
+        for (int i = 0; i < 300; i++) {
+            session.addGame(createRotatingGame(session, i));
+            if (i != 12 && i != 299) {
+                expected.addGame(createRotatingGame(expected, i));
+            }
+        }
+        session.removeGame(12);
+        session.removeGame(session.getGameAmount() - 1);
+        assertSameSession(expected, session);
+    }
+
+    @Test
+    public void testReplaceGame() {
+        String[] names = {"Anton", "Berta", "Cäsar", "Dora", "Emil"};
+        Session session = createDefaultSession(names);
+        Session expected = createDefaultSession(names);
+        for (int i = 0; i < 300; i++) {
+            session.addGame(createRotatingGame(session, i));
+            //game 12 is replaced by a game with different players
+            expected.addGame(createRotatingGame(expected, i == 12 ? 14 : i));
+        }
+        session.replaceGame(12, createRotatingGame(session, 14));
+        assertSameSession(expected, session);
+    }
+
+    @Test
+    public void testBalanceIndex() {
+        String[] names = {"Anton", "Berta", "Cäsar", "Dora", "Emil"};
+        Session session = createDefaultSession(names);
+        for (int i = 0; i < 300; i++) {
+            session.addGame(createRotatingGame(session, i));
+        }
+        session.removeGame(7);
+        session.replaceGame(100, createRotatingGame(session, 3));
+        for (Player player : session.getPlayers()) {
+            int balance = 0;
+            int gameIndex = 0;
+            Iterator<SingleGameResult> it = session.iterator();
+            while (it.hasNext()) {
+                PlayerRole role = it.next().findRole(player);
+                if (role != null) {
+                    balance = role.getPlayerBalance();
+                }
+                //sitting out carries the balance forward
+                assertEquals(balance, session.balanceAt(player, gameIndex));
+                gameIndex++;
+            }
+            assertEquals(0, session.balanceAt(player, -1));
+            assertEquals(player.getSessionMoney(), session.balanceAt(player, session.getGameAmount() - 1));
+            assertEquals(player.getSessionMoney(), session.deltaBetween(player, 0, session.getGameAmount() - 1));
+            assertEquals(session.balanceAt(player, 150) - session.balanceAt(player, 49), session.deltaBetween(player, 50, 150));
+        }
+    }
+
+    @Test
+    public void testSnapshot() {
+        String[] names = {"Anton", "Berta", "Cäsar", "Dora", "Emil"};
+        Session session = createDefaultSession(names);
+        Session expected = createDefaultSession(names);
+        for (int i = 0; i < 300; i++) {
+            session.addGame(createRotatingGame(session, i));
+            expected.addGame(createRotatingGame(expected, i));
+        }
+        Session snapshot = session.snapshot();
+        assertTrue(snapshot.isSnapshot());
+        assertSame(snapshot, snapshot.snapshot());
+        //changes of the session must not be visible in the snapshot
+        session.removeGame(7);
+        session.replaceGame(270, createRotatingGame(session, 3));
+        for (int i = 0; i < 300; i++) {
+            session.addGame(createRotatingGame(session, i));
+        }
+        Session second = session.snapshot();
+        SingleGameResult first = session.getGame(0);
+        session.removeGame(0);
+        assertSameSession(expected, snapshot);
+        SingleGameResult secondFirst = second.getGame(0);
+        assertEquals(first.getStakeModifier().getPackedWord(), secondFirst.getStakeModifier().getPackedWord());
+        Iterator<PlayerRole> secondRoles = secondFirst.getParticipants().iterator();
+        for (PlayerRole role : first.getParticipants()) {
+            PlayerRole secondRole = secondRoles.next();
+            assertEquals(role.getPlayer().getName(), secondRole.getPlayer().getName());
+            assertEquals(role.getPlayerBalance(), secondRole.getPlayerBalance());
+        }
+        assertEquals(599, second.getGameAmount());
+        assertEquals(598, session.getGameAmount());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsImmutable() {
+        Session session = createDefaultSession(new String[]{"Anton", "Berta", "Cäsar", "Dora"});
+        Session snapshot = session.snapshot();
+        snapshot.addGame(createRotatingGame(snapshot, 0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRemoveInvalidGame() {
+        Session session = createDefaultSession(new String[]{"Anton", "Berta", "Cäsar", "Dora"});
+        session.addGame(createRotatingGame(session, 0));
+        session.removeGame(1);
+    }
+
+    @Test
+    public void testEmptySession() {
+        Session session = createDefaultSession(new String[]{"Anton", "Berta", "Cäsar", "Dora"});
+        assertNull(session.getLatestResult());
+        assertFalse(session.iterator().hasNext());
+        assertFalse(session.getLatestFirstIterator().hasNext());
+        session.removeLatestGameResult();
+        assertEquals(0, session.getGameAmount());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testInvalidAmountOfPlayers() {
         String[] players = {"Anton", "Berta", "Cäsar"};
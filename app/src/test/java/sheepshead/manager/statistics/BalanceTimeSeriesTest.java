@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.statistics;
+
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import sheepshead.manager.game.GameType;
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.PlayerRole;
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.game.StakeModifier;
+import sheepshead.manager.session.Session;
+import sheepshead.manager.session.Stake;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BalanceTimeSeriesTest {
+
+    private static SingleGameResult createGame(Session session, Random random) {
+        Player[] players = session.getPlayers().toArray(new Player[0]);
+        int first = random.nextInt(players.length);
+        GameType type = random.nextInt(4) == 0 ? GameType.SOLO : GameType.SAUSPIEL;
+        boolean callersWin = random.nextBoolean();
+        List<PlayerRole> roles = new ArrayList<>();
+        for (int i = 0; i < SingleGameResult.PLAYERS_PER_GAME; i++) {
+            boolean caller = i < type.getNumberOfCallers();
+            roles.add(new PlayerRole(players[(first + i) % players.length], caller, caller == callersWin));
+        }
+        return new SingleGameResult(roles, type, new StakeModifier());
+    }
+
+    private static int balance(Session session, Player player, int position) {
+        return position == 0 ? 0 : session.balanceAt(player, position - 1);
+    }
+
+    private static void assertSeries(Session session, Player player, BalanceTimeSeries.Series series, int width) {
+        int games = session.getGameAmount();
+        assertTrue(series.size() + " points", series.size() <= width);
+        assertEquals(0, series.getPosition(0));
+        assertEquals(games, series.getPosition(series.size() - 1));
+        int min = 0;
+        int max = 0;
+        for (int position = 1; position <= games; position++) {
+            min = Math.min(min, balance(session, player, position));
+            max = Math.max(max, balance(session, player, position));
+        }
+        int seriesMin = 0;
+        int seriesMax = 0;
+        for (int point = 0; point < series.size(); point++) {
+            if (point > 0) {
+                assertTrue(series.getPosition(point - 1) < series.getPosition(point));
+            }
+            assertEquals(balance(session, player, series.getPosition(point)), series.getBalance(point));
+            seriesMin = Math.min(seriesMin, series.getBalance(point));
+            seriesMax = Math.max(seriesMax, series.getBalance(point));
+        }
+        //peaks and drops are kept
+        assertEquals(min, seriesMin);
+        assertEquals(max, seriesMax);
+    }
+
+    private static void assertSameSeries(BalanceTimeSeries.Series expected, BalanceTimeSeries.Series actual) {
+        int[] expectedPoints = new int[expected.size() * 2];
+        int[] actualPoints = new int[actual.size() * 2];
+        for (int i = 0; i < expected.size(); i++) {
+            expectedPoints[2 * i] = expected.getPosition(i);
+            expectedPoints[2 * i + 1] = expected.getBalance(i);
+        }
+        for (int i = 0; i < actual.size(); i++) {
+            actualPoints[2 * i] = actual.getPosition(i);
+            actualPoints[2 * i + 1] = actual.getBalance(i);
+        }
+        assertArrayEquals(expectedPoints, actualPoints);
+    }
+
+    @Test
+    public void testDownsampling() {
+        Random random = new Random(3);
+        Session session = new Session(Arrays.asList("A", "B", "C", "D", "E"), new Stake(10, 50, 10));
+        BalanceTimeSeries series = new BalanceTimeSeries(session);
+        session.addListener(series);
+        Player player = session.getPlayers().iterator().next();
+        assertEquals(1, series.getSeries(player, 4).size());
+        for (int i = 0; i < 3000; i++) {
+            session.addGame(createGame(session, random));
+        }
+        for (int width : new int[]{4, 5, 37, 320, 5000}) {
+            for (Player p : session.getPlayers()) {
+                assertSeries(session, p, series.getSeries(p, width), width);
+            }
+        }
+        //wider than the session: every change of the balance is kept
+        BalanceTimeSeries.Series wide = series.getSeries(player, 5000);
+        int point = 0;
+        for (int position = 1; position <= 3000; position++) {
+            if (balance(session, player, position) != balance(session, player, position - 1)) {
+                while (wide.getPosition(point) < position) {
+                    point++;
+                }
+                assertEquals(position, wide.getPosition(point));
+            }
+        }
+    }
+
+    @Test
+    public void testIncremental() {
+        Random random = new Random(5);
+        Session session = new Session(Arrays.asList("A", "B", "C", "D", "E"), new Stake(10, 50, 10));
+        BalanceTimeSeries series = new BalanceTimeSeries(session);
+        session.addListener(series);
+        for (int i = 0; i < 1000; i++) {
+            session.addGame(createGame(session, random));
+            if (i % 97 == 0) {
+                for (Player p : session.getPlayers()) {
+                    BalanceTimeSeries.Series cached = series.getSeries(p, 64);
+                    assertSeries(session, p, cached, 64);
+                    assertSameSeries(new BalanceTimeSeries(session).getSeries(p, 64), cached);
+                }
+                series.getSeries(session.getPlayers().iterator().next(), 33);
+            }
+        }
+        for (Player p : session.getPlayers()) {
+            assertSameSeries(new BalanceTimeSeries(session).getSeries(p, 33), series.getSeries(p, 33));
+        }
+
+        session.removeLatestGameResult();
+        session.replaceGame(10, createGame(session, random));
+        for (Player p : session.getPlayers()) {
+            assertSeries(session, p, series.getSeries(p, 64), 64);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.statistics;
+
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import sheepshead.manager.game.GameType;
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.PlayerRole;
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.game.StakeModifier;
+import sheepshead.manager.session.Session;
+import sheepshead.manager.session.Stake;
+
+import static org.junit.Assert.assertEquals;
+
+public class FormStatisticsTest {
+
+    private static SingleGameResult createGame(Session session, Random random) {
+        Player[] players = session.getPlayers().toArray(new Player[0]);
+        //the first player sits out most games
+        int first = random.nextInt(5) == 0 ? 0 : 1;
+        GameType type = random.nextBoolean() ? GameType.SOLO : GameType.SAUSPIEL;
+        boolean callersWin = random.nextBoolean();
+        List<PlayerRole> roles = new ArrayList<>();
+        for (int i = 0; i < SingleGameResult.PLAYERS_PER_GAME; i++) {
+            boolean caller = i < type.getNumberOfCallers();
+            roles.add(new PlayerRole(players[first + i], caller, caller == callersWin));
+        }
+        StakeModifier modifier = new StakeModifier();
+        modifier.setSchneider(random.nextBoolean());
+        return new SingleGameResult(roles, type, modifier);
+    }
+
+    /**
+     * Computes the form of the player by scanning the session
+     */
+    private static void assertForm(Session session, FormStatistics form, Player player) {
+        int games = 0;
+        int wins = 0;
+        int money = 0;
+        int payout = 0;
+        for (int i = session.getGameAmount() - 1; i >= 0 && games < form.getWindow(); i--) {
+            PlayerRole role = session.getGame(i).findRole(player);
+            if (role != null) {
+                games++;
+                wins += role.isWinner() ? 1 : 0;
+                money += role.getMoney();
+                payout += Math.abs(role.getMoney());
+            }
+        }
+        assertEquals(player.getName(), games, form.getGames(player));
+        assertEquals(player.getName(), wins, form.getWins(player));
+        assertEquals(player.getName(), money, form.getNetMoney(player));
+        assertEquals(player.getName(), games == 0 ? 0 : payout / (float) games, form.getAveragePayout(player), 1e-4);
+    }
+
+    private static void assertForm(Session session, FormStatistics form) {
+        for (Player player : session.getPlayers()) {
+            assertForm(session, form, player);
+        }
+    }
+
+    @Test
+    public void testWindow() {
+        Random random = new Random(7);
+        Session session = new Session(Arrays.asList("A", "B", "C", "D", "E"), new Stake(10, 50, 10));
+        FormStatistics form = new FormStatistics(session, 3);
+        session.addListener(form);
+        assertForm(session, form);
+        for (int i = 0; i < 50; i++) {
+            session.addGame(createGame(session, random));
+            assertForm(session, form);
+        }
+        //a new form of the same session starts with the same windows
+        assertForm(session, new FormStatistics(session, 3));
+    }
+
+    @Test
+    public void testRollback() {
+        Random random = new Random(11);
+        Session session = new Session(Arrays.asList("A", "B", "C", "D", "E"), new Stake(10, 50, 10));
+        for (int i = 0; i < 40; i++) {
+            session.addGame(createGame(session, random));
+        }
+        FormStatistics form = new FormStatistics(session, 4);
+        session.addListener(form);
+        for (int i = 0; i < 30; i++) {
+            session.removeLatestGameResult();
+            assertForm(session, form);
+        }
+        for (int i = 0; i < 20; i++) {
+            session.addGame(createGame(session, random));
+        }
+        session.removeGame(25);
+        assertForm(session, form);
+        session.removeGame(3);
+        assertForm(session, form);
+        session.replaceGame(27, createGame(session, random));
+        assertForm(session, form);
+        while (session.getGameAmount() > 0) {
+            session.removeLatestGameResult();
+            assertForm(session, form);
+        }
+    }
+}
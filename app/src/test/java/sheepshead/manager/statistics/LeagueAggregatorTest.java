@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.statistics;
+
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import sheepshead.manager.game.GameType;
+import sheepshead.manager.game.Player;
+import sheepshead.manager.serialization.CSVFormat;
+import sheepshead.manager.serialization.SerializationActions;
+import sheepshead.manager.serialization.SessionDataCorruptedException;
+import sheepshead.manager.session.DummySession;
+import sheepshead.manager.session.InternalSessionReader;
+import sheepshead.manager.session.InternalSessionWriter;
+import sheepshead.manager.session.Session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LeagueAggregatorTest {
+
+    private static final CSVFormat format = new CSVFormat(';', '"', "utf8", false, new InternalSessionWriter(), new InternalSessionReader());
+
+    private File directory;
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("league_test", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+        pool = new ForkJoinPool(2);
+    }
+
+    @After
+    public void cleanup() {
+        pool.shutdown();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                assertTrue(file.delete());
+            }
+        }
+        assertTrue(directory.delete());
+    }
+
+    private File save(String name, Session session, CSVFormat.Compression compression) throws IOException, SessionDataCorruptedException {
+        File file = new File(directory, name + ".csv" + compression.getFileExtension());
+        SerializationActions.saveSession(file, session, format.withCompression(compression));
+        return file;
+    }
+
+    private static int money(Session session, String name) {
+        for (Player player : session.getPlayers()) {
+            if (player.getName().equals(name)) {
+                return player.getSessionMoney();
+            }
+        }
+        return 0;
+    }
+
+    @Test
+    public void testAggregate() throws IOException, SessionDataCorruptedException {
+        Session first = new DummySession(Arrays.asList("Anton", "Berta", "Caesar", "Dora"), 30);
+        Session second = new DummySession(Arrays.asList("Anton", "Berta", "Emil", "Dora", "Friedrich"), 45);
+        Session third = new DummySession(Arrays.asList("Gustav", "Anton", "Berta", "Dora"), 7);
+        save("first", first, CSVFormat.Compression.NONE);
+        save("second", second, CSVFormat.Compression.GZIP);
+        save("third", third, CSVFormat.Compression.DEFLATE);
+
+        LeagueTable table = new LeagueAggregator(format, pool).aggregate(directory);
+        assertEquals(3, table.getSessionAmount());
+        assertTrue(table.getUnreadableFiles().isEmpty());
+        LeagueTable.Entry anton = table.getEntry("Anton");
+        assertEquals(3, anton.getSessions());
+        assertEquals(money(first, "Anton") + money(second, "Anton") + money(third, "Anton"), anton.getMoney());
+        int games = 0;
+        int money = 0;
+        for (GameType type : GameType.values()) {
+            games += anton.getGamesPlayed(type);
+            money += anton.getMoney(type);
+        }
+        assertEquals(anton.getGamesPlayed(), games);
+        assertEquals(anton.getMoney(), money);
+        assertEquals(1, table.getEntry("Gustav").getSessions());
+        assertNull(table.getEntry("Heinrich"));
+
+        //the totals do not depend on how the tables are grouped
+        LeagueTable sequential = LeagueTable.of(third).merge(LeagueTable.of(first).merge(LeagueTable.of(second)));
+        for (LeagueTable.Entry entry : sequential.getEntries()) {
+            assertEquals(entry.getMoney(), table.getEntry(entry.getName()).getMoney());
+            assertEquals(entry.getWins(), table.getEntry(entry.getName()).getWins());
+            assertEquals(entry.getCalls(), table.getEntry(entry.getName()).getCalls());
+        }
+    }
+
+    @Test
+    public void testCache() throws IOException, SessionDataCorruptedException {
+        File first = save("first", new DummySession(Arrays.asList("Anton", "Berta", "Caesar", "Dora"), 30), CSVFormat.Compression.NONE);
+        save("second", new DummySession(Arrays.asList("Anton", "Berta", "Caesar", "Dora"), 20), CSVFormat.Compression.GZIP);
+        LeagueAggregator aggregator = new LeagueAggregator(format, pool);
+        int games = aggregator.aggregate(directory).getEntry("Anton").getGamesPlayed();
+
+        //an unchanged file is not read again: damage it without changing its length and modification time
+        long modified = first.lastModified();
+        RandomAccessFile file = new RandomAccessFile(first, "rw");
+        file.write(new byte[(int) file.length()]);
+        file.close();
+        assertTrue(first.setLastModified(modified));
+        Session third = new DummySession(Arrays.asList("Anton", "Berta", "Caesar", "Dora"), 11);
+        save("third", third, CSVFormat.Compression.NONE);
+        LeagueTable table = aggregator.aggregate(directory);
+        assertEquals(3, table.getSessionAmount());
+        assertEquals(games + LeagueTable.of(third).getEntry("Anton").getGamesPlayed(), table.getEntry("Anton").getGamesPlayed());
+
+        //a changed file is read again
+        assertTrue(first.setLastModified(modified + 2000));
+        table = aggregator.aggregate(directory);
+        assertEquals(2, table.getSessionAmount());
+        assertEquals(Arrays.asList(first.getName()), table.getUnreadableFiles());
+        assertTrue(first.exists());
+
+        //a removed file is dropped
+        assertTrue(first.delete());
+        table = aggregator.aggregate(directory);
+        assertEquals(2, table.getSessionAmount());
+        assertTrue(table.getUnreadableFiles().isEmpty());
+    }
+}
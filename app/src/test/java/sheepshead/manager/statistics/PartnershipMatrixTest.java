@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.statistics;
+
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import sheepshead.manager.game.GameType;
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.PlayerRole;
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.game.StakeModifier;
+import sheepshead.manager.serialization.CSVFormat;
+import sheepshead.manager.serialization.SessionDataCorruptedException;
+import sheepshead.manager.session.InternalSessionReader;
+import sheepshead.manager.session.InternalSessionWriter;
+import sheepshead.manager.session.Session;
+import sheepshead.manager.session.Stake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PartnershipMatrixTest {
+
+    private static SingleGameResult createGame(Player[] players, GameType type, boolean callersWin, int... seats) {
+        List<PlayerRole> roles = new ArrayList<>();
+        for (int i = 0; i < SingleGameResult.PLAYERS_PER_GAME; i++) {
+            boolean caller = i < type.getNumberOfCallers();
+            roles.add(new PlayerRole(players[seats[i]], caller, caller == callersWin));
+        }
+        return new SingleGameResult(roles, type, new StakeModifier());
+    }
+
+    private static SingleGameResult createGame(Player[] players, Random random) {
+        List<Integer> seats = new ArrayList<>(Arrays.asList(0, 1, 2, 3, 4));
+        Collections.shuffle(seats, random);
+        GameType type = random.nextInt(3) == 0 ? GameType.WENZ : GameType.SAUSPIEL;
+        return createGame(players, type, random.nextBoolean(), seats.get(0), seats.get(1), seats.get(2), seats.get(3));
+    }
+
+    private static void assertSameMatrix(Session session, PartnershipMatrix expected, PartnershipMatrix actual) {
+        for (Player a : session.getPlayers()) {
+            for (Player b : session.getPlayers()) {
+                if (a != b) {
+                    assertEquals(expected.getGamesTogether(a, b), actual.getGamesTogether(a, b));
+                    assertEquals(expected.getWinsTogether(a, b), actual.getWinsTogether(a, b));
+                    assertEquals(expected.getGamesAgainst(a, b), actual.getGamesAgainst(a, b));
+                    assertEquals(expected.getMoneyAgainst(a, b), actual.getMoneyAgainst(a, b));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCounting() {
+        Session session = new Session(Arrays.asList("A", "B", "C", "D", "E"), new Stake(10, 50, 10));
+        Player[] p = session.getPlayers().toArray(new Player[0]);
+        PartnershipMatrix matrix = new PartnershipMatrix(session);
+        session.addListener(matrix);
+        session.addGame(createGame(p, GameType.SAUSPIEL, true, 0, 1, 2, 3));
+        session.addGame(createGame(p, GameType.SAUSPIEL, false, 0, 1, 2, 4));
+        session.addGame(createGame(p, GameType.SAUSPIEL, true, 0, 2, 1, 3));
+        //only Sauspiel games are counted
+        session.addGame(createGame(p, GameType.SOLO, true, 0, 1, 2, 3));
+
+        assertEquals(2, matrix.getGamesTogether(p[0], p[1]));
+        assertEquals(2, matrix.getGamesTogether(p[1], p[0]));
+        assertEquals(1, matrix.getWinsTogether(p[0], p[1]));
+        assertEquals(2, matrix.getGamesAgainst(p[0], p[2]));
+        assertEquals(1, matrix.getGamesTogether(p[2], p[3]));
+        assertEquals(0, matrix.getGamesTogether(p[3], p[4]));
+        assertEquals(-matrix.getMoneyAgainst(p[3], p[0]), matrix.getMoneyAgainst(p[0], p[3]));
+        assertTrue(matrix.getMoneyAgainst(p[0], p[3]) > 0);
+
+        List<PartnershipMatrix.Partnership> best = matrix.getPartnerships();
+        //A and C won their only game together, A and B won one of two
+        assertEquals(p[0], best.get(0).getFirst());
+        assertEquals(p[2], best.get(0).getSecond());
+        assertEquals(1f, best.get(0).getWinRatio(), 0);
+
+        session.removeLatestGameResult();
+        session.removeLatestGameResult();
+        assertEquals(2, matrix.getGamesTogether(p[0], p[1]));
+        assertEquals(0, matrix.getGamesTogether(p[0], p[2]));
+        assertEquals(2, matrix.getGamesAgainst(p[0], p[2]));
+    }
+
+    @Test
+    public void testIncrementalEqualsRecount() {
+        Random random = new Random(17);
+        Session session = new Session(Arrays.asList("A", "B", "C", "D", "E"), new Stake(10, 50, 10));
+        Player[] p = session.getPlayers().toArray(new Player[0]);
+        PartnershipMatrix matrix = new PartnershipMatrix(session);
+        session.addListener(matrix);
+        for (int i = 0; i < 200; i++) {
+            session.addGame(createGame(p, random));
+        }
+        session.removeGame(50);
+        session.replaceGame(20, createGame(p, random));
+        session.removeLatestGameResult();
+        assertSameMatrix(session, new PartnershipMatrix(session), matrix);
+    }
+
+    @Test
+    public void testExport() throws IOException, SessionDataCorruptedException {
+        Session session = new Session(Arrays.asList("A", "B", "C", "D"), new Stake(10, 50, 10));
+        Player[] p = session.getPlayers().toArray(new Player[0]);
+        session.addGame(createGame(p, GameType.SAUSPIEL, true, 0, 1, 2, 3));
+        CSVFormat format = new CSVFormat(';', '"', "utf8", false, new InternalSessionWriter(), new InternalSessionReader());
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new PartnershipMatrix(session).writeTo(stream, format);
+        String[] lines = stream.toString("utf8").split("\r?\n");
+        //header and one row per ordered pair
+        assertEquals(1 + 4 * 3, lines.length);
+        assertTrue(lines[1], lines[1].startsWith("A;B;1;1;0;0"));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017  Erik Pohle
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sheepshead.manager.statistics;
+
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import sheepshead.manager.game.GameType;
+import sheepshead.manager.game.Player;
+import sheepshead.manager.game.PlayerRole;
+import sheepshead.manager.game.SingleGameResult;
+import sheepshead.manager.game.StakeModifier;
+import sheepshead.manager.session.Session;
+import sheepshead.manager.session.Stake;
+
+import static org.junit.Assert.assertEquals;
+
+public class SessionStatisticsTest {
+
+    private static SingleGameResult createGame(Session session, int game) {
+        Player[] players = session.getPlayers().toArray(new Player[0]);
+        GameType type = game % 3 == 0 ? GameType.SOLO : GameType.SAUSPIEL;
+        int callers = type.getNumberOfCallers();
+        boolean callersWin = game % 2 == 0;
+        List<PlayerRole> roles = new ArrayList<>();
+        for (int i = 0; i < SingleGameResult.PLAYERS_PER_GAME; i++) {
+            boolean caller = i < callers;
+            roles.add(new PlayerRole(players[(game + i) % players.length], caller, caller == callersWin));
+        }
+        StakeModifier modifier = new StakeModifier();
+        modifier.setSchneider(game % 4 == 0);
+        modifier.setTout(game % 5 == 0 && type == GameType.SOLO);
+        return new SingleGameResult(roles, type, modifier);
+    }
+
+    private static void assertSameStatistics(Session session, SessionStatistics incremental) {
+        SessionStatistics recounted = new SessionStatistics(session);
+        for (Player player : session.getPlayers()) {
+            assertEquals(recounted.getGamesPlayed(player), incremental.getGamesPlayed(player));
+            assertEquals(recounted.getWins(player), incremental.getWins(player));
+            assertEquals(recounted.getCalls(player), incremental.getCalls(player));
+            assertEquals(recounted.getCallsWon(player), incremental.getCallsWon(player));
+            assertEquals(recounted.getSchneiderCount(player), incremental.getSchneiderCount(player));
+            assertEquals(recounted.getToutCount(player), incremental.getToutCount(player));
+            int money = 0;
+            for (GameType type : GameType.values()) {
+                assertEquals(recounted.getGamesPlayed(player, type), incremental.getGamesPlayed(player, type));
+                assertEquals(recounted.getMoney(player, type), incremental.getMoney(player, type));
+                money += incremental.getMoney(player, type);
+            }
+            assertEquals(player.getSessionMoney(), money);
+        }
+    }
+
+    @Test
+    public void testCounting() {
+        Session session = new Session(Arrays.asList("A", "B", "C", "D"), new Stake(10, 50, 10));
+        SessionStatistics statistics = new SessionStatistics(session);
+        session.addListener(statistics);
+        session.addGame(createGame(session, 0));
+        Player a = session.getPlayers().iterator().next();
+        //game 0: solo of A, won, schneider
+        assertEquals(1, statistics.getGamesPlayed(a));
+        assertEquals(1, statistics.getWins(a));
+        assertEquals(1, statistics.getCalls(a));
+        assertEquals(1, statistics.getCallsWon(a));
+        assertEquals(1, statistics.getSchneiderCount(a));
+        assertEquals(1, statistics.getToutCount(a));
+        assertEquals(1, statistics.getGamesPlayed(a, GameType.SOLO));
+        assertEquals(a.getSessionMoney(), statistics.getMoney(a, GameType.SOLO));
+        assertEquals(1f, statistics.getWinRate(a), 0);
+
+        session.removeLatestGameResult();
+        assertEquals(0, statistics.getGamesPlayed(a));
+        assertEquals(0, statistics.getMoney(a, GameType.SOLO));
+        assertEquals(0f, statistics.getWinRate(a), 0);
+    }
+
+    @Test
+    public void testIncrementalEqualsRecount() {
+        Session session = new Session(Arrays.asList("A", "B", "C", "D", "E"), new Stake(10, 50, 10));
+        for (int i = 0; i < 10; i++) {
+            session.addGame(createGame(session, i));
+        }
+        SessionStatistics statistics = new SessionStatistics(session);
+        session.addListener(statistics);
+        for (int i = 10; i < 40; i++) {
+            session.addGame(createGame(session, i));
+        }
+        assertSameStatistics(session, statistics);
+
+        session.removeLatestGameResult();
+        session.removeGame(3);
+        session.replaceGame(7, createGame(session, 2));
+        session.replaceGame(20, createGame(session, 3));
+        assertSameStatistics(session, statistics);
+    }
+}